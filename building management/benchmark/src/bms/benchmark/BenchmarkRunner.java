@@ -0,0 +1,38 @@
+package bms.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the simulation benchmarks and writes the results as JSON, so that
+ * runs can be compared to track regressions.
+ * <p>
+ * Usage: {@code BenchmarkRunner [resultFile [includeRegex]]}. The results
+ * are written to "benchmark-results.json" by default, and every benchmark
+ * in this package is run unless a regex is given, eg.
+ * {@code "SimulationBenchmark.elapseOneMinute"}.
+ * <p>
+ * Further JMH options can be passed by running {@code org.openjdk.jmh.Main}
+ * directly, eg. {@code -rf json -rff results.json -p rooms=1000}.
+ */
+public class BenchmarkRunner {
+    /**
+     * File the results are written to when no file is given.
+     */
+    private static final String DEFAULT_RESULT_FILE = "benchmark-results.json";
+
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = args.length > 0 ? args[0] : DEFAULT_RESULT_FILE;
+        String include = args.length > 1 ? args[1]
+                : BenchmarkRunner.class.getPackageName() + "\\..*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+package bms.benchmark;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks saving and loading buildings in the text save format.
+ * <p>
+ * Loaded sensors stay registered with the timed item manager for the rest
+ * of the fork, so loading is measured in single shots with a fixed number
+ * of iterations, which keeps the heap bounded.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceBenchmark {
+    /**
+     * Number of rooms in the building.
+     */
+    @Param({"10", "1000", "100000"})
+    public int rooms;
+
+    private Building building;
+    private Path saveFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        building = SyntheticBuildings.create(rooms, 42);
+        saveFile = Files.createTempFile("benchmark", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(saveFile)) {
+            writer.write(building.encode());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saveFile);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public String encode() {
+        return building.encode();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public void encodeTo() throws IOException {
+        building.encodeTo(Writer.nullWriter());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public List<Building> loadBuildings()
+            throws IOException, FileFormatException {
+        return BuildingInitialiser.loadBuildings(saveFile.toString());
+    }
+}
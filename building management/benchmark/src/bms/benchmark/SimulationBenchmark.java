@@ -0,0 +1,95 @@
+package bms.benchmark;
+
+import bms.building.Building;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.util.StudyRoomRecommender;
+import bms.util.TimedItemManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per-tick and per-frame hot paths of the simulation.
+ * <p>
+ * Each fork builds one synthetic building, so the timed item manager only
+ * holds that building's sensors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SimulationBenchmark {
+    /**
+     * Number of rooms in the building.
+     */
+    @Param({"10", "1000", "100000"})
+    public int rooms;
+
+    private Building building;
+    private Room[] allRooms;
+    private HazardEvaluator[] ruleBased;
+    private HazardEvaluator[] weightingBased;
+
+    @Setup
+    public void setUp() {
+        building = SyntheticBuildings.create(rooms, 42);
+        List<Room> roomList = SyntheticBuildings.rooms(building);
+        allRooms = roomList.toArray(new Room[0]);
+        ruleBased = new HazardEvaluator[allRooms.length];
+        weightingBased = new HazardEvaluator[allRooms.length];
+        for (int i = 0; i < allRooms.length; i++) {
+            ruleBased[i] = new RuleBasedHazardEvaluator(
+                    SyntheticBuildings.hazardSensors(allRooms[i]));
+            weightingBased[i] = new WeightingBasedHazardEvaluator(
+                    SyntheticBuildings.weightings(allRooms[i]));
+        }
+    }
+
+    @Benchmark
+    public void elapseOneMinute() {
+        TimedItemManager.getInstance().elapseOneMinute();
+    }
+
+    @Benchmark
+    public void ruleBasedHazardLevel(Blackhole blackhole) {
+        for (HazardEvaluator evaluator : ruleBased) {
+            blackhole.consume(evaluator.evaluateHazardLevel());
+        }
+    }
+
+    @Benchmark
+    public void weightingBasedHazardLevel(Blackhole blackhole) {
+        for (HazardEvaluator evaluator : weightingBased) {
+            blackhole.consume(evaluator.evaluateHazardLevel());
+        }
+    }
+
+    @Benchmark
+    public void evaluateRoomState(Blackhole blackhole) {
+        for (Room room : allRooms) {
+            blackhole.consume(room.evaluateRoomState());
+        }
+    }
+
+    @Benchmark
+    public Room recommendStudyRoom() {
+        return StudyRoomRecommender.recommendStudyRoom(building);
+    }
+}
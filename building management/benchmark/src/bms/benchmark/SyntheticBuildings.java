@@ -0,0 +1,170 @@
+package bms.benchmark;
+
+import bms.building.Building;
+import bms.exceptions.DuplicateFloorException;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.DuplicateSensorException;
+import bms.exceptions.FloorTooSmallException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic buildings of a given size for benchmarking.
+ * <p>
+ * Every floor holds up to {@value #ROOMS_PER_FLOOR} rooms, and every room
+ * has one sensor of each type. Even numbered rooms use a rule-based hazard
+ * evaluator and odd numbered rooms a weighting-based one. Each floor has a
+ * maintenance schedule over all of its rooms.
+ */
+public final class SyntheticBuildings {
+    /**
+     * Maximum number of rooms on each floor.
+     */
+    private static final int ROOMS_PER_FLOOR = 100;
+
+    /**
+     * Width and length of every floor, big enough for a full floor of rooms.
+     */
+    private static final double FLOOR_WIDTH = 40;
+    private static final double FLOOR_LENGTH = 30;
+
+    /**
+     * Area of every room.
+     */
+    private static final double ROOM_AREA = 10;
+
+    private SyntheticBuildings() {
+    }
+
+    /**
+     * Creates a building with the given number of rooms, with sensor
+     * readings drawn from a random generator seeded with the given seed.
+     * <p>
+     * Room numbers start with their floor number (eg. 1001 to 1100 on floor
+     * 1), as required by the save file format.
+     *
+     * @param roomCount number of rooms in the building, at least one
+     * @param seed      seed of the sensor readings
+     * @return new building
+     */
+    public static Building create(int roomCount, long seed) {
+        Random random = new Random(seed);
+        Building building = new Building("Synthetic " + roomCount);
+        int floorCount = (roomCount + ROOMS_PER_FLOOR - 1) / ROOMS_PER_FLOOR;
+        try {
+            for (int floorNumber = 1; floorNumber <= floorCount;
+                 floorNumber++) {
+                Floor floor = new Floor(floorNumber, FLOOR_WIDTH,
+                        FLOOR_LENGTH);
+                int rooms = Math.min(ROOMS_PER_FLOOR,
+                        roomCount - (floorNumber - 1) * ROOMS_PER_FLOOR);
+                for (int i = 1; i <= rooms; i++) {
+                    floor.addRoom(createRoom(floorNumber * 1000 + i, random));
+                }
+                floor.createMaintenanceSchedule(floor.getRooms());
+                building.addFloor(floor);
+            }
+        } catch (DuplicateSensorException | DuplicateRoomException
+                | InsufficientSpaceException | DuplicateFloorException
+                | NoFloorBelowException | FloorTooSmallException e) {
+            throw new IllegalStateException(
+                    "Synthetic building is inconsistent", e);
+        }
+        return building;
+    }
+
+    /**
+     * Returns every room of the given building, floor by floor.
+     *
+     * @param building building to list
+     * @return rooms of the building
+     */
+    public static List<Room> rooms(Building building) {
+        List<Room> rooms = new ArrayList<>();
+        for (Floor floor : building.getFloors()) {
+            rooms.addAll(floor.getRooms());
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns the sensors of the given room as hazard sensors, in the
+     * room's order.
+     *
+     * @param room room to list
+     * @return hazard sensors of the room
+     */
+    public static List<HazardSensor> hazardSensors(Room room) {
+        List<HazardSensor> sensors = new ArrayList<>();
+        for (Sensor sensor : room.getSensors()) {
+            sensors.add((HazardSensor) sensor);
+        }
+        return sensors;
+    }
+
+    /**
+     * Returns a weighting of the sensors of the given room, with the whole
+     * weight given to its first sensor.
+     *
+     * @param room room to weight
+     * @return sensors of the room mapped to their weights
+     */
+    public static Map<HazardSensor, Integer> weightings(Room room) {
+        Map<HazardSensor, Integer> weights = new LinkedHashMap<>();
+        for (HazardSensor sensor : hazardSensors(room)) {
+            weights.put(sensor, weights.isEmpty() ? 100 : 0);
+        }
+        return weights;
+    }
+
+    private static Room createRoom(int roomNumber, Random random)
+            throws DuplicateSensorException {
+        RoomType type = RoomType.values()[roomNumber % RoomType.values()
+                .length];
+        Room room = new Room(roomNumber, type, ROOM_AREA);
+        room.addSensor(new CarbonDioxideSensor(
+                readings(random, 400, 2000), frequency(random), 700, 300));
+        room.addSensor(new NoiseSensor(readings(random, 30, 90),
+                frequency(random)));
+        room.addSensor(new OccupancySensor(readings(random, 0, 40),
+                frequency(random), 30));
+        room.addSensor(new TemperatureSensor(readings(random, 18, 70)));
+        if (roomNumber % 2 == 0) {
+            room.setHazardEvaluator(
+                    new RuleBasedHazardEvaluator(hazardSensors(room)));
+        } else {
+            room.setHazardEvaluator(
+                    new WeightingBasedHazardEvaluator(weightings(room)));
+        }
+        return room;
+    }
+
+    private static int[] readings(Random random, int min, int max) {
+        int[] readings = new int[5 + random.nextInt(56)];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = min + random.nextInt(max - min);
+        }
+        return readings;
+    }
+
+    private static int frequency(Random random) {
+        return 1 + random.nextInt(5);
+    }
+}
@@ -0,0 +1,172 @@
+package bms;
+
+import bms.building.BinarySnapshot;
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Entry point which runs the simulation without the GUI, as fast as it
+ * can, and reports how fast it ran.
+ * <p>
+ * Nothing here uses JavaFX, so it can run on a server without a display.
+ */
+public class HeadlessRunner {
+    /**
+     * Only static methods are provided.
+     */
+    private HeadlessRunner() {
+    }
+
+    /**
+     * Loads buildings from a save file and moves the simulation forward by
+     * the given number of minutes, then prints the number of ticks and
+     * sensor updates made per second.
+     * <p>
+     * Command line arguments: filename minutes [options]
+     * <p>
+     * where the options are:
+     * <ul>
+     * <li><code>--mode SERIAL|PARALLEL|EVENT_DRIVEN</code> - how the timed
+     * item manager advances items, see {@link TickMode}</li>
+     * <li><code>--snapshot-every M</code> - write a binary snapshot every
+     * M minutes</li>
+     * <li><code>--snapshot-dir D</code> - directory to write snapshots to,
+     * named <code>minute-N.bin</code>; defaults to the current
+     * directory</li>
+     * </ul>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length % 2 != 0) {
+            usage();
+            return;
+        }
+        String filename = args[0];
+        long minutes;
+        long snapshotEvery = 0;
+        Path snapshotDirectory = Path.of(".");
+        TickMode tickMode = TickMode.SERIAL;
+        try {
+            minutes = Long.parseLong(args[1]);
+            for (int i = 2; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--mode" -> tickMode = TickMode.valueOf(args[i + 1]);
+                    case "--snapshot-every" -> snapshotEvery =
+                            Long.parseLong(args[i + 1]);
+                    case "--snapshot-dir" -> snapshotDirectory =
+                            Path.of(args[i + 1]);
+                    default -> throw new IllegalArgumentException(
+                            "Unknown option " + args[i]);
+                }
+            }
+            if (minutes < 0 || snapshotEvery < 0) {
+                throw new IllegalArgumentException(
+                        "Minutes must not be negative");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            usage();
+            return;
+        }
+
+        try {
+            long loadStart = System.nanoTime();
+            List<Building> buildings =
+                    BuildingInitialiser.loadBuildings(filename);
+            long loadNanos = System.nanoTime() - loadStart;
+            System.out.printf("Loaded %d buildings with %d sensors from %s "
+                            + "in %d ms%n", buildings.size(),
+                    countSensors(buildings), filename, loadNanos / 1_000_000);
+
+            TimedItemManager.getInstance().setTickMode(tickMode);
+            simulate(buildings, minutes, snapshotEvery, snapshotDirectory,
+                    System.out);
+        } catch (IOException | FileFormatException e) {
+            System.err.println("Error running \"" + filename
+                    + "\". Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Moves the simulation forward by the given number of minutes, one tick
+     * at a time, and prints how long the ticks took.
+     * <p>
+     * Time spent writing snapshots is not counted.
+     *
+     * @param buildings         buildings being simulated, whose sensors are
+     *                          registered with the timed item manager
+     * @param minutes           number of minutes to move forward
+     * @param snapshotEvery     minutes between snapshots; 0 for none
+     * @param snapshotDirectory directory to write snapshots to
+     * @param out               stream to print the results to
+     * @return nanoseconds spent ticking
+     * @throws IOException if a snapshot could not be written
+     */
+    static long simulate(List<Building> buildings, long minutes,
+                         long snapshotEvery, Path snapshotDirectory,
+                         PrintStream out) throws IOException {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        if (snapshotEvery > 0) {
+            Files.createDirectories(snapshotDirectory);
+        }
+        long tickNanos = 0;
+        for (long minute = 1; minute <= minutes; minute++) {
+            long start = System.nanoTime();
+            manager.elapseOneMinute();
+            tickNanos += System.nanoTime() - start;
+            if (snapshotEvery > 0 && minute % snapshotEvery == 0) {
+                BinarySnapshot.save(buildings, snapshotDirectory.resolve(
+                        "minute-" + minute + ".bin"));
+            }
+        }
+
+        double seconds = Math.max(tickNanos, 1) / 1e9;
+        out.printf("Simulated %d minutes in %d ms (%s)%n", minutes,
+                tickNanos / 1_000_000, manager.getTickMode());
+        out.printf("%.1f ticks/s%n", minutes / seconds);
+        out.printf("%.1f sensor updates/s%n",
+                minutes * countSensors(buildings) / seconds);
+        return tickNanos;
+    }
+
+    /**
+     * Counts the sensors in the given buildings.
+     *
+     * @param buildings buildings to count
+     * @return number of sensors
+     */
+    static long countSensors(List<Building> buildings) {
+        long sensors = 0;
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    sensors += room.getSensors().size();
+                }
+            }
+        }
+        return sensors;
+    }
+
+    /**
+     * Prints how to run the headless runner, and exits.
+     */
+    private static void usage() {
+        System.out.println("Usage: filename minutes [--mode SERIAL|PARALLEL|"
+                + "EVENT_DRIVEN] [--snapshot-every M] [--snapshot-dir D]");
+        System.exit(1);
+    }
+}
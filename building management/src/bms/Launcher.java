@@ -1,6 +1,7 @@
 package bms;
 
 import bms.building.BuildingInitialiser;
+import bms.building.ChangeJournal;
 import bms.display.View;
 import bms.display.ViewModel;
 import bms.exceptions.FileFormatException;
@@ -9,6 +10,7 @@ import javafx.application.Platform;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -16,21 +18,43 @@ import java.util.List;
  * @ass2_given
  */
 public class Launcher extends Application {
+    /**
+     * Directory autosaves are written to.
+     */
+    private static final String AUTOSAVE_DIRECTORY = "saves/autosave";
+
+    /**
+     * Number of autosaves kept.
+     */
+    private static final int AUTOSAVES_KEPT = 5;
+
+    /**
+     * Simulated minutes between autosaves.
+     */
+    private static final int AUTOSAVE_MINUTES = 60;
+
+    /**
+     * Most bytes per second written by autosaves.
+     */
+    private static final long AUTOSAVE_BYTES_PER_SECOND = 4 * 1024 * 1024;
 
     /**
      * Entry point to the GUI.
      * <p>
-     * Command line arguments: [filename]
+     * Command line arguments: [filename] [journal directory]
      * <p>
      * where <code>filename</code> is the path of the file containing the
-     * buildings to be displayed by the GUI.
+     * buildings to be displayed by the GUI, and the optional
+     * <code>journal directory</code> is where changes to the buildings are
+     * journalled. If the directory already holds a journal, the buildings
+     * are recovered from it instead of being loaded from the file.
      *
      * @param args command line arguments
      * @ass2_given
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: [filename]");
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: [filename] [journal directory]");
             System.out.println("You need to add a command line argument to your"
                     + " program in IntelliJ. Go to \"Run > Edit Configurations "
                     + "> Launcher > Program Arguments\" and add your file name "
@@ -52,10 +76,14 @@ public class Launcher extends Application {
 
         View view;
         try {
-            view = new View(stage, new ViewModel(
-                    BuildingInitialiser.loadBuildings(params.get(0))));
+            ViewModel viewModel = createViewModel(params);
+            viewModel.startAutosave(Path.of(AUTOSAVE_DIRECTORY),
+                    AUTOSAVES_KEPT, AUTOSAVE_BYTES_PER_SECOND)
+                    .saveEverySimulatedMinutes(AUTOSAVE_MINUTES);
+            view = new View(stage, viewModel);
         } catch (IOException | FileFormatException e) {
-            System.err.println("Error loading from file \"" + params.get(0)
+            System.err.println("Error loading from \""
+                    + String.join("\", \"", params)
                     + "\". Stack trace below:");
             e.printStackTrace();
             Platform.exit();
@@ -65,4 +93,34 @@ public class Launcher extends Application {
 
         view.run();
     }
+
+    /**
+     * Creates the view model for the buildings given by the command line
+     * arguments, journalling changes to them if a journal directory is
+     * given.
+     *
+     * @param params command line arguments
+     * @return view model of the buildings
+     * @throws IOException         if the file or journal could not be read,
+     *                             or a new journal could not be written
+     * @throws FileFormatException if the file or journal is invalid
+     */
+    private static ViewModel createViewModel(List<String> params)
+            throws IOException, FileFormatException {
+        if (params.size() == 1) {
+            return new ViewModel(
+                    BuildingInitialiser.loadBuildings(params.get(0)));
+        }
+        Path directory = Path.of(params.get(1));
+        ChangeJournal journal;
+        if (ChangeJournal.exists(directory)) {
+            journal = ChangeJournal.open(directory);
+        } else {
+            journal = ChangeJournal.create(directory,
+                    BuildingInitialiser.loadBuildings(params.get(0)));
+        }
+        ViewModel viewModel = new ViewModel(journal.getBuildings());
+        viewModel.setChangeJournal(journal);
+        return viewModel;
+    }
 }
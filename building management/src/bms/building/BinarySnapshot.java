@@ -0,0 +1,439 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and restores buildings in a compact binary format.
+ * <p>
+ * Unlike the text format written by {@link Building#encode()}, a snapshot
+ * holds numbers in binary, so it is quick to write and read back, and it
+ * also holds the state the model has built up while running: how many
+ * minutes each sensor has been running for, which rooms have a fire drill
+ * or maintenance in progress, and how far each maintenance schedule has
+ * got. A restored model carries on exactly where the saved one was.
+ * <p>
+ * A snapshot starts with {@link #MAGIC} and the format version. Version 1
+ * then holds the number of buildings, followed by each building:
+ * <pre>
+ * building: name (UTF), floor count, floors
+ * floor:    number, width, length (double), room count, rooms,
+ *           schedule flag, [room order count, room numbers,
+ *           current room index, elapsed time]
+ * room:     number, type ordinal (byte), area (double), fire drill,
+ *           maintenance, sensor count, sensors,
+ *           evaluator kind (byte), [weighting of each sensor]
+ * sensor:   kind (byte), update frequency, reading count, readings,
+ *           [ideal value, variation limit | capacity], time elapsed
+ * </pre>
+ * Numbers are ints unless stated, flags are booleans.
+ */
+public class BinarySnapshot {
+    /**
+     * First four bytes of every snapshot ("BMSS").
+     */
+    public static final int MAGIC = 0x424D5353;
+
+    /**
+     * Version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /* sensor kinds */
+    private static final int CARBON_DIOXIDE = 0;
+    private static final int NOISE = 1;
+    private static final int OCCUPANCY = 2;
+    private static final int TEMPERATURE = 3;
+
+    /* hazard evaluator kinds */
+    private static final int NO_EVALUATOR = 0;
+    private static final int RULE_BASED = 1;
+    private static final int WEIGHTING_BASED = 2;
+
+    /**
+     * Most readings a sensor's readings array is first made to hold, before
+     * as many readings as its saved count have actually been read.
+     */
+    private static final int FIRST_READINGS_CAPACITY = 1024;
+
+    /**
+     * Only static methods are provided.
+     */
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Saves the given buildings to a snapshot file, replacing the file if it
+     * exists.
+     *
+     * @param buildings buildings to save
+     * @param path      file to write
+     * @throws IOException              if the file could not be written
+     * @throws IllegalArgumentException if the model holds a sensor or
+     *                                  hazard evaluator that cannot be saved
+     */
+    public static void save(List<Building> buildings, Path path)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            write(buildings, out);
+        }
+    }
+
+    /**
+     * Restores the buildings saved in a snapshot file.
+     *
+     * @param path file to read
+     * @return buildings restored, in the order they were saved
+     * @throws IOException         if the file could not be read
+     * @throws FileFormatException if the file is not a valid snapshot
+     */
+    public static List<Building> load(Path path)
+            throws IOException, FileFormatException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given buildings.
+     * <p>
+     * Only the four sensor types in {@link bms.sensors}, and the two hazard
+     * evaluators in {@link bms.hazardevaluation}, can be saved. As in the
+     * text format, a rule-based evaluator is restored over all of its room's
+     * sensors.
+     *
+     * @param buildings buildings to write
+     * @param out       output to write to
+     * @throws IOException              if the output could not be written
+     * @throws IllegalArgumentException if the model holds a sensor or
+     *                                  hazard evaluator that cannot be saved
+     */
+    public static void write(List<Building> buildings, DataOutput out)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(buildings.size());
+        for (Building building : buildings) {
+            out.writeUTF(building.getName());
+            List<Floor> floors = building.getFloors();
+            out.writeInt(floors.size());
+            for (Floor floor : floors) {
+                writeFloor(floor, out);
+            }
+        }
+    }
+
+    /**
+     * Writes a floor, its rooms and its maintenance schedule.
+     *
+     * @param floor floor to write
+     * @param out   output to write to
+     * @throws IOException if the output could not be written
+     */
+    private static void writeFloor(Floor floor, DataOutput out)
+            throws IOException {
+        out.writeInt(floor.getFloorNumber());
+        out.writeDouble(floor.getWidth());
+        out.writeDouble(floor.getLength());
+        List<Room> rooms = floor.getRooms();
+        out.writeInt(rooms.size());
+        for (Room room : rooms) {
+            writeRoom(room, out);
+        }
+        MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+        out.writeBoolean(schedule != null);
+        if (schedule != null) {
+            List<Room> roomOrder = schedule.getRoomOrder();
+            out.writeInt(roomOrder.size());
+            for (Room room : roomOrder) {
+                out.writeInt(room.getRoomNumber());
+            }
+            out.writeInt(schedule.getCurrentRoomIndex());
+            out.writeInt(schedule.getTimeElapsedCurrentRoom());
+        }
+    }
+
+    /**
+     * Writes a room, its sensors and its hazard evaluator.
+     *
+     * @param room room to write
+     * @param out  output to write to
+     * @throws IOException if the output could not be written
+     */
+    private static void writeRoom(Room room, DataOutput out)
+            throws IOException {
+        out.writeInt(room.getRoomNumber());
+        out.writeByte(room.getType().ordinal());
+        out.writeDouble(room.getArea());
+        out.writeBoolean(room.fireDrillOngoing());
+        out.writeBoolean(room.maintenanceOngoing());
+        List<Sensor> sensors = room.getSensors();
+        out.writeInt(sensors.size());
+        for (Sensor sensor : sensors) {
+            writeSensor(sensor, out);
+        }
+        HazardEvaluator evaluator = room.getHazardEvaluator();
+        if (evaluator == null) {
+            out.writeByte(NO_EVALUATOR);
+        } else if (evaluator.getClass() == RuleBasedHazardEvaluator.class) {
+            out.writeByte(RULE_BASED);
+        } else if (evaluator.getClass()
+                == WeightingBasedHazardEvaluator.class) {
+            out.writeByte(WEIGHTING_BASED);
+            for (Sensor sensor : sensors) {
+                Integer weighting = sensor instanceof HazardSensor
+                        ? ((WeightingBasedHazardEvaluator) evaluator)
+                        .getWeighting((HazardSensor) sensor) : null;
+                out.writeInt(weighting == null ? -1 : weighting);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot save hazard evaluator "
+                    + "of type " + evaluator.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Writes a sensor, with its readings and time elapsed.
+     *
+     * @param sensor sensor to write
+     * @param out    output to write to
+     * @throws IOException if the output could not be written
+     */
+    private static void writeSensor(Sensor sensor, DataOutput out)
+            throws IOException {
+        Class<?> type = sensor.getClass();
+        int kind;
+        if (type == CarbonDioxideSensor.class) {
+            kind = CARBON_DIOXIDE;
+        } else if (type == NoiseSensor.class) {
+            kind = NOISE;
+        } else if (type == OccupancySensor.class) {
+            kind = OCCUPANCY;
+        } else if (type == TemperatureSensor.class) {
+            kind = TEMPERATURE;
+        } else {
+            throw new IllegalArgumentException("Cannot save sensor of type "
+                    + type.getSimpleName());
+        }
+        TimedSensor timedSensor = (TimedSensor) sensor;
+        out.writeByte(kind);
+        out.writeInt(timedSensor.getUpdateFrequency());
+        int[] readings = timedSensor.getSensorReadings();
+        out.writeInt(readings.length);
+        for (int reading : readings) {
+            out.writeInt(reading);
+        }
+        if (kind == CARBON_DIOXIDE) {
+            CarbonDioxideSensor carbonDioxideSensor =
+                    (CarbonDioxideSensor) sensor;
+            out.writeInt(carbonDioxideSensor.getIdealValue());
+            out.writeInt(carbonDioxideSensor.getVariationLimit());
+        } else if (kind == OCCUPANCY) {
+            out.writeInt(((OccupancySensor) sensor).getCapacity());
+        }
+        out.writeInt(timedSensor.getTimeElapsed());
+    }
+
+    /**
+     * Reads the buildings from a snapshot.
+     *
+     * @param in input to read from
+     * @return buildings restored, in the order they were saved
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the input is not a valid snapshot, is
+     *                             truncated, or holds an invalid model
+     */
+    public static List<Building> read(DataInput in)
+            throws IOException, FileFormatException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new FileFormatException("Not a building snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new FileFormatException("Unsupported snapshot version "
+                        + version);
+            }
+            ReadingSeriesInterner interner = new ReadingSeriesInterner();
+            int buildingCount = readCount(in);
+            List<Building> buildings = new ArrayList<>();
+            for (int i = 0; i < buildingCount; i++) {
+                Building building = new Building(in.readUTF());
+                int floorCount = readCount(in);
+                for (int j = 0; j < floorCount; j++) {
+                    building.addFloor(readFloor(in, interner));
+                }
+                buildings.add(building);
+            }
+            return buildings;
+        } catch (EOFException e) {
+            throw new FileFormatException("Snapshot is truncated", e);
+        } catch (FileFormatException | IOException e) {
+            throw e;
+        } catch (Exception e) {
+            // invalid values are rejected by the model itself
+            throw new FileFormatException("Invalid snapshot: " + e, e);
+        }
+    }
+
+    /**
+     * Reads a floor, its rooms and its maintenance schedule.
+     *
+     * @param in       input to read from
+     * @param interner interner shared by all sensors in the snapshot
+     * @return floor read
+     * @throws Exception if the input could not be read, or holds an invalid
+     *                   floor
+     */
+    private static Floor readFloor(DataInput in,
+                                   ReadingSeriesInterner interner)
+            throws Exception {
+        Floor floor = new Floor(in.readInt(), in.readDouble(),
+                in.readDouble());
+        int roomCount = readCount(in);
+        for (int i = 0; i < roomCount; i++) {
+            floor.addRoom(readRoom(in, interner));
+        }
+        if (in.readBoolean()) {
+            int orderCount = readCount(in);
+            List<Room> roomOrder = new ArrayList<>();
+            for (int i = 0; i < orderCount; i++) {
+                roomOrder.add(floor.getRoomByNumber(in.readInt()));
+            }
+            floor.createMaintenanceSchedule(roomOrder);
+            floor.getMaintenanceSchedule().resume(in.readInt(),
+                    in.readInt());
+        }
+        return floor;
+    }
+
+    /**
+     * Reads a room, its sensors and its hazard evaluator.
+     *
+     * @param in       input to read from
+     * @param interner interner shared by all sensors in the snapshot
+     * @return room read
+     * @throws Exception if the input could not be read, or holds an invalid
+     *                   room
+     */
+    private static Room readRoom(DataInput in,
+                                 ReadingSeriesInterner interner)
+            throws Exception {
+        int roomNumber = in.readInt();
+        int typeOrdinal = in.readUnsignedByte();
+        if (typeOrdinal >= RoomType.values().length) {
+            throw new FileFormatException("Unknown room type "
+                    + typeOrdinal);
+        }
+        Room room = new Room(roomNumber, RoomType.values()[typeOrdinal],
+                in.readDouble());
+        room.setFireDrill(in.readBoolean());
+        room.setMaintenance(in.readBoolean());
+        int sensorCount = readCount(in);
+        for (int i = 0; i < sensorCount; i++) {
+            room.addSensor(readSensor(in, interner));
+        }
+        List<Sensor> sensors = room.getSensors();
+        int evaluatorKind = in.readUnsignedByte();
+        if (evaluatorKind == RULE_BASED) {
+            List<HazardSensor> hazardSensors = new ArrayList<>();
+            for (Sensor sensor : sensors) {
+                hazardSensors.add((HazardSensor) sensor);
+            }
+            room.setHazardEvaluator(
+                    new RuleBasedHazardEvaluator(hazardSensors));
+        } else if (evaluatorKind == WEIGHTING_BASED) {
+            Map<HazardSensor, Integer> weightings = new HashMap<>();
+            for (Sensor sensor : sensors) {
+                int weighting = in.readInt();
+                if (weighting >= 0) {
+                    weightings.put((HazardSensor) sensor, weighting);
+                }
+            }
+            room.setHazardEvaluator(
+                    new WeightingBasedHazardEvaluator(weightings));
+        } else if (evaluatorKind != NO_EVALUATOR) {
+            throw new FileFormatException("Unknown hazard evaluator "
+                    + evaluatorKind);
+        }
+        return room;
+    }
+
+    /**
+     * Reads a sensor, and moves it forward to its saved time elapsed.
+     *
+     * @param in       input to read from
+     * @param interner interner sharing identical readings between sensors
+     * @return sensor read
+     * @throws Exception if the input could not be read, or holds an invalid
+     *                   sensor
+     */
+    private static TimedSensor readSensor(DataInput in,
+                                          ReadingSeriesInterner interner)
+            throws Exception {
+        int kind = in.readUnsignedByte();
+        int updateFrequency = in.readInt();
+        int readingCount = readCount(in);
+        // the array grows with the readings actually read, rather than
+        // trusting the count, so a corrupt count runs into the end of the
+        // input instead of running out of memory
+        int[] readings = new int[Math.min(readingCount,
+                FIRST_READINGS_CAPACITY)];
+        for (int i = 0; i < readingCount; i++) {
+            if (i == readings.length) {
+                readings = Arrays.copyOf(readings,
+                        (int) Math.min(readingCount, 2L * readings.length));
+            }
+            readings[i] = in.readInt();
+        }
+        ReadingSeries series = interner.intern(readings, readingCount);
+        TimedSensor sensor;
+        switch (kind) {
+            case CARBON_DIOXIDE -> sensor = new CarbonDioxideSensor(series,
+                    updateFrequency, in.readInt(), in.readInt());
+            case NOISE -> sensor = new NoiseSensor(series, updateFrequency);
+            case OCCUPANCY -> sensor = new OccupancySensor(series,
+                    updateFrequency, in.readInt());
+            case TEMPERATURE -> sensor = new TemperatureSensor(series);
+            default -> throw new FileFormatException("Unknown sensor type "
+                    + kind);
+        }
+        sensor.seekTo(in.readInt());
+        return sensor;
+    }
+
+    /**
+     * Reads a count of following items.
+     *
+     * @param in input to read from
+     * @return count read
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the count is negative
+     */
+    private static int readCount(DataInput in)
+            throws IOException, FileFormatException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new FileFormatException("Negative count " + count);
+        }
+        return count;
+    }
+}
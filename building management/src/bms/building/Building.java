@@ -9,6 +9,7 @@ import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -301,4 +302,22 @@ public class Building extends Object implements FireDrill, Encodable {
         return head.append(body).toString();
 
     }
+
+    /**
+     * Writes the machine-readable representation of this building, floor by
+     * floor, to the given output.
+     *
+     * @param out output to write to.
+     * @throws IOException if the output could not be written.
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append(name).append(System.lineSeparator())
+                .append(String.valueOf(floors.size()))
+                .append(System.lineSeparator());
+        for (Floor floor : floors) {
+            floor.encodeTo(out);
+            out.append(System.lineSeparator());
+        }
+    }
 }
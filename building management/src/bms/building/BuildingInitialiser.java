@@ -11,7 +11,13 @@ import bms.sensors.*;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * manages the initialisation and saving of buildings by reading and writing
@@ -39,36 +45,125 @@ public class BuildingInitialiser {
             FileFormatException {
 
         FileReader fr = new FileReader(filename);
-        List<Building> buildingList = new ArrayList<Building>();
-        BufferedReader br = new BufferedReader(fr);
-        String line = null;
-        List<String> list = new ArrayList<>();
-        try {
-            while ((line = br.readLine()) != null) {
-                if (line.equals("")) {
-                    throw new FileFormatException();
-                }
-                list.add(line);
-            }
-            br.close();
-            List<Integer> buildingNumber = new ArrayList();
-            buildingNumber.add(0);//first line is the first building
+        try (BufferedReader br = new BufferedReader(fr)) {
+            return loadBuildings(br);
+        }
+    }
 
-            for (int i = 1; i < list.size(); i++) {
-                if (isBuilding(list, i))//determine whether the line is building
-                {
-                    buildingNumber.add(i);
-                }
-            }
-            buildingNumber.add(list.size());
-            for (int i = 0; i + 1 < buildingNumber.size(); i += 1) {
-                List oneBuildingList = list.subList(buildingNumber.get(i),
-                        buildingNumber.get(i + 1));//the whole building.
-                buildingList.add(readBuilding(oneBuildingList));
-            }
+    /**
+     * Loads a list of buildings from a save file with the given filename,
+     * parsing the buildings, and the floors within each building, in
+     * parallel on the given pool.
+     * <p>
+     * The whole file is read into memory first. The buildings loaded, or
+     * the exception thrown, are the same as for
+     * {@link #loadBuildings(String)}.
+     *
+     * @param filename path of the file from which to load a list of buildings.
+     * @param pool     fork-join pool to parse the buildings on.
+     * @return a list containing all the buildings loaded from the file.
+     * @throws IOException         if an IOException is encountered when
+     * calling any IO methods.
+     * @throws FileFormatException if the file format of the given file is
+     * invalid.
+     */
+    public static List<Building> loadBuildings(String filename,
+                                               ForkJoinPool pool)
+            throws IOException, FileFormatException {
+        // decoded as FileReader would, so both loaders see the same text
+        String text = new String(Files.readAllBytes(Path.of(filename)),
+                Charset.defaultCharset());
+        return new ParallelBuildingLoader(pool).load(
+                new CharSequenceTokenizer(text));
+    }
+
+    /**
+     * Loads a list of buildings from the save file open in the given
+     * channel, by mapping the file into memory and parsing its bytes in
+     * place.
+     * <p>
+     * Nothing but the names in the file is decoded, so little memory is used
+     * beyond the model itself, however large the file is. Names are decoded
+     * with the default charset, as by {@link #loadBuildings(String)}. The
+     * channel is not closed.
+     *
+     * @param channel channel of the file from which to load a list of
+     *                buildings.
+     * @return a list containing all the buildings loaded from the file.
+     * @throws IOException         if the file could not be mapped.
+     * @throws FileFormatException if the file format of the given file is
+     * invalid.
+     */
+    public static List<Building> loadBuildings(FileChannel channel)
+            throws IOException, FileFormatException {
+        return loadBuildings(ByteBufferTokenizer.map(channel,
+                Charset.defaultCharset()));
+    }
+
+    /**
+     * Loads a list of buildings from the save file open in the given
+     * channel, by mapping the file into memory and parsing the buildings,
+     * and the floors within each building, in parallel on the given pool.
+     * <p>
+     * The buildings loaded, or the exception thrown, are the same as for
+     * {@link #loadBuildings(FileChannel)}. The channel is not closed.
+     *
+     * @param channel channel of the file from which to load a list of
+     *                buildings.
+     * @param pool    fork-join pool to parse the buildings on.
+     * @return a list containing all the buildings loaded from the file.
+     * @throws IOException         if the file could not be mapped.
+     * @throws FileFormatException if the file format of the given file is
+     * invalid.
+     */
+    public static List<Building> loadBuildings(FileChannel channel,
+                                               ForkJoinPool pool)
+            throws IOException, FileFormatException {
+        return new ParallelBuildingLoader(pool).load(ByteBufferTokenizer.map(
+                channel, Charset.defaultCharset()));
+    }
 
+    /**
+     * Loads a list of buildings in the save file format from the given
+     * reader.
+     * <p>
+     * The input is read in a single pass, using the floor, room and sensor
+     * counts in each header line to know what comes next. Only a small
+     * buffer of the input is held in memory, so large files load in linear
+     * time. The reader is not closed.
+     *
+     * @param reader reader from which to load a list of buildings.
+     * @return a list containing all the buildings loaded from the reader.
+     * @throws FileFormatException if the format of the input is invalid, or
+     * an IOException is encountered while reading it. The message gives the
+     * line and column at which the problem was found.
+     */
+    public static List<Building> loadBuildings(Reader reader)
+            throws FileFormatException {
+        return loadBuildings(new CharBufferTokenizer(reader));
+    }
+
+    /**
+     * Loads a list of buildings from the given tokenizer.
+     *
+     * @param tokens tokenizer of the save file.
+     * @return a list containing all the buildings loaded.
+     * @throws FileFormatException if the format of the input is invalid, or
+     * an IOException is encountered while reading it.
+     */
+    static List<Building> loadBuildings(SaveFileTokenizer tokens)
+            throws FileFormatException {
+        List<Building> buildingList = new ArrayList<>();
+        ReadingSeriesInterner interner = new ReadingSeriesInterner();
+        try {
+            while (!tokens.atEnd()) {
+                buildingList.add(readBuilding(tokens, interner));
+            }
+        } catch (FileFormatException e) {
+            throw e;
         } catch (Exception e) {
-            throw new FileFormatException();
+            // invalid values are rejected by the model itself
+            throw tokens.error(e);
         }
         return buildingList;
     }
@@ -76,7 +171,8 @@ public class BuildingInitialiser {
     /**
      * private help method to read a building.
      *
-     * @param buildingList list of building
+     * @param tokens   tokenizer positioned at the building's name.
+     * @param interner interner shared by all sensors read from the file
      * @return Building a building read by the file.
      * @throws IOException                if an IOException is encountered
      * when calling any IO methods.
@@ -93,33 +189,21 @@ public class BuildingInitialiser {
      * @throws FloorTooSmallException     when the floor too small than all
      * calculated rooms
      */
-    private static Building readBuilding(List<String> buildingList)
+    private static Building readBuilding(SaveFileTokenizer tokens,
+                                         ReadingSeriesInterner interner)
             throws IOException, FileFormatException,
             InsufficientSpaceException, DuplicateSensorException
             , DuplicateRoomException, DuplicateFloorException,
             NoFloorBelowException, FloorTooSmallException {
-        List<Integer> lines = new ArrayList();
-        String buildingName = buildingList.get(0);
-        int floorAmount = Integer.parseInt(buildingList.get(1));
-        lines.add(2);
-        for (int i = 3; i < buildingList.size(); i++) {
-            if (isLatterFloor(buildingList, i)) {
-                lines.add(i);
-            }
+        String buildingName = tokens.readLine();
+        int floorAmount = tokens.readInt();
+        if (floorAmount < 0) {
+            throw tokens.error("number of floors must not be negative");
         }
-        lines.add(buildingList.size());
+        tokens.endLine();
         Building building = new Building(buildingName);
-        //when building floor not equal to actual floor num.
-        if (lines.size() - floorAmount != 1) {
-            throw new FileFormatException();
-        }
-        for (int i = 0; i + 1 < lines.size(); i++) {
-            int left = lines.get(i), right = lines.get(i + 1);
-
-            Floor floor = readFloor(buildingList.subList(left, right));
-            building.addFloor(floor);
-
-
+        for (int i = 0; i < floorAmount; i++) {
+            building.addFloor(readFloor(tokens, interner));
         }
         return building;
 
@@ -128,7 +212,8 @@ public class BuildingInitialiser {
     /**
      * private method to read a floor.
      *
-     * @param list a list store the information of floor by read from file.
+     * @param tokens tokenizer positioned at the start of the floor.
+     * @param interner interner shared by all sensors read from the file.
      * @return Floor process into function what read by the file.
      * @throws IOException                if an IOException is encountered
      * when calling any IO methods.
@@ -139,59 +224,38 @@ public class BuildingInitialiser {
      * @throws InsufficientSpaceException when the space is not sufficient to
      * add rooms.
      */
-    private static Floor readFloor(List<String> list)
+    static Floor readFloor(SaveFileTokenizer tokens,
+                           ReadingSeriesInterner interner)
             throws IOException, FileFormatException, DuplicateSensorException
             , DuplicateRoomException, InsufficientSpaceException {
-        HashMap<String, Room> roomMap = new HashMap<>();
-        List<Integer> roomLines = new ArrayList<>();
-        roomLines.add(1);
-        LinkedList<String> roomNumList = new LinkedList();
-        String[] floorInfos = list.get(0).split(":");
-        if (floorInfos.length < 4) {
-            throw new FileFormatException();
+        HashMap<Integer, Room> roomMap = new HashMap<>();
+        List<Integer> roomNumList = new ArrayList<>();
+        int floorNumber = tokens.readInt();
+        tokens.expect(':');
+        double width = tokens.readDouble();
+        tokens.expect(':');
+        double height = tokens.readDouble();
+        tokens.expect(':');
+        int roomAmount = tokens.readInt();
+        if (roomAmount < 0) {
+            throw tokens.error("number of rooms must not be negative");
         }
-        if (floorInfos.length > 5) {
-            throw new FileFormatException();
+        if (tokens.skipIf(':')) {
+            do {
+                roomNumList.add(tokens.readInt());
+            } while (tokens.skipIf(','));
         }
-        if (floorInfos.length > 4) {
-            for (String roomNumber : floorInfos[4].split(",")) {
-                roomNumList.add(roomNumber);
-            }
-        }
-        int floorNumber = Integer.parseInt(floorInfos[0]);
-        double width = Double.parseDouble(floorInfos[1]);
-        double height = Double.parseDouble(floorInfos[2]);
-        int roomAmount = Integer.parseInt(floorInfos[3]);
+        tokens.endLine();
         Floor floor = new Floor(floorNumber, width, height);
-        for (int i = 2; i < list.size(); i++) {
-            if (roomSplit(list, i)) {
-                roomLines.add(i);
-            }
-        }
-        roomLines.add(list.size());
-        //floor can have no room.
-        if (roomAmount == 0) {
-            if (roomLines.size() != 2) {
-                throw new FileFormatException();
-            }
-        } else {
-            if (roomLines.size() - roomAmount != 1) {
-                throw new FileFormatException();
-            }
-        }
 
-        for (int i = 0; i + 1 < roomLines.size(); i++) {
-            int left = roomLines.get(i), right = roomLines.get(i + 1);
-            Room room = readRoom(list.subList(left, right));
-            if (room != null) {
-                roomMap.put("" + room.getRoomNumber(), room);
+        for (int i = 0; i < roomAmount; i++) {
+            Room room = readRoom(tokens, interner);
+            roomMap.put(room.getRoomNumber(), room);
 
-                floor.addRoom(room);
-
-            }
+            floor.addRoom(room);
         }
         List<Room> roomOrder = new LinkedList<>();
-        for (String maintainRoom : roomNumList) {
+        for (Integer maintainRoom : roomNumList) {
             roomOrder.add(roomMap.get(maintainRoom));
         }
         if (roomOrder.size() != 0) {
@@ -205,48 +269,53 @@ public class BuildingInitialiser {
     /**
      * read a room.
      *
-     * @param list list
+     * @param tokens tokenizer positioned at the start of the room.
+     * @param interner interner shared by all sensors read from the file.
      * @return Room
+     * @throws IOException              if an IOException is encountered
+     * when calling any IO methods.
      * @throws FileFormatException      if the file format of the given file
      * is invalid.
      * @throws DuplicateSensorException when two same sensors in a room.
      */
-    private static Room readRoom(List<String> list)
-            throws FileFormatException, DuplicateSensorException {
-        if (list.size() < 1) {
-            return null;
+    private static Room readRoom(SaveFileTokenizer tokens,
+                                 ReadingSeriesInterner interner)
+            throws IOException, FileFormatException,
+            DuplicateSensorException {
+        int roomNumber = tokens.readInt();
+        tokens.expect(':');
+        String typeName = tokens.readWord();
+        RoomType roomType;
+        try {
+            roomType = RoomType.valueOf(typeName);
+        } catch (IllegalArgumentException e) {
+            throw tokens.error("unknown room type " + typeName);
         }
-
-        String[] Roominfos = list.get(0).split(":");
-        if (Roominfos.length < 4) {
-            throw new FileFormatException();
+        tokens.expect(':');
+        double area = tokens.readDouble();
+        tokens.expect(':');
+        int sensorAmount = tokens.readInt();
+        if (sensorAmount < 0) {
+            throw tokens.error("number of sensors must not be negative");
         }
-        int sensorAmount = Integer.parseInt(Roominfos[3]);
-        Room room = new Room(Integer.parseInt(Roominfos[0]),
-                RoomType.valueOf(Roominfos[1])
-                , Double.parseDouble(Roominfos[2]));
         int flag = 0;
-        if (Roominfos.length > 5) {
-            throw new FileFormatException();
-        }
-        if (Roominfos.length == 5) {
-            String s = Roominfos[4];
+        if (tokens.skipIf(':')) {
+            String s = tokens.readWord();
             if (s.equals("RuleBased")) {
                 flag = 1;
             } else if (s.equals("WeightingBased")) {
                 flag = 2;
             } else {
-                throw new FileFormatException();
+                throw tokens.error("unknown hazard evaluator " + s);
             }
 
         }
+        tokens.endLine();
+        Room room = new Room(roomNumber, roomType, area);
         HashMap<HazardSensor, Integer> weightMap = new HashMap<>();
         List<HazardSensor> hazardSensors = new ArrayList<>();
-        if (list.size() - sensorAmount != 1) {
-            throw new FileFormatException();
-        }
-        for (int i = 1; i < list.size(); i++) {
-            Object[] objects = StringToSensor(list.get(i));
+        for (int i = 0; i < sensorAmount; i++) {
+            Object[] objects = readSensor(tokens, interner);
             Sensor sensor = (Sensor) objects[0];
             int weight = (Integer) objects[1];
 
@@ -268,158 +337,60 @@ public class BuildingInitialiser {
     }
 
     /**
-     * whether it is building.
+     * read a sensor.
      *
-     * @param list  string read by the file.
-     * @param index the index of the list.
-     * @return boolean if the string is a new building.
-     */
-    private static boolean isBuilding(List<String> list, int index) {
-        if (index + 1 < list.size()) {
-            String latter = list.get(index + 1);
-            return isLatter(latter);
-        }
-        return false;
-    }
-
-    /**
-     * whether the latter is a number.
-     *
-     * @param latter the string in the next line.
-     * @return boolean test whether the latter is number.
-     */
-    private static boolean isLatter(String latter) {
-        try {
-            Integer.parseInt(latter);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * whether it is a floor.
-     *
-     * @param list  building list.
-     * @param index index of the building list.
-     * @return boolean test if it is floor.
-     */
-    private static boolean isLatterFloor(List<String> list, int index) {
-        if (index + 1 < list.size()) {
-            String cur = list.get(index), latter = list.get(index + 1);
-            try {
-                int start = Integer.parseInt(cur.split(":")[0]);//1...
-                return latter.startsWith("" + start);
-            } catch (Exception e) {
-                return false;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * whether it is room.
-     *
-     * @param list  floor lists.
-     * @param index index of the list.
-     * @return boolean test the first index of room is num.
-     */
-    private static boolean roomSplit(List<String> list, int index) {
-        String current = list.get(index);
-        String[] rooms = current.split(":");
-        try {
-            Integer.parseInt(rooms[0]);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * change the string to sensor.
-     *
-     * @param str given str for all sensors.
-     * @return Object[]
+     * @param tokens tokenizer positioned at the start of the sensor.
+     * @param interner interner sharing identical readings between sensors.
+     * @return Object[] the sensor, and its weighting (-1 if none is given).
+     * @throws IOException         if an IOException is encountered when
+     * calling any IO methods.
      * @throws FileFormatException if the file format of the given file is
      * invalid.
      */
-    private static Object[] StringToSensor(String str) throws FileFormatException {
-        Sensor sensor = null;
+    static Object[] readSensor(SaveFileTokenizer tokens,
+                               ReadingSeriesInterner interner)
+            throws IOException, FileFormatException {
+        Sensor sensor;
         int weight = -1;
-        String[] sensorInfo = str.split(":");
-        String sensorName = sensorInfo[0];
-        List<Integer> readings = new ArrayList<>();
-        String[] readingNums = sensorInfo[1].split(",");
-        //where the temperature sensor has the reading with weight.
-        for (int i = 0; i < readingNums.length; i++) {
-            String element = readingNums[i];
-            if (sensorName.equals("TemperatureSensor") && i == readingNums.length - 1) {
-                String[] splitNums = element.split("@");
-                if (splitNums.length > 1) {
-                    weight = Integer.parseInt(splitNums[1]);
-                }
-                element = splitNums[0];
-            }
-            readings.add(Integer.parseInt(element));
-        }
-        int[] sensorReadings = new int[readings.size()];
-        for (int i = 0; i < sensorReadings.length; i++) {
-            sensorReadings[i] = readings.get(i);
-        }
+        String sensorName = tokens.readWord();
+        tokens.expect(':');
+        int readingCount = tokens.readInts(',');
+        ReadingSeries sensorReadings =
+                interner.intern(tokens.getInts(), readingCount);
         //different type of sensors.
         switch (sensorName) {
             case "CarbonDioxideSensor" -> {
-                if (sensorInfo.length != 5) {
-                    throw new FileFormatException();
-                }
-                String[] splitNums = sensorInfo[4].split("@");
-                if (splitNums.length > 1) {
-                    weight = Integer.parseInt(splitNums[1]);
-                }
-                CarbonDioxideSensor carbonDioxideSensor
-                        = new CarbonDioxideSensor(sensorReadings
-                        , Integer.parseInt(sensorInfo[2])
-                        , Integer.parseInt(sensorInfo[3])
-                        , Integer.parseInt(splitNums[0]));
-
-                sensor = carbonDioxideSensor;
+                tokens.expect(':');
+                int updateFrequency = tokens.readInt();
+                tokens.expect(':');
+                int idealValue = tokens.readInt();
+                tokens.expect(':');
+                int variationLimit = tokens.readInt();
+                sensor = new CarbonDioxideSensor(sensorReadings,
+                        updateFrequency, idealValue, variationLimit);
             }
             case "NoiseSensor" -> {
-                if (sensorInfo.length != 3) {
-                    throw new FileFormatException();
-                }
-                String[] splitNums = sensorInfo[2].split("@");
-                if (splitNums.length > 1) {
-                    weight = Integer.parseInt(splitNums[1]);
-                }
-                NoiseSensor noiseSensor = new NoiseSensor(
-                        sensorReadings, Integer.parseInt(splitNums[0]));
-                sensor = noiseSensor;
+                tokens.expect(':');
+                sensor = new NoiseSensor(sensorReadings, tokens.readInt());
             }
             case "OccupancySensor" -> {
-                if (sensorInfo.length != 4) {
-                    throw new FileFormatException();
-                }
-                String[] splitNums = sensorInfo[3].split("@");
-                if (splitNums.length > 1) {
-                    weight = Integer.parseInt(splitNums[1]);
-                }
-                OccupancySensor occupancySensor = new OccupancySensor
-                        (sensorReadings, Integer.parseInt(sensorInfo[2])
-                                , Integer.parseInt(splitNums[0]));
-                sensor = occupancySensor;
-            }
-            case "TemperatureSensor" -> {
-                if (sensorInfo.length != 2) {
-                    throw new FileFormatException();
-                }
-                TemperatureSensor temperatureSensor = new TemperatureSensor(
-                        sensorReadings);
-                sensor = temperatureSensor;
+                tokens.expect(':');
+                int updateFrequency = tokens.readInt();
+                tokens.expect(':');
+                int capacity = tokens.readInt();
+                sensor = new OccupancySensor(sensorReadings,
+                        updateFrequency, capacity);
             }
+            case "TemperatureSensor" -> sensor =
+                    new TemperatureSensor(sensorReadings);
             //when not fount, exception thrown.
-            default -> throw new FileFormatException();
+            default -> throw tokens.error("unknown sensor type "
+                    + sensorName);
+        }
+        if (tokens.skipIf('@')) {
+            weight = tokens.readInt();
         }
+        tokens.endLine();
         return new Object[]{sensor, weight};
     }
 
@@ -0,0 +1,143 @@
+package bms.building;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizes a save file in place, straight from the bytes of a
+ * memory-mapped file, without decoding it into characters first.
+ * <p>
+ * Every character the save format gives meaning to is ASCII, so bytes are
+ * handed to the tokenizer one at a time; only the text of names (and other
+ * words) is decoded with the file's charset. Columns in error messages
+ * therefore count bytes rather than characters.
+ * <p>
+ * A single buffer can map at most 2 GB, so larger files are mapped as a
+ * series of chunks.
+ */
+class ByteBufferTokenizer extends RandomAccessTokenizer {
+    /**
+     * Log base 2 of the size of each mapped chunk.
+     */
+    private static final int CHUNK_BITS = 30;
+
+    /**
+     * Buffers holding the input; each one except the last holds exactly
+     * {@code 1 << chunkBits} bytes.
+     */
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Log base 2 of the size of each chunk.
+     */
+    private final int chunkBits;
+
+    /**
+     * Charset used to decode names.
+     */
+    private final Charset charset;
+
+    /**
+     * Offset of the next byte.
+     */
+    private long position;
+
+    /**
+     * Offset just past the last byte to tokenize.
+     */
+    private final long end;
+
+    /**
+     * Creates a new tokenizer over a range of the given chunks.
+     *
+     * @param chunks    buffers holding the input, all but the last of
+     *                  size {@code 1 << chunkBits}
+     * @param chunkBits log base 2 of the size of each chunk
+     * @param charset   charset used to decode names
+     * @param start     offset of the first byte
+     * @param end       offset just past the last byte
+     * @param line      line number of the first byte
+     */
+    ByteBufferTokenizer(ByteBuffer[] chunks, int chunkBits, Charset charset,
+                        long start, long end, int line) {
+        super(line);
+        this.chunks = chunks;
+        this.chunkBits = chunkBits;
+        this.charset = charset;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Maps the whole of the given file into memory and creates a tokenizer
+     * over it. The mapping stays valid once the channel is closed.
+     *
+     * @param channel channel of the file to map
+     * @param charset charset used to decode names
+     * @return tokenizer positioned at the start of the file
+     * @throws IOException if the file could not be mapped
+     */
+    static ByteBufferTokenizer map(FileChannel channel, Charset charset)
+            throws IOException {
+        long size = channel.size();
+        long chunkSize = 1L << CHUNK_BITS;
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((size + chunkSize - 1)
+                >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            long offset = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(chunkSize, size - offset));
+        }
+        return new ByteBufferTokenizer(chunks, CHUNK_BITS, charset, 0, size,
+                1);
+    }
+
+    @Override
+    protected int peek() {
+        if (position >= end) {
+            return -1;
+        }
+        ByteBuffer chunk = chunks[(int) (position >>> chunkBits)];
+        return chunk.get((int) (position & ((1L << chunkBits) - 1))) & 0xFF;
+    }
+
+    @Override
+    protected void skip() {
+        if (position >= end) {
+            throw new IllegalStateException("No more characters");
+        }
+        position++;
+    }
+
+    @Override
+    protected String decode(CharSequence characters) {
+        for (int i = 0; i < characters.length(); i++) {
+            if (characters.charAt(i) >= 0x80) {
+                // each char holds one byte, so this recovers the bytes
+                byte[] bytes = characters.toString()
+                        .getBytes(StandardCharsets.ISO_8859_1);
+                return new String(bytes, charset);
+            }
+        }
+        return characters.toString();
+    }
+
+    @Override
+    long getOffset() {
+        return position;
+    }
+
+    @Override
+    long getLimit() {
+        return end;
+    }
+
+    @Override
+    RandomAccessTokenizer slice(long start, long end, int line) {
+        return new ByteBufferTokenizer(chunks, chunkBits, charset, start, end,
+                line);
+    }
+}
@@ -0,0 +1,916 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import bms.sensors.ReadingSeriesInterner;
+import bms.sensors.Sensor;
+import bms.util.Encodable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Records changes to the structure of a list of buildings in an
+ * append-only journal kept beside a snapshot of the buildings, so that
+ * saving a change costs only the change, not the whole model.
+ * <p>
+ * A journal lives in its own directory, which holds snapshots named
+ * <code>snapshot-S.bin</code> in the {@link BinarySnapshot} format, and the
+ * journal itself, <code>journal.log</code>. Each change is given the next sequence
+ * number and appended to the journal as one line:
+ * <pre>
+ * S:addBuilding:name
+ * S:addFloor:building:floor number:width:length
+ * S:addRoom:building:floor:room number:type:area
+ * S:addSensor:building:floor:room:encoded sensor
+ * S:setHazardEvaluator:building:floor:room:None|RuleBased
+ * S:setHazardEvaluator:building:floor:room:WeightingBased:weightings
+ * S:createMaintenanceSchedule:building:floor:room numbers
+ * S:renovateFloor:building:floor:width:length
+ * </pre>
+ * where <code>building</code> is the index of the building in the list,
+ * floors and rooms are given by number, and there is a weighting for each
+ * sensor of the room in order (-1 for a sensor without one). Snapshot S
+ * holds the buildings after every change up to and including change S, so
+ * the buildings are recovered by loading the newest snapshot and replaying
+ * the changes after it.
+ * <p>
+ * Each change is flushed to the journal as it is recorded, so it survives
+ * the application crashing; {@link #sync()} also forces it to the disk. A
+ * last line cut short by a crash is ignored when the journal is opened.
+ * {@link #compact(Lock)} writes a new snapshot and drops the
+ * changes it holds from the journal, so the journal stays short.
+ */
+public class ChangeJournal implements Closeable {
+    /**
+     * Name of the journal file within the directory.
+     */
+    private static final String JOURNAL = "journal.log";
+
+    /**
+     * Start of the name of each snapshot file.
+     */
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    /**
+     * End of the name of each snapshot file.
+     */
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    /**
+     * Directory holding the snapshots and journal.
+     */
+    private final Path directory;
+
+    /**
+     * Buildings whose changes are recorded.
+     */
+    private final List<Building> buildings;
+
+    /**
+     * Single thread on which background compactions run.
+     */
+    private final ExecutorService compactor;
+
+    /**
+     * Channel the journal is appended through; null once closed.
+     */
+    private FileChannel channel;
+
+    /**
+     * Writer encoding records onto the channel.
+     */
+    private Writer writer;
+
+    /**
+     * Sequence number of the last change recorded.
+     */
+    private int sequence;
+
+    /**
+     * Number of changes in the journal which are not in the newest
+     * snapshot.
+     */
+    private int recordCount;
+
+    /**
+     * Compaction started by {@link #compactInBackground(Lock)}
+     * which may not have finished; null if none has been started.
+     */
+    private Future<?> pendingCompaction;
+
+    /**
+     * Creates a journal appending to the journal file in the given
+     * directory.
+     *
+     * @param directory   directory holding the journal
+     * @param buildings   buildings whose changes are recorded
+     * @param sequence    sequence number of the last change recorded
+     * @param recordCount number of changes not in the newest snapshot
+     * @throws IOException if the journal file could not be opened
+     */
+    private ChangeJournal(Path directory, List<Building> buildings,
+                          int sequence, int recordCount) throws IOException {
+        this.directory = directory;
+        this.buildings = buildings;
+        this.sequence = sequence;
+        this.recordCount = recordCount;
+        this.compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "journal-compaction");
+            // an unfinished compaction leaves the journal usable
+            thread.setDaemon(true);
+            return thread;
+        });
+        openJournal();
+    }
+
+    /**
+     * Starts a new journal in the given directory for the given buildings,
+     * which are saved as its first snapshot. The directory is created if it
+     * does not exist.
+     *
+     * @param directory directory to hold the journal
+     * @param buildings buildings whose changes are to be recorded
+     * @return new journal, empty
+     * @throws IOException if the directory already holds a journal, or the
+     *                     snapshot or journal could not be written
+     */
+    public static ChangeJournal create(Path directory,
+                                       List<Building> buildings)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path journal = directory.resolve(JOURNAL);
+        if (Files.exists(journal)) {
+            throw new FileAlreadyExistsException(journal.toString());
+        }
+        writeSnapshot(directory, buildings, 0);
+        Files.createFile(journal);
+        return new ChangeJournal(directory, buildings, 0, 0);
+    }
+
+    /**
+     * Returns whether the given directory holds a journal.
+     *
+     * @param directory directory to look in
+     * @return true if {@link #open(Path)} can be used on the directory
+     */
+    public static boolean exists(Path directory) {
+        return Files.exists(directory.resolve(JOURNAL));
+    }
+
+    /**
+     * Opens the journal in the given directory, recovering the buildings
+     * from its newest snapshot and the changes recorded after it. The
+     * recovered buildings are returned by {@link #getBuildings()}.
+     * <p>
+     * A last line cut short when the application stopped is removed from
+     * the journal, so that later changes are appended after the last
+     * complete one.
+     *
+     * @param directory directory holding the journal
+     * @return journal to record further changes in
+     * @throws IOException         if the snapshot or journal could not be
+     *                             read
+     * @throws FileFormatException if the directory has no snapshot, or the
+     *                             snapshot or journal is invalid
+     */
+    public static ChangeJournal open(Path directory)
+            throws IOException, FileFormatException {
+        int snapshot = newestSnapshot(directory);
+        List<Building> buildings = BinarySnapshot.load(
+                snapshotPath(directory, snapshot));
+
+        Path journal = directory.resolve(JOURNAL);
+        byte[] bytes = Files.readAllBytes(journal);
+        int complete = bytes.length;
+        while (complete > 0 && bytes[complete - 1] != '\n') {
+            complete--;
+        }
+        if (complete < bytes.length) {
+            try (FileChannel truncate = FileChannel.open(journal,
+                    StandardOpenOption.WRITE)) {
+                truncate.truncate(complete);
+            }
+        }
+        String text = new String(bytes, 0, complete, StandardCharsets.UTF_8);
+        int[] replayed = replay(text, snapshot, buildings);
+        return new ChangeJournal(directory, buildings,
+                Math.max(replayed[0], snapshot), replayed[1]);
+    }
+
+    /**
+     * Returns the buildings whose changes this journal records: those given
+     * when it was created, or those recovered when it was opened.
+     *
+     * @return buildings of the journal
+     */
+    public List<Building> getBuildings() {
+        return buildings;
+    }
+
+    /**
+     * Returns the sequence number of the last change recorded.
+     *
+     * @return sequence number; 0 if no change has been recorded
+     */
+    public synchronized int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the number of changes recorded since the newest snapshot, ie.
+     * the number that would be replayed if the journal were opened now.
+     *
+     * @return number of changes in the journal
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Records that a building with the given name was added to the end of
+     * the list.
+     *
+     * @param name name of the building
+     * @throws IOException if the change could not be written
+     */
+    public void recordAddBuilding(String name) throws IOException {
+        append("addBuilding:" + name);
+    }
+
+    /**
+     * Records that the given floor was added to a building.
+     *
+     * @param building index of the building
+     * @param floor    floor added
+     * @throws IOException if the change could not be written
+     */
+    public void recordAddFloor(int building, Floor floor) throws IOException {
+        append("addFloor:" + building + ":" + floor.getFloorNumber() + ":"
+                + floor.getWidth() + ":" + floor.getLength());
+    }
+
+    /**
+     * Records that the given room, without sensors, was added to a floor.
+     *
+     * @param building index of the building
+     * @param floor    number of the floor
+     * @param room     room added
+     * @throws IOException if the change could not be written
+     */
+    public void recordAddRoom(int building, int floor, Room room)
+            throws IOException {
+        append("addRoom:" + building + ":" + floor + ":"
+                + room.getRoomNumber() + ":" + room.getType() + ":"
+                + room.getArea());
+    }
+
+    /**
+     * Records that the given sensor was added to a room.
+     *
+     * @param building index of the building
+     * @param floor    number of the floor
+     * @param room     number of the room
+     * @param sensor   sensor added
+     * @throws IOException if the change could not be written
+     */
+    public void recordAddSensor(int building, int floor, int room,
+                                Sensor sensor) throws IOException {
+        append("addSensor:" + building + ":" + floor + ":" + room + ":"
+                + ((Encodable) sensor).encode());
+    }
+
+    /**
+     * Records that the hazard evaluator of the given room was set to the
+     * one it now has.
+     * <p>
+     * As in the save formats, a rule-based evaluator is recorded as one
+     * over all of the room's sensors.
+     *
+     * @param building index of the building
+     * @param floor    number of the floor
+     * @param room     room whose evaluator was set
+     * @throws IOException              if the change could not be written
+     * @throws IllegalArgumentException if the room's evaluator is of a type
+     *                                  that cannot be recorded
+     */
+    public void recordSetHazardEvaluator(int building, int floor, Room room)
+            throws IOException {
+        HazardEvaluator evaluator = room.getHazardEvaluator();
+        StringBuilder record = new StringBuilder("setHazardEvaluator:")
+                .append(building).append(':').append(floor).append(':')
+                .append(room.getRoomNumber()).append(':');
+        if (evaluator == null) {
+            record.append("None");
+        } else if (evaluator instanceof RuleBasedHazardEvaluator) {
+            record.append("RuleBased");
+        } else if (evaluator instanceof WeightingBasedHazardEvaluator) {
+            record.append("WeightingBased:");
+            List<Sensor> sensors = room.getSensors();
+            for (int i = 0; i < sensors.size(); i++) {
+                Integer weighting = null;
+                if (sensors.get(i) instanceof HazardSensor) {
+                    weighting = ((WeightingBasedHazardEvaluator) evaluator)
+                            .getWeighting((HazardSensor) sensors.get(i));
+                }
+                if (i > 0) {
+                    record.append(',');
+                }
+                record.append(weighting == null ? -1 : weighting);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot record hazard "
+                    + "evaluator " + evaluator.getClass().getSimpleName());
+        }
+        append(record.toString());
+    }
+
+    /**
+     * Records that a maintenance schedule was created for a floor.
+     *
+     * @param building  index of the building
+     * @param floor     number of the floor
+     * @param roomOrder rooms of the schedule, in order
+     * @throws IOException if the change could not be written
+     */
+    public void recordCreateMaintenanceSchedule(int building, int floor,
+                                                List<Room> roomOrder)
+            throws IOException {
+        StringBuilder record = new StringBuilder("createMaintenanceSchedule:")
+                .append(building).append(':').append(floor).append(':');
+        for (int i = 0; i < roomOrder.size(); i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            record.append(roomOrder.get(i).getRoomNumber());
+        }
+        append(record.toString());
+    }
+
+    /**
+     * Records that a floor was renovated to the given dimensions.
+     *
+     * @param building index of the building
+     * @param floor    number of the floor
+     * @param width    new width of the floor
+     * @param length   new length of the floor
+     * @throws IOException if the change could not be written
+     */
+    public void recordRenovateFloor(int building, int floor, double width,
+                                    double length) throws IOException {
+        append("renovateFloor:" + building + ":" + floor + ":" + width + ":"
+                + length);
+    }
+
+    /**
+     * Forces every change recorded so far onto the disk, so that it
+     * survives the machine, not just the application, stopping.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public synchronized void sync() throws IOException {
+        ensureOpen();
+        writer.flush();
+        channel.force(false);
+    }
+
+    /**
+     * Writes a snapshot of the buildings, and removes the changes it holds
+     * from the journal and older snapshots from the directory.
+     * <p>
+     * The buildings are encoded into memory while holding the given lock,
+     * which must be held whenever the buildings are changed in any way,
+     * including by the simulation moving forward, and while a change is
+     * recorded. So the snapshot holds every sensor at the same minute. The
+     * lock is released before the snapshot is written to the disk, so
+     * changes can carry on being made and recorded while it is written.
+     *
+     * @param stateLock lock held while the buildings are changed
+     * @throws IOException if the snapshot or journal could not be written;
+     *                     the journal is left as it was
+     */
+    public void compact(Lock stateLock) throws IOException {
+        if (getRecordCount() == 0) {
+            return;
+        }
+        int snapshot;
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        stateLock.lock();
+        try {
+            snapshot = getSequence();
+            BinarySnapshot.write(buildings, new DataOutputStream(encoded));
+        } finally {
+            stateLock.unlock();
+        }
+
+        Path temporary = Files.createTempFile(directory, SNAPSHOT_PREFIX,
+                ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                encoded.writeTo(out);
+            }
+            publishSnapshot(directory, temporary, snapshot);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        dropRecordsUpTo(snapshot);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                int other = snapshotSequence(file);
+                if (other >= 0 && other < snapshot) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts compacting the journal, as by {@link #compact(Lock)},
+     * on a background thread, and returns straight away. Does nothing if a
+     * compaction started earlier has not finished yet.
+     *
+     * @param stateLock lock held while the buildings are changed
+     * @return future which completes once the compaction has finished, or
+     * throws the IOException which stopped it
+     */
+    public synchronized Future<?> compactInBackground(Lock stateLock) {
+        if (pendingCompaction == null || pendingCompaction.isDone()) {
+            pendingCompaction = compactor.submit(() -> {
+                compact(stateLock);
+                return null;
+            });
+        }
+        return pendingCompaction;
+    }
+
+    /**
+     * Closes the journal once any compaction already started has finished.
+     * Changes recorded so far are flushed, but not forced to the disk.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (channel != null) {
+                writer.close();
+                channel = null;
+                writer = null;
+            }
+        }
+    }
+
+    /**
+     * Appends a change to the journal with the next sequence number.
+     *
+     * @param record change, without its sequence number
+     * @throws IOException if the change could not be written
+     */
+    private synchronized void append(String record) throws IOException {
+        ensureOpen();
+        writer.write((sequence + 1) + ":" + record + "\n");
+        writer.flush();
+        sequence++;
+        recordCount++;
+    }
+
+    /**
+     * Rewrites the journal without the changes up to and including the
+     * given one, which are held by a snapshot.
+     *
+     * @param snapshot sequence number of the snapshot
+     * @throws IOException if the journal could not be rewritten
+     */
+    private synchronized void dropRecordsUpTo(int snapshot)
+            throws IOException {
+        ensureOpen();
+        writer.flush();
+        Path journal = directory.resolve(JOURNAL);
+        List<String> kept = new ArrayList<>();
+        for (String line : Files.readAllLines(journal,
+                StandardCharsets.UTF_8)) {
+            int separator = line.indexOf(':');
+            if (Integer.parseInt(line.substring(0, separator)) > snapshot) {
+                kept.add(line);
+            }
+        }
+        Path temporary = Files.createTempFile(directory, JOURNAL, ".tmp");
+        try {
+            Files.write(temporary, kept, StandardCharsets.UTF_8);
+            force(temporary);
+            writer.close();
+            channel = null;
+            try {
+                move(temporary, journal);
+            } finally {
+                openJournal();
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        recordCount = kept.size();
+    }
+
+    /**
+     * Opens the journal file for appending.
+     *
+     * @throws IOException if the file could not be opened
+     */
+    private void openJournal() throws IOException {
+        channel = FileChannel.open(directory.resolve(JOURNAL),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks the journal has not been closed.
+     *
+     * @throws IllegalStateException if the journal has been closed
+     */
+    private void ensureOpen() {
+        if (channel == null) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    /**
+     * Applies the changes in the given journal text which come after the
+     * given snapshot to the buildings loaded from the snapshot.
+     *
+     * @param text      complete lines of the journal
+     * @param snapshot  sequence number of the snapshot
+     * @param buildings buildings loaded from the snapshot
+     * @return the sequence number of the last change in the journal (0 if
+     * none), and the number of changes applied
+     * @throws FileFormatException if a line is invalid, or its change
+     *                             cannot be applied. The message gives the
+     *                             line and column of the error.
+     */
+    static int[] replay(CharSequence text, int snapshot,
+                        List<Building> buildings)
+            throws FileFormatException {
+        SaveFileTokenizer tokens = new CharSequenceTokenizer(text);
+        ReadingSeriesInterner interner = new ReadingSeriesInterner();
+        int last = 0;
+        int applied = 0;
+        try {
+            while (!tokens.atEnd()) {
+                int sequence = tokens.readInt();
+                if (sequence <= last) {
+                    throw tokens.error("sequence number " + sequence
+                            + " is not after " + last);
+                }
+                last = sequence;
+                tokens.expect(':');
+                if (sequence <= snapshot) {
+                    tokens.skipLine();
+                    continue;
+                }
+                try {
+                    apply(tokens, interner, buildings);
+                } catch (FileFormatException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw tokens.error(e);
+                }
+                applied++;
+            }
+        } catch (IOException e) {
+            // the text is in memory, so this cannot happen
+            throw tokens.error(e);
+        }
+        return new int[]{last, applied};
+    }
+
+    /**
+     * Applies the change on the current line.
+     *
+     * @param tokens    tokenizer positioned after the sequence number
+     * @param interner  interner sharing identical readings between sensors
+     * @param buildings buildings to change
+     * @throws Exception if the line is invalid, or the model rejects the
+     *                   change
+     */
+    private static void apply(SaveFileTokenizer tokens,
+                              ReadingSeriesInterner interner,
+                              List<Building> buildings) throws Exception {
+        String operation = tokens.readWord();
+        tokens.expect(':');
+        if (operation.equals("addBuilding")) {
+            buildings.add(new Building(tokens.readLine()));
+            return;
+        }
+        Building building = readBuilding(tokens, buildings);
+        int floorNumber = tokens.readInt();
+        tokens.expect(':');
+        switch (operation) {
+            case "addFloor" -> {
+                double width = tokens.readDouble();
+                tokens.expect(':');
+                double length = tokens.readDouble();
+                tokens.endLine();
+                building.addFloor(new Floor(floorNumber, width, length));
+            }
+            case "addRoom" -> {
+                Floor floor = readFloor(tokens, building, floorNumber);
+                int roomNumber = tokens.readInt();
+                tokens.expect(':');
+                RoomType type = RoomType.valueOf(tokens.readWord());
+                tokens.expect(':');
+                double area = tokens.readDouble();
+                tokens.endLine();
+                floor.addRoom(new Room(roomNumber, type, area));
+            }
+            case "addSensor" -> {
+                Room room = readRoom(tokens, building, floorNumber);
+                room.addSensor((Sensor) BuildingInitialiser.readSensor(
+                        tokens, interner)[0]);
+            }
+            case "setHazardEvaluator" -> {
+                Room room = readRoom(tokens, building, floorNumber);
+                setHazardEvaluator(tokens, room);
+            }
+            case "createMaintenanceSchedule" -> {
+                Floor floor = readFloor(tokens, building, floorNumber);
+                int count = tokens.readInts(',');
+                int[] roomNumbers = tokens.getInts();
+                tokens.endLine();
+                List<Room> roomOrder = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    roomOrder.add(floor.getRoomByNumber(roomNumbers[i]));
+                }
+                floor.createMaintenanceSchedule(roomOrder);
+            }
+            case "renovateFloor" -> {
+                double width = tokens.readDouble();
+                tokens.expect(':');
+                double length = tokens.readDouble();
+                tokens.endLine();
+                building.renovateFloor(floorNumber, width, length);
+            }
+            default -> throw tokens.error("unknown change " + operation);
+        }
+    }
+
+    /**
+     * Reads the evaluator of a setHazardEvaluator change and sets it.
+     *
+     * @param tokens tokenizer positioned at the evaluator type
+     * @param room   room whose evaluator is set
+     * @throws Exception if the line is invalid, or the model rejects the
+     *                   evaluator
+     */
+    private static void setHazardEvaluator(SaveFileTokenizer tokens,
+                                           Room room) throws Exception {
+        String type = tokens.readWord();
+        List<Sensor> sensors = room.getSensors();
+        switch (type) {
+            case "None" -> room.setHazardEvaluator(null);
+            case "RuleBased" -> {
+                List<HazardSensor> hazardSensors = new ArrayList<>();
+                for (Sensor sensor : sensors) {
+                    if (sensor instanceof HazardSensor) {
+                        hazardSensors.add((HazardSensor) sensor);
+                    }
+                }
+                room.setHazardEvaluator(
+                        new RuleBasedHazardEvaluator(hazardSensors));
+            }
+            case "WeightingBased" -> {
+                tokens.expect(':');
+                int count = tokens.readInts(',');
+                int[] weightings = tokens.getInts();
+                if (count != sensors.size()) {
+                    throw tokens.error("expected " + sensors.size()
+                            + " weightings but found " + count);
+                }
+                Map<HazardSensor, Integer> weightMap = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    if (weightings[i] >= 0) {
+                        weightMap.put((HazardSensor) sensors.get(i),
+                                weightings[i]);
+                    }
+                }
+                room.setHazardEvaluator(
+                        new WeightingBasedHazardEvaluator(weightMap));
+            }
+            default -> throw tokens.error("unknown hazard evaluator " + type);
+        }
+        tokens.endLine();
+    }
+
+    /**
+     * Reads a building index and the ':' after it.
+     *
+     * @param tokens    tokenizer positioned at the index
+     * @param buildings buildings being changed
+     * @return building with the index
+     * @throws Exception if there is no building with the index
+     */
+    private static Building readBuilding(SaveFileTokenizer tokens,
+                                         List<Building> buildings)
+            throws Exception {
+        int index = tokens.readInt();
+        if (index < 0 || index >= buildings.size()) {
+            throw tokens.error("no building with index " + index);
+        }
+        tokens.expect(':');
+        return buildings.get(index);
+    }
+
+    /**
+     * Looks up the floor with the given number, which has just been read.
+     *
+     * @param tokens      tokenizer positioned after the floor number
+     * @param building    building of the floor
+     * @param floorNumber number of the floor
+     * @return floor with the number
+     * @throws FileFormatException if there is no floor with the number
+     */
+    private static Floor readFloor(SaveFileTokenizer tokens,
+                                   Building building, int floorNumber)
+            throws FileFormatException {
+        Floor floor = building.getFloorByNumber(floorNumber);
+        if (floor == null) {
+            throw tokens.error("no floor " + floorNumber);
+        }
+        return floor;
+    }
+
+    /**
+     * Looks up the floor with the given number, then reads a room number
+     * and the ':' after it.
+     *
+     * @param tokens      tokenizer positioned after the floor number
+     * @param building    building of the room
+     * @param floorNumber number of the floor
+     * @return room with the number
+     * @throws Exception if there is no floor or room with the numbers
+     */
+    private static Room readRoom(SaveFileTokenizer tokens, Building building,
+                                 int floorNumber) throws Exception {
+        Floor floor = readFloor(tokens, building, floorNumber);
+        int roomNumber = tokens.readInt();
+        Room room = floor.getRoomByNumber(roomNumber);
+        if (room == null) {
+            throw tokens.error("no room " + roomNumber + " on floor "
+                    + floorNumber);
+        }
+        tokens.expect(':');
+        return room;
+    }
+
+    /**
+     * Writes a snapshot of the given buildings into the directory.
+     *
+     * @param directory directory to write to
+     * @param buildings buildings to save
+     * @param sequence  sequence number of the last change they hold
+     * @throws IOException if the snapshot could not be written
+     */
+    private static void writeSnapshot(Path directory,
+                                      List<Building> buildings,
+                                      int sequence) throws IOException {
+        Path temporary = Files.createTempFile(directory, SNAPSHOT_PREFIX,
+                ".tmp");
+        try {
+            BinarySnapshot.save(buildings, temporary);
+            publishSnapshot(directory, temporary, sequence);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Forces a snapshot which has been written to a temporary file onto the
+     * disk, then moves it into place.
+     *
+     * @param directory directory holding the journal
+     * @param temporary file holding the snapshot
+     * @param sequence  sequence number of the snapshot
+     * @throws IOException if the snapshot could not be forced or moved
+     */
+    private static void publishSnapshot(Path directory, Path temporary,
+                                        int sequence) throws IOException {
+        force(temporary);
+        move(temporary, snapshotPath(directory, sequence));
+    }
+
+    /**
+     * Returns the sequence number of the newest snapshot in the directory.
+     *
+     * @param directory directory holding the journal
+     * @return sequence number of the newest snapshot
+     * @throws IOException         if the directory could not be listed
+     * @throws FileFormatException if there is no snapshot
+     */
+    private static int newestSnapshot(Path directory)
+            throws IOException, FileFormatException {
+        int newest = -1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                newest = Math.max(newest, snapshotSequence(file));
+            }
+        }
+        if (newest < 0) {
+            throw new FileFormatException("No snapshot in " + directory);
+        }
+        return newest;
+    }
+
+    /**
+     * Returns the sequence number of a snapshot file.
+     *
+     * @param file file in the journal directory
+     * @return sequence number; -1 if the file is not a snapshot
+     */
+    private static int snapshotSequence(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SNAPSHOT_PREFIX)
+                || !name.endsWith(SNAPSHOT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(SNAPSHOT_PREFIX.length(),
+                    name.length() - SNAPSHOT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the path of the snapshot with the given sequence number.
+     *
+     * @param directory directory holding the journal
+     * @param sequence  sequence number of the snapshot
+     * @return path of the snapshot file
+     */
+    private static Path snapshotPath(Path directory, int sequence) {
+        return directory.resolve(SNAPSHOT_PREFIX + sequence
+                + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Forces the contents of a file onto the disk.
+     *
+     * @param file file to force
+     * @throws IOException if the file could not be forced
+     */
+    private static void force(Path file) throws IOException {
+        try (FileChannel forced = FileChannel.open(file,
+                StandardOpenOption.WRITE)) {
+            forced.force(true);
+        }
+    }
+
+    /**
+     * Moves a file over another, atomically if the file system allows.
+     *
+     * @param source file to move
+     * @param target file to replace
+     * @throws IOException if the file could not be moved
+     */
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package bms.building;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Tokenizes save file text read from a Reader, through a fixed-size
+ * CharBuffer that is refilled as it is consumed, so memory use does not
+ * depend on the size of the input.
+ */
+class CharBufferTokenizer extends SaveFileTokenizer {
+    /**
+     * Number of characters read from the reader at a time.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Reader supplying the text.
+     */
+    private final Reader reader;
+
+    /**
+     * Characters read but not yet consumed.
+     */
+    private final CharBuffer buffer;
+
+    /**
+     * Whether the reader has been exhausted.
+     */
+    private boolean exhausted;
+
+    /**
+     * Creates a new tokenizer reading from the given reader.
+     *
+     * @param reader reader supplying the text
+     */
+    CharBufferTokenizer(Reader reader) {
+        this.reader = reader;
+        this.buffer = CharBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    @Override
+    protected int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position());
+    }
+
+    @Override
+    protected void skip() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            throw new IllegalStateException("No more characters");
+        }
+        buffer.position(buffer.position() + 1);
+    }
+
+    /**
+     * Refills the empty buffer from the reader.
+     *
+     * @return false if the reader is exhausted
+     * @throws IOException if the reader could not be read
+     */
+    private boolean fill() throws IOException {
+        while (!exhausted) {
+            buffer.clear();
+            int read = reader.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                exhausted = true;
+            } else if (read > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package bms.building;
+
+/**
+ * Tokenizes save file text which is already held in memory.
+ */
+class CharSequenceTokenizer extends RandomAccessTokenizer {
+    /**
+     * Text being tokenized.
+     */
+    private final CharSequence text;
+
+    /**
+     * Index of the next character.
+     */
+    private int position;
+
+    /**
+     * Index just past the last character to tokenize.
+     */
+    private final int end;
+
+    /**
+     * Creates a new tokenizer over the whole of the given text.
+     *
+     * @param text text to tokenize
+     */
+    CharSequenceTokenizer(CharSequence text) {
+        this(text, 0, text.length(), 1);
+    }
+
+    /**
+     * Creates a new tokenizer over a range of the given text.
+     *
+     * @param text  text to tokenize
+     * @param start index of the first character
+     * @param end   index just past the last character
+     * @param line  line number of the first character
+     */
+    CharSequenceTokenizer(CharSequence text, int start, int end, int line) {
+        super(line);
+        this.text = text;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    protected int peek() {
+        return position < end ? text.charAt(position) : -1;
+    }
+
+    @Override
+    protected void skip() {
+        if (position >= end) {
+            throw new IllegalStateException("No more characters");
+        }
+        position++;
+    }
+
+    @Override
+    long getOffset() {
+        return position;
+    }
+
+    @Override
+    long getLimit() {
+        return end;
+    }
+
+    @Override
+    RandomAccessTokenizer slice(long start, long end, int line) {
+        return new CharSequenceTokenizer(text, (int) start, (int) end, line);
+    }
+}
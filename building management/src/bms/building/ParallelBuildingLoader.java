@@ -0,0 +1,296 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.ReadingSeriesInterner;
+import bms.sensors.Sensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the buildings in a save file in parallel.
+ * <p>
+ * A first pass over the file only reads the floor, room and sensor counts,
+ * to find where each building and floor starts. Every floor is then parsed
+ * on its own worker. Once a building's floors have been parsed, they are
+ * added to the building in file order, so the checks made by
+ * {@link Building#addFloor(Floor)} see the same floors as they would in a
+ * serial load.
+ * <p>
+ * The buildings loaded are the same as those loaded by
+ * {@link BuildingInitialiser#loadBuildings(java.io.Reader)}, and an invalid
+ * file fails with the same exception: the first error in file order wins,
+ * and if the first pass cannot make sense of the counts, the whole file is
+ * loaded serially instead.
+ * <p>
+ * Once a floor has failed, floors later in the file are no longer parsed,
+ * and when the load fails, the sensors of every floor it did parse are
+ * unregistered from the {@link TimedItemManager}, so a failed load leaves
+ * no more timed items behind than a serial one.
+ */
+class ParallelBuildingLoader {
+    /**
+     * Pool used to parse the buildings and floors.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new loader which parses on the given pool.
+     *
+     * @param pool fork-join pool to parse the buildings on
+     */
+    ParallelBuildingLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Loads a list of buildings from all of the given tokenizer's input.
+     *
+     * @param tokens tokenizer positioned at the start of the file
+     * @return a list containing all the buildings loaded, in file order
+     * @throws FileFormatException if the format of the input is invalid, or
+     * an IOException is encountered while reading it
+     */
+    List<Building> load(RandomAccessTokenizer tokens)
+            throws FileFormatException {
+        RandomAccessTokenizer whole = tokens.slice(tokens.getOffset(),
+                tokens.getLimit(), tokens.getLine());
+        ReadingSeriesInterner interner = new ReadingSeriesInterner();
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        List<BuildingTask> buildingTasks = new ArrayList<>();
+        int floorCount = 0;
+        try {
+            while (!tokens.atEnd()) {
+                BuildingTask buildingTask = scanBuilding(tokens, interner,
+                        floorCount, firstFailure);
+                floorCount += buildingTask.floorTasks.size();
+                buildingTasks.add(buildingTask);
+            }
+        } catch (IOException | FileFormatException e) {
+            // the serial loader reports this, after any earlier errors
+            return BuildingInitialiser.loadBuildings(whole);
+        }
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(buildingTasks);
+            }
+        });
+        List<Building> buildings = new ArrayList<>();
+        for (BuildingTask buildingTask : buildingTasks) {
+            if (buildingTask.failure != null) {
+                unregisterSensors(buildingTasks);
+                throw buildingTask.failure;
+            }
+            buildings.add(buildingTask.getRawResult());
+        }
+        return buildings;
+    }
+
+    /**
+     * Unregisters the sensors of every floor parsed by the given tasks, as
+     * none of them will be simulated once the load has failed.
+     *
+     * @param buildingTasks tasks of a failed load
+     */
+    private static void unregisterSensors(List<BuildingTask> buildingTasks) {
+        List<TimedItem> timedItems = new ArrayList<>();
+        for (BuildingTask buildingTask : buildingTasks) {
+            for (FloorTask floorTask : buildingTask.floorTasks) {
+                Floor floor = floorTask.getRawResult();
+                if (floor == null) {
+                    continue;
+                }
+                for (Room room : floor.getRooms()) {
+                    for (Sensor sensor : room.getSensors()) {
+                        if (sensor instanceof TimedItem) {
+                            timedItems.add((TimedItem) sensor);
+                        }
+                    }
+                }
+            }
+        }
+        TimedItemManager.getInstance().unregisterTimedItems(timedItems);
+    }
+
+    /**
+     * Finds the floors of the building at the tokenizer's position, and
+     * moves the tokenizer past them.
+     *
+     * @param tokens          tokenizer positioned at the building's name
+     * @param interner        interner shared by all sensors read from the
+     *                        file
+     * @param firstFloorIndex position in the file of the building's first
+     *                        floor, counting every floor of the buildings
+     *                        before it
+     * @param firstFailure    position in the file of the first floor to
+     *                        fail so far, shared by every floor
+     * @return task which parses the building
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if any count could not be read
+     */
+    private static BuildingTask scanBuilding(RandomAccessTokenizer tokens,
+                                             ReadingSeriesInterner interner,
+                                             int firstFloorIndex,
+                                             AtomicInteger firstFailure)
+            throws IOException, FileFormatException {
+        String buildingName = tokens.readLine();
+        int floorAmount = readCount(tokens);
+        tokens.endLine();
+        List<FloorTask> floorTasks = new ArrayList<>();
+        for (int i = 0; i < floorAmount; i++) {
+            long start = tokens.getOffset();
+            int line = tokens.getLine();
+            tokens.skipFields(3);
+            int roomAmount = readCount(tokens);
+            tokens.skipLine();
+            for (int j = 0; j < roomAmount; j++) {
+                tokens.skipFields(3);
+                int sensorAmount = readCount(tokens);
+                tokens.skipLine();
+                for (int k = 0; k < sensorAmount; k++) {
+                    tokens.skipLine();
+                }
+            }
+            floorTasks.add(new FloorTask(tokens.slice(start,
+                    tokens.getOffset(), line), interner,
+                    firstFloorIndex + i, firstFailure));
+        }
+        return new BuildingTask(buildingName, floorTasks);
+    }
+
+    /**
+     * Reads a floor, room or sensor count.
+     *
+     * @param tokens tokenizer positioned at the count
+     * @return count read
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the count is invalid
+     */
+    private static int readCount(SaveFileTokenizer tokens)
+            throws IOException, FileFormatException {
+        int count = tokens.readInt();
+        if (count < 0) {
+            throw tokens.error("count must not be negative");
+        }
+        return count;
+    }
+
+    /**
+     * Parses the floors of a building, then adds them to the building in
+     * file order.
+     */
+    private static class BuildingTask extends RecursiveTask<Building> {
+        private static final long serialVersionUID = 1L;
+
+        private final String buildingName;
+        private final List<FloorTask> floorTasks;
+
+        /**
+         * First error met while loading the building; null if none.
+         */
+        private FileFormatException failure;
+
+        BuildingTask(String buildingName, List<FloorTask> floorTasks) {
+            this.buildingName = buildingName;
+            this.floorTasks = floorTasks;
+        }
+
+        @Override
+        protected Building compute() {
+            invokeAll(floorTasks);
+            Building building = new Building(buildingName);
+            for (FloorTask floorTask : floorTasks) {
+                if (floorTask.failure != null) {
+                    failure = floorTask.failure;
+                    return null;
+                }
+                if (floorTask.getRawResult() == null) {
+                    // skipped, as an earlier floor in the file failed
+                    return null;
+                }
+                try {
+                    building.addFloor(floorTask.getRawResult());
+                } catch (Exception e) {
+                    // reported just after the floor, as in a serial load
+                    failure = floorTask.tokens.error(e);
+                    floorTask.failed();
+                    return null;
+                }
+            }
+            return building;
+        }
+    }
+
+    /**
+     * Parses one floor, with its rooms and sensors.
+     */
+    private static class FloorTask extends RecursiveTask<Floor> {
+        private static final long serialVersionUID = 1L;
+
+        private final RandomAccessTokenizer tokens;
+        private final ReadingSeriesInterner interner;
+
+        /**
+         * Position of the floor in the file, counting every floor of the
+         * buildings before it.
+         */
+        private final int index;
+
+        /**
+         * Position in the file of the first floor to fail so far, shared by
+         * every floor; {@link Integer#MAX_VALUE} if none has.
+         */
+        private final AtomicInteger firstFailure;
+
+        /**
+         * Error met while parsing the floor; null if none.
+         */
+        private FileFormatException failure;
+
+        FloorTask(RandomAccessTokenizer tokens,
+                  ReadingSeriesInterner interner, int index,
+                  AtomicInteger firstFailure) {
+            this.tokens = tokens;
+            this.interner = interner;
+            this.index = index;
+            this.firstFailure = firstFailure;
+        }
+
+        @Override
+        protected Floor compute() {
+            if (firstFailure.get() < index) {
+                // the load has already failed, so the floor would be thrown
+                // away, leaving its sensors registered
+                return null;
+            }
+            try {
+                return BuildingInitialiser.readFloor(tokens, interner);
+            } catch (FileFormatException e) {
+                failure = e;
+            } catch (Exception e) {
+                failure = tokens.error(e);
+            }
+            failed();
+            return null;
+        }
+
+        /**
+         * Records that the load has failed at this floor, so floors later
+         * in the file need not be parsed.
+         */
+        private void failed() {
+            firstFailure.accumulateAndGet(index, Math::min);
+        }
+    }
+}
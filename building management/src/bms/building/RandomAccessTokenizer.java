@@ -0,0 +1,45 @@
+package bms.building;
+
+/**
+ * A tokenizer over input that is held in full, so that its position can be
+ * read and any range of it can be tokenized on its own.
+ * <p>
+ * This lets a loader find where each part of a save file starts with a
+ * quick first pass, then hand the parts to separate threads.
+ */
+abstract class RandomAccessTokenizer extends SaveFileTokenizer {
+    /**
+     * Creates a new tokenizer positioned at the start of the given line.
+     *
+     * @param line line number of the first character
+     */
+    protected RandomAccessTokenizer(int line) {
+        super(line);
+    }
+
+    /**
+     * Returns the offset of the next character in the underlying input.
+     *
+     * @return offset of the next character
+     */
+    abstract long getOffset();
+
+    /**
+     * Returns the offset just past the last character of this tokenizer's
+     * input.
+     *
+     * @return end offset of the input
+     */
+    abstract long getLimit();
+
+    /**
+     * Creates a new tokenizer over a range of the same underlying input.
+     * This tokenizer's position is not changed.
+     *
+     * @param start offset of the first character, at the start of a line
+     * @param end   offset just past the last character
+     * @param line  line number of the first character
+     * @return tokenizer over the range
+     */
+    abstract RandomAccessTokenizer slice(long start, long end, int line);
+}
@@ -0,0 +1,469 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+
+import java.io.IOException;
+
+/**
+ * Splits the text of a save file into the tokens of the save format,
+ * parsing numbers in place without creating substrings or throwing
+ * exceptions on the way.
+ * <p>
+ * Subclasses supply the characters of the file one at a time. The tokenizer
+ * keeps track of the line and column of the next character, which are
+ * included in the message of any FileFormatException it creates.
+ */
+abstract class SaveFileTokenizer {
+    /**
+     * Powers of ten which are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Largest number of digits for which the mantissa of a decimal is
+     * exactly representable as a double.
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+
+    /**
+     * Line number of the next character, starting from 1.
+     */
+    private int line;
+
+    /**
+     * Column number of the next character, starting from 1.
+     */
+    private int column = 1;
+
+    /**
+     * Integers read by the last call to {@link #readInts(char)}.
+     */
+    private int[] ints = new int[64];
+
+    /**
+     * Reused buffer for the text of a token.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Creates a new tokenizer positioned at the start of the first line.
+     */
+    protected SaveFileTokenizer() {
+        this(1);
+    }
+
+    /**
+     * Creates a new tokenizer positioned at the start of the given line, for
+     * input taken from the middle of a file.
+     *
+     * @param line line number of the first character
+     */
+    protected SaveFileTokenizer(int line) {
+        this.line = line;
+    }
+
+    /**
+     * Returns the next character, without consuming it.
+     *
+     * @return next character; -1 at the end of the input
+     * @throws IOException if the input could not be read
+     */
+    protected abstract int peek() throws IOException;
+
+    /**
+     * Consumes the next character. Must not be called at the end of the
+     * input.
+     *
+     * @throws IOException if the input could not be read
+     */
+    protected abstract void skip() throws IOException;
+
+    /**
+     * Returns the line number of the next character.
+     *
+     * @return line number, starting from 1
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column number of the next character.
+     *
+     * @return column number, starting from 1
+     */
+    int getColumn() {
+        return column;
+    }
+
+    /**
+     * Creates an exception describing a format error at the current
+     * position.
+     *
+     * @param message description of the error
+     * @return exception to throw
+     */
+    FileFormatException error(String message) {
+        return new FileFormatException("line " + line + ", column " + column
+                + ": " + message);
+    }
+
+    /**
+     * Creates an exception for an error found by the model while reading
+     * the tokens just before the current position.
+     *
+     * @param cause exception thrown by the model
+     * @return exception to throw
+     */
+    FileFormatException error(Exception cause) {
+        return new FileFormatException("line " + line + ", column " + column
+                + ": " + cause, cause);
+    }
+
+    /**
+     * Returns whether all of the input has been consumed.
+     *
+     * @return true if at the end of the input
+     * @throws IOException if the input could not be read
+     */
+    boolean atEnd() throws IOException {
+        return peek() < 0;
+    }
+
+    /**
+     * Returns whether the next character ends the current line, or the
+     * input is exhausted.
+     *
+     * @return true if at the end of a line
+     * @throws IOException if the input could not be read
+     */
+    boolean atLineEnd() throws IOException {
+        int c = peek();
+        return c < 0 || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Consumes the end of the current line ("\n", "\r\n" or "\r"). The end of
+     * the input also ends the line.
+     *
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the line has more characters
+     */
+    void endLine() throws IOException, FileFormatException {
+        int c = peek();
+        if (c < 0) {
+            return;
+        }
+        if (c == '\r') {
+            skip();
+            c = peek();
+        } else if (c != '\n') {
+            throw error("expected end of line but found '" + (char) c + "'");
+        }
+        if (c == '\n') {
+            skip();
+        }
+        line++;
+        column = 1;
+    }
+
+    /**
+     * Consumes the rest of the current line without looking at it, and the
+     * line end.
+     *
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the input has already been consumed
+     */
+    void skipLine() throws IOException, FileFormatException {
+        if (atEnd()) {
+            throw error("expected a line but found the end of the file");
+        }
+        while (!atLineEnd()) {
+            advance();
+        }
+        endLine();
+    }
+
+    /**
+     * Consumes the given number of ':' separated fields without looking at
+     * them, leaving the tokenizer at the start of the next field.
+     *
+     * @param count number of fields to skip
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the line has fewer fields
+     */
+    void skipFields(int count) throws IOException, FileFormatException {
+        for (int i = 0; i < count; i++) {
+            while (peek() != ':') {
+                if (atLineEnd()) {
+                    throw error("expected ':'");
+                }
+                advance();
+            }
+            advance();
+        }
+    }
+
+    /**
+     * Consumes the given character.
+     *
+     * @param expected character to consume
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the next character is different
+     */
+    void expect(char expected) throws IOException, FileFormatException {
+        if (!skipIf(expected)) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * Consumes the given character if it is next.
+     *
+     * @param expected character to consume
+     * @return true if the character was consumed
+     * @throws IOException if the input could not be read
+     */
+    boolean skipIf(char expected) throws IOException {
+        if (peek() == expected) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the rest of the current line, and consumes the line end.
+     *
+     * @return text of the rest of the line
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the rest of the line is empty
+     */
+    String readLine() throws IOException, FileFormatException {
+        text.setLength(0);
+        while (!atLineEnd()) {
+            text.append((char) peek());
+            advance();
+        }
+        if (text.length() == 0) {
+            throw error("expected text but found an empty line");
+        }
+        String result = decode(text);
+        endLine();
+        return result;
+    }
+
+    /**
+     * Reads a word, which ends at the next ':', ',' or '@', or the end of
+     * the line.
+     *
+     * @return text of the word
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the word is empty
+     */
+    String readWord() throws IOException, FileFormatException {
+        text.setLength(0);
+        while (!atDelimiter()) {
+            text.append((char) peek());
+            advance();
+        }
+        if (text.length() == 0) {
+            throw error("expected a word");
+        }
+        return decode(text);
+    }
+
+    /**
+     * Turns the characters supplied by {@link #peek()} for a line or word
+     * into its text. Subclasses that supply undecoded bytes decode them
+     * here.
+     *
+     * @param characters characters of the line or word
+     * @return text of the line or word
+     */
+    protected String decode(CharSequence characters) {
+        return characters.toString();
+    }
+
+    /**
+     * Reads a decimal integer, with an optional sign.
+     *
+     * @return value of the integer
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if there is no integer next, or it does
+     *                             not fit in an int
+     */
+    int readInt() throws IOException, FileFormatException {
+        boolean negative = false;
+        int c = peek();
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            advance();
+            c = peek();
+        }
+        if (c < '0' || c > '9') {
+            throw error("expected an integer");
+        }
+        long value = 0;
+        do {
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw error("integer is too large");
+            }
+            advance();
+            c = peek();
+        } while (c >= '0' && c <= '9');
+        if (!negative && value > Integer.MAX_VALUE) {
+            throw error("integer is too large");
+        }
+        if (!atDelimiter()) {
+            throw error("expected an integer");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Reads one or more integers separated by the given character. The
+     * integers are stored in {@link #getInts()}, which is only valid until
+     * the next call.
+     * <p>
+     * Separators after the last integer are skipped, as splitting the list
+     * with {@link String#split(String)} would drop the empty fields they
+     * leave; an empty field between two integers is still an error.
+     *
+     * @param separator character between the integers
+     * @return number of integers read
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if any integer could not be read
+     */
+    int readInts(char separator) throws IOException, FileFormatException {
+        int count = 0;
+        do {
+            if (count == ints.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(ints, 0, grown, 0, count);
+                ints = grown;
+            }
+            ints[count++] = readInt();
+        } while (skipIf(separator) && !skipTrailing(separator));
+        return count;
+    }
+
+    /**
+     * Called after a separator in a list of integers. Skips any further
+     * separators if they, and the one before them, end the list.
+     *
+     * @param separator character between the integers
+     * @return whether the list has ended
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if the separators are followed by another
+     *                             integer, leaving an empty field before it
+     */
+    private boolean skipTrailing(char separator) throws IOException,
+            FileFormatException {
+        if (!atDelimiter()) {
+            return false;
+        }
+        while (skipIf(separator)) {
+            // skip each trailing separator
+        }
+        if (!atDelimiter()) {
+            throw error("expected an integer");
+        }
+        return true;
+    }
+
+    /**
+     * Returns the integers read by the last call to {@link #readInts(char)}.
+     *
+     * @return buffer holding the integers at its start
+     */
+    int[] getInts() {
+        return ints;
+    }
+
+    /**
+     * Reads a decimal number.
+     * <p>
+     * Plain decimals of up to 15 digits are parsed directly. Anything else
+     * is parsed by {@link Double#parseDouble(String)}, so every number it
+     * accepts is accepted here too.
+     *
+     * @return value of the number
+     * @throws IOException         if the input could not be read
+     * @throws FileFormatException if there is no number next
+     */
+    double readDouble() throws IOException, FileFormatException {
+        text.setLength(0);
+        boolean negative = false;
+        int c = peek();
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            text.append((char) c);
+            advance();
+            c = peek();
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        while (true) {
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+            if (digits > MAX_FAST_DIGITS) {
+                break;
+            }
+            text.append((char) c);
+            advance();
+            c = peek();
+        }
+        if (digits > 0 && digits <= MAX_FAST_DIGITS && atDelimiter()) {
+            // both values are exact, so the division is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[Math.max(fractionDigits,
+                    0)];
+            return negative ? -value : value;
+        }
+        while (!atDelimiter()) {
+            text.append((char) peek());
+            advance();
+        }
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw error("expected a number but found '" + text + "'");
+        }
+    }
+
+    /**
+     * Returns whether the next character ends a token.
+     *
+     * @return true if at a delimiter, a line end or the end of the input
+     * @throws IOException if the input could not be read
+     */
+    private boolean atDelimiter() throws IOException {
+        int c = peek();
+        return c == ':' || c == ',' || c == '@' || c == '\n' || c == '\r'
+                || c < 0;
+    }
+
+    /**
+     * Consumes the next character, which does not end a line.
+     *
+     * @throws IOException if the input could not be read
+     */
+    private void advance() throws IOException {
+        skip();
+        column++;
+    }
+}
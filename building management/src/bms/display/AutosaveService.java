@@ -0,0 +1,313 @@
+package bms.display;
+
+import bms.building.Building;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Saves buildings at regular intervals of simulated or wall-clock time, on
+ * a background thread of its own.
+ * <p>
+ * Saves are written by a {@link BackgroundSaver}, so each is consistent
+ * and replaces its file atomically, and can be limited to a number of
+ * bytes per second. The last few saves are kept, in files named
+ * <code>autosave-0.txt</code>, <code>autosave-1.txt</code> and so on, which
+ * are reused in turn.
+ * <p>
+ * Saves asked for while one is already being written are coalesced: once
+ * it finishes, one more save is made, however many were asked for. So
+ * asking for a save never blocks, and saves never queue up behind a slow
+ * disk.
+ */
+public class AutosaveService {
+    /**
+     * Start of the name of each save file.
+     */
+    private static final String PREFIX = "autosave-";
+
+    /**
+     * End of the name of each save file.
+     */
+    private static final String SUFFIX = ".txt";
+
+    /**
+     * Buildings to save.
+     */
+    private final List<Building> buildings;
+
+    /**
+     * Directory to save into.
+     */
+    private final Path directory;
+
+    /**
+     * Number of saves to keep.
+     */
+    private final int keep;
+
+    /**
+     * Saver writing the files, on its own thread.
+     */
+    private final BackgroundSaver saver;
+
+    /**
+     * Told about the progress of each save.
+     */
+    private final BackgroundSaver.Listener listener;
+
+    /**
+     * Thread asking for saves at wall-clock intervals.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Number of simulated minutes between saves; 0 if saves are not made
+     * at simulated intervals.
+     */
+    private volatile int simulatedInterval;
+
+    /**
+     * Simulated minutes elapsed since the last save was asked for.
+     */
+    private int simulatedMinutes;
+
+    /**
+     * Index of the file the next save is written to.
+     */
+    private int nextFile;
+
+    /**
+     * Whether a save is being written.
+     */
+    private boolean saving;
+
+    /**
+     * Whether another save was asked for while one was being written.
+     */
+    private boolean saveAgain;
+
+    /**
+     * Whether the service has been shut down.
+     */
+    private boolean shutDown;
+
+    /**
+     * Creates a new autosave service, which makes no saves until an
+     * interval is started or {@link #saveNow()} is called. The directory is
+     * created if it does not exist.
+     * <p>
+     * Saves carry on from the file after the most recently written one
+     * already in the directory, so the oldest save is replaced first.
+     *
+     * @param buildings      buildings to save; structural changes to them
+     *                       must be made holding the write lock of modelLock
+     * @param modelLock      lock guarding the structure of the buildings
+     * @param directory      directory to save into
+     * @param keep           number of saves to keep
+     * @param bytesPerSecond most bytes to write per second; 0 for no limit
+     * @param listener       told about the progress of each save, on the
+     *                       saving thread
+     * @throws IllegalArgumentException if keep is less than 1, or
+     *                                  bytesPerSecond is negative
+     * @throws IOException              if the directory could not be created
+     *                                  or listed
+     */
+    public AutosaveService(List<Building> buildings, ReadWriteLock modelLock,
+                           Path directory, int keep, long bytesPerSecond,
+                           BackgroundSaver.Listener listener)
+            throws IOException {
+        if (keep < 1) {
+            throw new IllegalArgumentException(
+                    "At least one save must be kept");
+        }
+        this.buildings = buildings;
+        this.directory = directory;
+        this.keep = keep;
+        this.saver = new BackgroundSaver(modelLock, bytesPerSecond);
+        this.listener = listener;
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "autosave-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(directory);
+        this.nextFile = findNextFile();
+    }
+
+    /**
+     * Makes a save every given number of simulated minutes, counted by
+     * calls to {@link #minuteElapsed()}.
+     *
+     * @param minutes simulated minutes between saves; 0 to stop saving at
+     *                simulated intervals
+     * @throws IllegalArgumentException if minutes is negative
+     */
+    public void saveEverySimulatedMinutes(int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Interval must not be negative");
+        }
+        simulatedInterval = minutes;
+    }
+
+    /**
+     * Makes a save every given interval of wall-clock time, starting one
+     * interval from now.
+     *
+     * @param interval time between saves
+     * @throws IllegalArgumentException if interval is not positive
+     */
+    public void saveEvery(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        timer.scheduleAtFixedRate(this::saveNow, interval.toNanos(),
+                interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts one simulated minute, and asks for a save if a simulated
+     * interval has passed. Returns straight away.
+     * <p>
+     * Should be called by the thread that moves the simulation forward,
+     * once per simulated minute.
+     */
+    public void minuteElapsed() {
+        int interval = simulatedInterval;
+        if (interval > 0 && ++simulatedMinutes >= interval) {
+            simulatedMinutes = 0;
+            saveNow();
+        }
+    }
+
+    /**
+     * Asks for a save of the buildings, and returns straight away. If a
+     * save is already being written, one more is made after it.
+     */
+    public void saveNow() {
+        Path path;
+        synchronized (this) {
+            if (shutDown) {
+                return;
+            }
+            if (saving) {
+                saveAgain = true;
+                return;
+            }
+            saving = true;
+            path = takeNextPath();
+        }
+        startSave(path);
+    }
+
+    /**
+     * Stops making saves. A save being written is finished, and the
+     * threads then stop.
+     */
+    public synchronized void shutdown() {
+        shutDown = true;
+        timer.shutdownNow();
+        saver.shutdown();
+    }
+
+    /**
+     * Returns the file the next save is to be written to, and moves on to
+     * the file after it.
+     *
+     * @return file to write the next save to
+     */
+    private synchronized Path takeNextPath() {
+        Path path = directory.resolve(PREFIX + nextFile + SUFFIX);
+        nextFile = (nextFile + 1) % keep;
+        return path;
+    }
+
+    /**
+     * Starts writing a save to the given file. The list of buildings is
+     * copied on the saving thread, so the calling thread never waits for the
+     * model lock.
+     *
+     * @param path file to write the save to
+     */
+    private void startSave(Path path) {
+        try {
+            saver.saveLatest(buildings, path, new ChainingListener());
+        } catch (RejectedExecutionException e) {
+            // shut down since the save was asked for
+        }
+    }
+
+    /**
+     * Passes on the progress of a save, and starts the next save once it
+     * has finished.
+     */
+    private class ChainingListener implements BackgroundSaver.Listener {
+        @Override
+        public void saveProgress(int buildingsSaved, int buildingCount) {
+            listener.saveProgress(buildingsSaved, buildingCount);
+        }
+
+        @Override
+        public void saveFinished(Path path, Instant finishTime) {
+            listener.saveFinished(path, finishTime);
+            saveDone();
+        }
+
+        @Override
+        public void saveFailed(Path path, IOException exception) {
+            listener.saveFailed(path, exception);
+            saveDone();
+        }
+    }
+
+    /**
+     * Starts the save asked for while the last one was being written, if
+     * any.
+     */
+    private void saveDone() {
+        Path path;
+        synchronized (this) {
+            if (!saveAgain || shutDown) {
+                saving = false;
+                return;
+            }
+            saveAgain = false;
+            path = takeNextPath();
+        }
+        startSave(path);
+    }
+
+    /**
+     * Returns the index of the file after the most recently written save in
+     * the directory.
+     *
+     * @return index of the file to write next; 0 if there are no saves
+     * @throws IOException if the directory could not be read
+     */
+    private int findNextFile() throws IOException {
+        int newest = -1;
+        FileTime newestTime = null;
+        for (int i = 0; i < keep; i++) {
+            Path path = directory.resolve(PREFIX + i + SUFFIX);
+            if (Files.exists(path)) {
+                FileTime time = Files.getLastModifiedTime(path);
+                if (newestTime == null || time.compareTo(newestTime) > 0) {
+                    newest = i;
+                    newestTime = time;
+                }
+            }
+        }
+        return (newest + 1) % keep;
+    }
+}
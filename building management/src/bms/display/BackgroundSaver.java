@@ -0,0 +1,276 @@
+package bms.display;
+
+import bms.building.Building;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Saves buildings in the text save format on a background thread, so the
+ * thread asking for the save (eg. the JavaFX application thread) is not
+ * held up while the buildings are encoded and written.
+ * <p>
+ * Each building is encoded while holding the read lock of the given model
+ * lock, so code that changes the structure of the buildings (adding floors,
+ * rooms, sensors and so on) must hold its write lock; buildings share
+ * nothing, so each is saved as it was at some instant. The text encoding does
+ * not include any state that changes as time elapses, so ticks can carry on
+ * while a save is in progress.
+ * <p>
+ * Each save is written to a temporary file next to the target, which is then
+ * renamed over the target, so the target always holds either the previous
+ * save or the complete new one. Saves run one at a time, in the order they
+ * were asked for.
+ * <p>
+ * A saver can be given a limit on the rate at which it writes, so that
+ * saves made in the background do not crowd out other disk use. The limit
+ * is kept to on average over each save, by pausing after a building has
+ * been written until its bytes are within the budget; the read lock is not
+ * held while pausing.
+ */
+public class BackgroundSaver {
+    /**
+     * Told about the progress of a save. Methods are called on the saving
+     * thread.
+     */
+    public interface Listener {
+        /**
+         * Called after each building has been written.
+         *
+         * @param buildingsSaved number of buildings written so far
+         * @param buildingCount  number of buildings being saved
+         */
+        void saveProgress(int buildingsSaved, int buildingCount);
+
+        /**
+         * Called once the save is complete and the target file replaced.
+         *
+         * @param path       file saved to
+         * @param finishTime time at which the save completed
+         */
+        void saveFinished(Path path, Instant finishTime);
+
+        /**
+         * Called if the save could not be completed. The target file is left
+         * unchanged.
+         *
+         * @param path      file that was being saved to
+         * @param exception cause of the failure
+         */
+        void saveFailed(Path path, IOException exception);
+    }
+
+    /**
+     * Lock guarding the structure of the buildings.
+     */
+    private final ReadWriteLock modelLock;
+
+    /**
+     * Single thread on which saves run.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Most bytes to write per second; 0 for no limit.
+     */
+    private final long bytesPerSecond;
+
+    /**
+     * Creates a new saver with its own background thread, which writes as
+     * fast as it can.
+     *
+     * @param modelLock lock whose write lock is held while the structure of
+     *                  the buildings is changed
+     */
+    public BackgroundSaver(ReadWriteLock modelLock) {
+        this(modelLock, 0);
+    }
+
+    /**
+     * Creates a new saver with its own background thread, which writes at
+     * most the given number of bytes per second.
+     *
+     * @param modelLock      lock whose write lock is held while the structure
+     *                       of the buildings is changed
+     * @param bytesPerSecond most bytes to write per second; 0 for no limit
+     * @throws IllegalArgumentException if bytesPerSecond is negative
+     */
+    public BackgroundSaver(ReadWriteLock modelLock, long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException(
+                    "Bytes per second must not be negative");
+        }
+        this.modelLock = modelLock;
+        this.bytesPerSecond = bytesPerSecond;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "background-save");
+            // an unfinished save must not keep the application running
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts saving the given buildings to the given file, and returns
+     * straight away.
+     * <p>
+     * The list is copied before returning, so buildings added to it later
+     * are not saved.
+     *
+     * @param buildings buildings to save, in order
+     * @param path      file to save to
+     * @param listener  listener told about the progress of the save
+     * @return future which completes once the save has finished or failed
+     */
+    public Future<?> save(List<Building> buildings, Path path,
+                          Listener listener) {
+        List<Building> toSave = new ArrayList<>(buildings);
+        return submit(() -> toSave, path, listener);
+    }
+
+    /**
+     * Starts saving the buildings in the given list to the given file, and
+     * returns straight away.
+     * <p>
+     * Unlike {@link #save(List, Path, Listener)}, the list is not read by the
+     * calling thread: it is copied on the saving thread when the save starts,
+     * while holding the read lock of the model lock. The calling thread
+     * therefore never waits for the model lock, so this may be called from a
+     * thread which must not be held up by structural changes. The list must
+     * only be changed while holding the write lock.
+     *
+     * @param buildings list of buildings to save, in order
+     * @param path      file to save to
+     * @param listener  listener told about the progress of the save
+     * @return future which completes once the save has finished or failed
+     */
+    public Future<?> saveLatest(List<Building> buildings, Path path,
+                                Listener listener) {
+        return submit(() -> {
+            Lock readLock = modelLock.readLock();
+            readLock.lock();
+            try {
+                return new ArrayList<>(buildings);
+            } finally {
+                readLock.unlock();
+            }
+        }, path, listener);
+    }
+
+    /**
+     * Queues a save of the buildings given by the supplier, which is called
+     * on the saving thread.
+     *
+     * @param buildings supplies the buildings to save when the save starts
+     * @param path      file to save to
+     * @param listener  listener told about the progress of the save
+     * @return future which completes once the save has finished or failed
+     */
+    private Future<?> submit(Supplier<List<Building>> buildings, Path path,
+                             Listener listener) {
+        return executor.submit(() -> {
+            try {
+                write(buildings.get(), path, listener);
+                listener.saveFinished(path, Instant.now());
+            } catch (IOException e) {
+                listener.saveFailed(path, e);
+            } catch (RuntimeException e) {
+                listener.saveFailed(path,
+                        new IOException("Could not encode buildings", e));
+            }
+        });
+    }
+
+    /**
+     * Writes the buildings to a temporary file, then moves it over the
+     * target.
+     *
+     * @param buildings buildings to save
+     * @param path      file to save to
+     * @param listener  listener told after each building is written
+     * @throws IOException if the file could not be written or moved
+     */
+    private void write(List<Building> buildings, Path path,
+                       Listener listener) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory,
+                path.getFileName().toString(), ".tmp");
+        try {
+            // same charset as FileReader, which loads the file back
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary,
+                    Charset.defaultCharset())) {
+                long startTime = System.nanoTime();
+                for (int i = 0; i < buildings.size(); i++) {
+                    Lock readLock = modelLock.readLock();
+                    readLock.lock();
+                    try {
+                        buildings.get(i).encodeTo(writer);
+                    } finally {
+                        readLock.unlock();
+                    }
+                    if (bytesPerSecond > 0) {
+                        writer.flush();
+                        throttle(Files.size(temporary), startTime);
+                    }
+                    listener.saveProgress(i + 1, buildings.size());
+                }
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Pauses until the given number of bytes is within the budget for the
+     * time since the save started.
+     *
+     * @param bytesWritten number of bytes written so far
+     * @param startTime    value of {@link System#nanoTime()} when the save
+     *                     started
+     * @throws InterruptedIOException if interrupted while pausing
+     */
+    private void throttle(long bytesWritten, long startTime)
+            throws InterruptedIOException {
+        long budgetNanos = (long) (bytesWritten * 1e9 / bytesPerSecond);
+        long pauseNanos = budgetNanos - (System.nanoTime() - startTime);
+        if (pauseNanos > 0) {
+            try {
+                Thread.sleep(pauseNanos / 1_000_000,
+                        (int) (pauseNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Save interrupted");
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread once any saves already asked for have
+     * finished.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -3,8 +3,6 @@ package bms.display;
 import bms.building.Building;
 import bms.floor.Floor;
 import bms.room.Room;
-import bms.sensors.OccupancySensor;
-import bms.sensors.Sensor;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -12,8 +10,6 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.StringJoiner;
 
 /**
@@ -21,39 +17,30 @@ import java.util.StringJoiner;
  */
 public class BuildingCanvas extends Canvas {
 
-    private static class ClickableRegion {
-
-        private final double x;
-        private final double y;
-        private final double width;
-        private final double height;
-        public ClickableRegion(double x, double y, double width, double height) {
-            this.x = x;
-            this.y = y;
-            this.width = width;
-            this.height = height;
-        }
-
-        public boolean wasClicked(double clickX, double clickY) {
-            return clickX > this.x && clickX < this.x + this.width &&
-                    clickY > this.y && clickY < this.y + this.height;
-        }
-
-    }
-
-    // Height of a floor in the building
-    private static final int FLOOR_HEIGHT = 110;
-
     // Building drawn on this canvas
     private Building building;
 
     // View model
     private ViewModel viewModel;
 
-    // Mapping of clickable regions to floors
-    private Map<ClickableRegion, Floor> drawnFloors;
-    // Mapping of clickable regions to rooms
-    private Map<ClickableRegion, Room> drawnRooms;
+    // Floors and rooms of the building, worked out again when its structure
+    // or the size of the canvas changes; null until first drawn
+    private BuildingLayout layout;
+    private int layoutStructure;
+    private double layoutWidth;
+    private double layoutHeight;
+
+    // Offsets, selection and snapshot the canvas was last drawn with, so
+    // rooms are only drawn again when they change
+    private double paintedXOffset;
+    private double paintedYOffset;
+    private Floor paintedFloor;
+    private Room paintedRoom;
+    private StateSnapshot paintedSnapshot;
+
+    // State each room was last drawn with, by room index; null if the room
+    // has not been drawn with its state
+    private StateSnapshot.RoomSnapshot[] paintedRooms;
 
     // Last pressed X and Y coordinates
     private double pressedX;
@@ -67,8 +54,6 @@ public class BuildingCanvas extends Canvas {
      * @ass2_given
      */
     public BuildingCanvas(ViewModel viewModel, Building building) {
-        this.drawnFloors = new HashMap<>();
-        this.drawnRooms = new HashMap<>();
         this.viewModel = viewModel;
         this.building = building;
 
@@ -92,24 +77,18 @@ public class BuildingCanvas extends Canvas {
         });
 
         setOnMouseClicked(event -> {
-            if (event.getButton() != MouseButton.PRIMARY) {
+            if (event.getButton() != MouseButton.PRIMARY
+                    || this.layout == null) {
                 return;
             }
-            double x = event.getX();
-            double y = event.getY();
-            Floor clickedFloor = null;
-            Room clickedRoom = null;
-            for (Map.Entry<ClickableRegion, Room> entry : drawnRooms.entrySet()) {
-                if (entry.getKey().wasClicked(x, y)) {
-                    clickedRoom = entry.getValue();
-                }
-            }
-            for (Map.Entry<ClickableRegion, Floor> entry : drawnFloors.entrySet()) {
-                if (entry.getKey().wasClicked(x, y)) {
-                    clickedFloor = entry.getValue();
-                }
-            }
-            viewModel.setSelected(clickedFloor, clickedRoom);
+            // the layout is worked out before panning
+            double x = event.getX() - this.xOffset;
+            double y = event.getY() - this.yOffset;
+            BuildingLayout.FloorLayout clickedFloor = layout.findFloor(x, y);
+            BuildingLayout.RoomLayout clickedRoom = layout.findRoom(x, y);
+            viewModel.setSelected(
+                    clickedFloor == null ? null : clickedFloor.getFloor(),
+                    clickedRoom == null ? null : clickedRoom.getRoom());
         });
     }
 
@@ -117,157 +96,188 @@ public class BuildingCanvas extends Canvas {
      * @ass2_given
      */
     public void draw() {
-        // Clear the mapping of clickable regions to floors and rooms
-        this.drawnFloors.clear();
-        this.drawnRooms.clear();
+        // the simulation clock moves the building forward on its own thread,
+        // so what it changes is drawn from the latest snapshot
+        StateSnapshot snapshot = viewModel.getSnapshot();
+
+        if (this.layout == null
+                || this.layoutStructure != viewModel.getStructuralChanges()
+                || this.layoutWidth != this.getWidth()
+                || this.layoutHeight != this.getHeight()) {
+            this.layout = new BuildingLayout(building, this.getWidth(),
+                    this.getHeight());
+            this.layoutStructure = viewModel.getStructuralChanges();
+            this.layoutWidth = this.getWidth();
+            this.layoutHeight = this.getHeight();
+            this.paintedRooms =
+                    new StateSnapshot.RoomSnapshot[layout.getRoomCount()];
+            paintAll(snapshot);
+        } else if (this.paintedXOffset != this.xOffset
+                || this.paintedYOffset != this.yOffset
+                || this.paintedFloor != viewModel.getSelectedFloor()
+                || this.paintedRoom != viewModel.getSelectedRoom()) {
+            paintAll(snapshot);
+        } else if (this.paintedSnapshot != snapshot) {
+            paintChangedRooms(snapshot);
+        }
+    }
 
+    /**
+     * Clears the canvas and draws every floor and room.
+     *
+     * @param snapshot state of the rooms to draw
+     */
+    private void paintAll(StateSnapshot snapshot) {
         GraphicsContext gc = getGraphicsContext2D();
 
         // Clear the canvas
         gc.clearRect(0, 0, this.getWidth(), this.getHeight());
 
-        // Draw width of the smallest room, must be large enough to fit text
-        // inside room
-        final double minRoomDrawWidth = 110;
-        final double padding = 20;
-        double startX = padding;
-        double startY = this.getHeight() - padding;
-        final double roomPadding = 5;
-        double x, y;
-
-        int numFloors = building.getFloors().size();
-        if (numFloors == 0) {
-            return;
+        for (BuildingLayout.FloorLayout floorLayout : layout.getFloors()) {
+            double x = this.xOffset + floorLayout.getX();
+            double y = this.yOffset + floorLayout.getY();
+            gc.setStroke(Color.BLACK);
+            gc.strokeRect(x, y, floorLayout.getWidth(), floorLayout.getHeight());
+            gc.setFill(floorFill(floorLayout));
+            gc.fillRect(x, y, floorLayout.getWidth(), floorLayout.getHeight());
+
+            for (BuildingLayout.RoomLayout roomLayout : floorLayout.getRooms()) {
+                paintRoom(gc, roomLayout, snapshot.getRoom(roomLayout.getRoom()));
+            }
         }
 
-        // Area of the smallest room in the building
-        double minRoomArea = Double.MAX_VALUE;
-
-        // Area of the floor containing the smallest room
-        // If there are no rooms in the building at all, this value will remain
-        // at 0 but is unused
-        double minFloorArea = 0;
-        boolean buildingHasRooms = false;
-        // TODO extract calculation?
-        for (Floor floor : building.getFloors()) {
-            for (Room room : floor.getRooms()) {
-                buildingHasRooms = true;
-                if (room.getArea() < minRoomArea) {
-                    minRoomArea = room.getArea();
-                    minFloorArea = floor.calculateArea();
+        this.paintedXOffset = this.xOffset;
+        this.paintedYOffset = this.yOffset;
+        this.paintedFloor = viewModel.getSelectedFloor();
+        this.paintedRoom = viewModel.getSelectedRoom();
+        this.paintedSnapshot = snapshot;
+    }
+
+    /**
+     * Draws again only the rooms whose state in the given snapshot differs
+     * from the state they were last drawn with.
+     *
+     * @param snapshot state of the rooms to draw
+     */
+    private void paintChangedRooms(StateSnapshot snapshot) {
+        GraphicsContext gc = getGraphicsContext2D();
+        for (BuildingLayout.FloorLayout floorLayout : layout.getFloors()) {
+            for (BuildingLayout.RoomLayout roomLayout : floorLayout.getRooms()) {
+                StateSnapshot.RoomSnapshot roomState =
+                        snapshot.getRoom(roomLayout.getRoom());
+                if (roomState != null && roomState.equals(
+                        this.paintedRooms[roomLayout.getIndex()])) {
+                    continue;
                 }
+                // cover the old room, including the edge of its outline
+                gc.setFill(floorFill(floorLayout));
+                gc.fillRect(this.xOffset + roomLayout.getX() - 1,
+                        this.yOffset + roomLayout.getY() - 1,
+                        roomLayout.getWidth() + 2, roomLayout.getHeight() + 2);
+                paintRoom(gc, roomLayout, roomState);
             }
         }
-        final double minFloorDrawWidth = minRoomDrawWidth * minFloorArea / minRoomArea;
-
-        double firstFloorArea = building.getFloorByNumber(1).calculateArea();
-        // Draw each floor
-        for (int i = 0; i < numFloors; ++i) {
-            Floor floor = building.getFloors().get(i);
-            double floorArea = floor.calculateArea();
-            double relativeFloorArea = floorArea / firstFloorArea;
-            double floorOriginX = startX;
-            double floorOriginY = startY - (i + 1) * FLOOR_HEIGHT;
-            double floorDrawWidth;
-            if (buildingHasRooms) {
-                floorDrawWidth = Math.max((floorArea / minFloorArea) * minFloorDrawWidth,
-                        (this.getWidth() - 2 * padding) * relativeFloorArea);
-            } else {
-                floorDrawWidth = (this.getWidth() - 2 * padding) * relativeFloorArea;
-            }
+        this.paintedSnapshot = snapshot;
+    }
 
+    /**
+     * Draws a room, its hazard level and a description of its state.
+     *
+     * @param gc         graphics context to draw with
+     * @param roomLayout where to draw the room
+     * @param roomState  state of the room; null if it was added since the
+     *                   snapshot was captured, in which case only its outline
+     *                   is drawn
+     */
+    private void paintRoom(GraphicsContext gc,
+                           BuildingLayout.RoomLayout roomLayout,
+                           StateSnapshot.RoomSnapshot roomState) {
+        double x = this.xOffset + roomLayout.getX();
+        double y = this.yOffset + roomLayout.getY();
+        double width = roomLayout.getWidth();
+        double height = roomLayout.getHeight();
+
+        gc.setStroke(Color.BLUE);
+        gc.strokeRect(x, y, width, height);
+        if (roomLayout.getRoom() == viewModel.getSelectedRoom()) {
+            gc.setFill(Color.LIGHTYELLOW);
+        } else {
+            gc.setFill(Color.WHITE);
+        }
+        gc.fillRect(x, y, width, height);
+
+        this.paintedRooms[roomLayout.getIndex()] = roomState;
+        if (roomState == null) {
+            return;
+        }
+
+        // Draw a coloured rectangle to represent the hazard level
+        if (roomLayout.hasHazardEvaluator()) {
+            double hazardHeight = roomState.getHazardLevel() / 100.0 * height;
+            gc.setFill(Color.ORANGE);
+            gc.fillRect(x, y + height - hazardHeight, 5, hazardHeight);
             gc.setStroke(Color.BLACK);
-            x = this.xOffset + floorOriginX;
-            y = this.yOffset + floorOriginY;
-            gc.strokeRect(x, y, floorDrawWidth, FLOOR_HEIGHT);
-            if (floor.equals(viewModel.getSelectedFloor())) {
-                gc.setFill(Color.LIGHTPINK);
-            } else {
-                gc.setFill(Color.LIGHTGRAY);
-            }
-            gc.fillRect(x, y, floorDrawWidth, FLOOR_HEIGHT);
-
-            this.drawnFloors.put(new ClickableRegion(
-                    x, y, floorDrawWidth, FLOOR_HEIGHT), floor);
-
-            // Draw each room on the current floor
-            int numRooms = floor.getRooms().size();
-            double roomOriginX = floorOriginX;
-            for (int j = 0; j < numRooms; ++j) {
-                Room room = floor.getRooms().get(j);
-                double roomArea = room.getArea();
-                double roomDrawWidth = roomArea / floor.calculateArea() * floorDrawWidth;
-
-                gc.setStroke(Color.BLUE);
-                x = this.xOffset + roomOriginX + roomPadding;
-                y = this.yOffset + floorOriginY + roomPadding;
-                gc.strokeRect(x, y,
-                        roomDrawWidth - 2 * roomPadding,
-                        FLOOR_HEIGHT - 2 * roomPadding);
-                if (room.equals(viewModel.getSelectedRoom())) {
-                    gc.setFill(Color.LIGHTYELLOW);
-                } else {
-                    gc.setFill(Color.WHITE);
-                }
-                gc.fillRect(x, y,
-                        roomDrawWidth - 2 * roomPadding,
-                        FLOOR_HEIGHT - 2 * roomPadding);
-
-                this.drawnRooms.put(new ClickableRegion(x, y,
-                        roomDrawWidth - 2 * roomPadding,
-                        FLOOR_HEIGHT - 2 * roomPadding), room);
-
-                // Draw a coloured rectangle to represent the hazard level
-                if (room.getHazardEvaluator() != null) {
-                    double hazardPct = room.getHazardEvaluator()
-                            .evaluateHazardLevel() / 100.0;
-                    double fullHeight = FLOOR_HEIGHT - 2 * roomPadding;
-                    double height = hazardPct * fullHeight;
-                    gc.setFill(Color.ORANGE);
-                    gc.fillRect(x, y + fullHeight - height, 5, height);
-                    gc.setStroke(Color.BLACK);
-
-                    gc.strokeLine(x + 5.5, y, x + 5.5, y + FLOOR_HEIGHT - 2 * roomPadding);
-                }
 
-                StringJoiner joiner = new StringJoiner(System.lineSeparator());
-                joiner.add("Room #" + room.getRoomNumber());
-                joiner.add(room.getType().toString());
-                joiner.add(room.evaluateRoomState().toString());
-                Sensor tempSensor = room.getSensor("TemperatureSensor");
-                if (tempSensor != null) {
-                    joiner.add(String.format("%d°C",
-                            tempSensor.getCurrentReading()));
-                }
-                Sensor noiseSensor = room.getSensor("NoiseSensor");
-                if (noiseSensor != null) {
-                    joiner.add(String.format("%ddB",
-                            noiseSensor.getCurrentReading()));
-                }
-                Sensor co2Sensor = room.getSensor("CarbonDioxideSensor");
-                if (co2Sensor != null) {
-                    joiner.add(String.format("%dppm",
-                            co2Sensor.getCurrentReading()));
-                }
-                OccupancySensor occupancySensor = (OccupancySensor) room.getSensor("OccupancySensor");
-                if (occupancySensor != null) {
-                    joiner.add(String.format("%d/%d",
-                            occupancySensor.getCurrentReading(),
-                            occupancySensor.getCapacity()));
-                }
-                String roomDescription = joiner.toString();
+            gc.strokeLine(x + 5.5, y, x + 5.5, y + height);
+        }
 
-                gc.setFill(Color.BLACK);
-                gc.setTextBaseline(VPos.TOP);
-                x = this.xOffset + roomOriginX + roomPadding + 2
-                        + (room.getHazardEvaluator() == null ? 0 : 6);
-                y = this.yOffset + floorOriginY + roomPadding + 2;
-                gc.setFont(Font.font("monospace"));
-                gc.fillText(roomDescription, x, y);
+        // text is kept inside the room, so redrawing the room alone
+        // leaves nothing of the old text behind
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, width, height);
+        gc.clip();
+        gc.setFill(Color.BLACK);
+        gc.setTextBaseline(VPos.TOP);
+        gc.setFont(Font.font("monospace"));
+        gc.fillText(describe(roomLayout, roomState),
+                x + 2 + (roomLayout.hasHazardEvaluator() ? 6 : 0), y + 2);
+        gc.restore();
+    }
 
-                roomOriginX += roomDrawWidth;
-            }
+    /**
+     * Returns the text drawn inside a room.
+     *
+     * @param roomLayout layout of the room to describe
+     * @param roomState  state of the room
+     * @return description of the room, one item per line
+     */
+    private static String describe(BuildingLayout.RoomLayout roomLayout,
+                                   StateSnapshot.RoomSnapshot roomState) {
+        StringJoiner joiner = new StringJoiner(System.lineSeparator());
+        joiner.add(roomLayout.getHeading());
+        joiner.add(roomState.getState().toString());
+        Integer temperature = roomState.getReading("TemperatureSensor");
+        if (temperature != null) {
+            joiner.add(String.format("%d°C", temperature));
+        }
+        Integer noise = roomState.getReading("NoiseSensor");
+        if (noise != null) {
+            joiner.add(String.format("%ddB", noise));
+        }
+        Integer co2 = roomState.getReading("CarbonDioxideSensor");
+        if (co2 != null) {
+            joiner.add(String.format("%dppm", co2));
+        }
+        Integer occupancy = roomState.getReading("OccupancySensor");
+        if (occupancy != null) {
+            joiner.add(String.format("%d/%d", occupancy,
+                    roomLayout.getOccupancyCapacity()));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Returns the colour a floor is filled with.
+     *
+     * @param floorLayout layout of the floor to fill
+     * @return fill colour, depending on whether the floor is selected
+     */
+    private Color floorFill(BuildingLayout.FloorLayout floorLayout) {
+        if (floorLayout.getFloor() == viewModel.getSelectedFloor()) {
+            return Color.LIGHTPINK;
         }
+        return Color.LIGHTGRAY;
     }
 
     private void pan(double deltaX, double deltaY) {
@@ -308,4 +318,4 @@ public class BuildingCanvas extends Canvas {
     public double prefHeight(double v) {
         return getHeight();
     }
-}
\ No newline at end of file
+}
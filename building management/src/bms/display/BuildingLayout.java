@@ -0,0 +1,329 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.OccupancySensor;
+import bms.util.IntervalIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where each floor and room of a building is drawn on a canvas of a given
+ * size, before panning.
+ * <p>
+ * Everything which depends only on the structure of the building is
+ * worked out once, when the layout is made, so drawing a frame needs no
+ * copies of the building's floor, room or sensor lists. A new layout must
+ * be made whenever the structure of the building or the size of the canvas
+ * changes.
+ */
+final class BuildingLayout {
+    /**
+     * Height of a floor in the building.
+     */
+    static final double FLOOR_HEIGHT = 110;
+
+    /**
+     * Draw width of the smallest room, must be large enough to fit text
+     * inside room.
+     */
+    private static final double MIN_ROOM_DRAW_WIDTH = 110;
+
+    /**
+     * Space between the floors and the edge of the canvas.
+     */
+    private static final double PADDING = 20;
+
+    /**
+     * Space between each room and the edges of its floor.
+     */
+    private static final double ROOM_PADDING = 5;
+
+    /**
+     * Layout of each floor, bottom floor first.
+     */
+    private final List<FloorLayout> floors;
+
+    /**
+     * Floors by where they are drawn up the canvas.
+     */
+    private final IntervalIndex<FloorLayout> floorsByY;
+
+    /**
+     * Number of rooms in the building.
+     */
+    private final int roomCount;
+
+    /**
+     * Works out where each floor and room of the building is drawn.
+     *
+     * @param building building to lay out
+     * @param width    width of the canvas
+     * @param height   height of the canvas
+     */
+    BuildingLayout(Building building, double width, double height) {
+        List<FloorLayout> floorLayouts = new ArrayList<>();
+        int rooms = 0;
+
+        List<Floor> floors = building.getFloors();
+        List<List<Room>> floorRooms = new ArrayList<>();
+        for (Floor floor : floors) {
+            floorRooms.add(floor.getRooms());
+        }
+
+        // Area of the smallest room in the building
+        double minRoomArea = Double.MAX_VALUE;
+
+        // Area of the floor containing the smallest room
+        // If there are no rooms in the building at all, this value will remain
+        // at 0 but is unused
+        double minFloorArea = 0;
+        boolean buildingHasRooms = false;
+        for (int i = 0; i < floors.size(); ++i) {
+            for (Room room : floorRooms.get(i)) {
+                buildingHasRooms = true;
+                if (room.getArea() < minRoomArea) {
+                    minRoomArea = room.getArea();
+                    minFloorArea = floors.get(i).calculateArea();
+                }
+            }
+        }
+        final double minFloorDrawWidth =
+                MIN_ROOM_DRAW_WIDTH * minFloorArea / minRoomArea;
+
+        double startY = height - PADDING;
+        double firstFloorArea = floors.isEmpty() ? 0
+                : building.getFloorByNumber(1).calculateArea();
+        for (int i = 0; i < floors.size(); ++i) {
+            Floor floor = floors.get(i);
+            double floorArea = floor.calculateArea();
+            double relativeFloorArea = floorArea / firstFloorArea;
+            double floorOriginX = PADDING;
+            double floorOriginY = startY - (i + 1) * FLOOR_HEIGHT;
+            // worked out the same way as the top of the floor below, so
+            // the two are exactly equal at any canvas height
+            double floorBottomY = startY - i * FLOOR_HEIGHT;
+            double floorDrawWidth;
+            if (buildingHasRooms) {
+                floorDrawWidth = Math.max(
+                        (floorArea / minFloorArea) * minFloorDrawWidth,
+                        (width - 2 * PADDING) * relativeFloorArea);
+            } else {
+                floorDrawWidth = (width - 2 * PADDING) * relativeFloorArea;
+            }
+
+            List<RoomLayout> roomLayouts = new ArrayList<>();
+            double roomOriginX = floorOriginX;
+            for (Room room : floorRooms.get(i)) {
+                double roomDrawWidth =
+                        room.getArea() / floorArea * floorDrawWidth;
+                roomLayouts.add(new RoomLayout(room, rooms++,
+                        roomOriginX + ROOM_PADDING,
+                        floorOriginY + ROOM_PADDING,
+                        roomDrawWidth - 2 * ROOM_PADDING,
+                        FLOOR_HEIGHT - 2 * ROOM_PADDING));
+                roomOriginX += roomDrawWidth;
+            }
+            floorLayouts.add(new FloorLayout(floor, floorOriginX,
+                    floorOriginY, floorBottomY, floorDrawWidth, roomLayouts));
+        }
+
+        this.floors = Collections.unmodifiableList(floorLayouts);
+        this.floorsByY = new IntervalIndex<>(floorLayouts,
+                floorLayout -> floorLayout.y,
+                floorLayout -> floorLayout.bottom);
+        this.roomCount = rooms;
+    }
+
+    /**
+     * Returns the layout of each floor, bottom floor first.
+     *
+     * @return unmodifiable list of floor layouts
+     */
+    List<FloorLayout> getFloors() {
+        return floors;
+    }
+
+    /**
+     * Returns the number of rooms in the building. Each room's layout has
+     * an index below this number, see {@link RoomLayout#getIndex()}.
+     *
+     * @return number of rooms
+     */
+    int getRoomCount() {
+        return roomCount;
+    }
+
+    /**
+     * Returns the floor drawn at the given point.
+     *
+     * @param x distance across the canvas, before panning
+     * @param y distance down the canvas, before panning
+     * @return layout of the floor at the point, or null if there is none
+     */
+    FloorLayout findFloor(double x, double y) {
+        FloorLayout floorLayout = floorsByY.find(y);
+        if (floorLayout != null && x > floorLayout.x
+                && x < floorLayout.x + floorLayout.width) {
+            return floorLayout;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the room drawn at the given point.
+     *
+     * @param x distance across the canvas, before panning
+     * @param y distance down the canvas, before panning
+     * @return layout of the room at the point, or null if there is none
+     */
+    RoomLayout findRoom(double x, double y) {
+        FloorLayout floorLayout = findFloor(x, y);
+        if (floorLayout == null) {
+            return null;
+        }
+        RoomLayout roomLayout = floorLayout.roomsByX.find(x);
+        if (roomLayout != null && y > roomLayout.y
+                && y < roomLayout.y + roomLayout.height) {
+            return roomLayout;
+        }
+        return null;
+    }
+
+    /**
+     * Where a floor and its rooms are drawn.
+     */
+    static final class FloorLayout {
+        private final Floor floor;
+        private final double x;
+        private final double y;
+        private final double bottom;
+        private final double width;
+        private final List<RoomLayout> rooms;
+        // Rooms by where they are drawn across the floor
+        private final IntervalIndex<RoomLayout> roomsByX;
+
+        private FloorLayout(Floor floor, double x, double y, double bottom,
+                            double width, List<RoomLayout> rooms) {
+            this.floor = floor;
+            this.x = x;
+            this.y = y;
+            this.bottom = bottom;
+            this.width = width;
+            this.rooms = Collections.unmodifiableList(rooms);
+            this.roomsByX = new IntervalIndex<>(rooms,
+                    roomLayout -> roomLayout.x,
+                    roomLayout -> roomLayout.x + roomLayout.width);
+        }
+
+        Floor getFloor() {
+            return floor;
+        }
+
+        double getX() {
+            return x;
+        }
+
+        double getY() {
+            return y;
+        }
+
+        double getWidth() {
+            return width;
+        }
+
+        double getHeight() {
+            return FLOOR_HEIGHT;
+        }
+
+        /**
+         * @return layout of each room, in the order they are drawn from
+         * left to right
+         */
+        List<RoomLayout> getRooms() {
+            return rooms;
+        }
+    }
+
+    /**
+     * Where a room is drawn, and the parts of its description which only
+     * depend on the structure of the building.
+     */
+    static final class RoomLayout {
+        private final Room room;
+        private final int index;
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double height;
+        private final boolean hasHazardEvaluator;
+        private final String heading;
+        private final int occupancyCapacity;
+
+        private RoomLayout(Room room, int index, double x, double y,
+                           double width, double height) {
+            this.room = room;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.hasHazardEvaluator = room.getHazardEvaluator() != null;
+            this.heading = "Room #" + room.getRoomNumber()
+                    + System.lineSeparator() + room.getType();
+            OccupancySensor occupancySensor =
+                    (OccupancySensor) room.getSensor("OccupancySensor");
+            this.occupancyCapacity = occupancySensor == null ? -1
+                    : occupancySensor.getCapacity();
+        }
+
+        Room getRoom() {
+            return room;
+        }
+
+        /**
+         * @return position of the room among all the rooms in the building,
+         * from 0
+         */
+        int getIndex() {
+            return index;
+        }
+
+        double getX() {
+            return x;
+        }
+
+        double getY() {
+            return y;
+        }
+
+        double getWidth() {
+            return width;
+        }
+
+        double getHeight() {
+            return height;
+        }
+
+        boolean hasHazardEvaluator() {
+            return hasHazardEvaluator;
+        }
+
+        /**
+         * @return first lines of the room's description, its number and type
+         */
+        String getHeading() {
+            return heading;
+        }
+
+        /**
+         * @return capacity of the room's occupancy sensor; -1 if it has none
+         */
+        int getOccupancyCapacity() {
+            return occupancyCapacity;
+        }
+    }
+}
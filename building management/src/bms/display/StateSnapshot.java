@@ -0,0 +1,339 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.sensors.Sensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable copy of the parts of the buildings which change as the
+ * simulation moves forward: the state, sensor readings and hazard level of
+ * each room.
+ * <p>
+ * A new snapshot is captured after every simulated minute and after every
+ * structural change, and published through a single volatile reference, so
+ * the GUI can draw a whole minute at once without waiting for the
+ * simulation clock. The structure of the buildings (their floors, rooms
+ * and sensors) is not copied, as it is only changed on the JavaFX
+ * application thread.
+ * <p>
+ * After a structural change, {@link #capture(List, long)} copies every
+ * room. After a simulated minute, {@link #next(long)} copies only the
+ * rooms whose readings, fire drill or maintenance have changed since the
+ * previous snapshot, and shares the rest with it, so a minute in which
+ * little changes costs little.
+ */
+public final class StateSnapshot {
+    /**
+     * Minutes simulated when the snapshot was captured.
+     */
+    private final long minutesElapsed;
+
+    /**
+     * Rooms and floors of the buildings, shared by every snapshot captured
+     * since the last structural change.
+     */
+    private final Structure structure;
+
+    /**
+     * Copy of each room, in the order of {@link Structure#rooms}.
+     */
+    private final RoomSnapshot[] rooms;
+
+    private StateSnapshot(long minutesElapsed, Structure structure,
+                          RoomSnapshot[] rooms) {
+        this.minutesElapsed = minutesElapsed;
+        this.structure = structure;
+        this.rooms = rooms;
+    }
+
+    /**
+     * Captures a snapshot of every room and floor in the given buildings.
+     * <p>
+     * Must be called while nothing else can change the buildings, eg.
+     * holding the lock held while they are changed.
+     *
+     * @param buildings      buildings to capture
+     * @param minutesElapsed minutes simulated so far
+     * @return new snapshot
+     */
+    public static StateSnapshot capture(List<Building> buildings,
+                                        long minutesElapsed) {
+        Structure structure = new Structure(buildings);
+        RoomSnapshot[] rooms = new RoomSnapshot[structure.rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = new RoomSnapshot(structure.rooms[i]);
+        }
+        return new StateSnapshot(minutesElapsed, structure, rooms);
+    }
+
+    /**
+     * Captures a snapshot of the same buildings as this snapshot, once the
+     * simulation has moved forward. Rooms which have not changed since this
+     * snapshot was captured are shared with it rather than copied again.
+     * <p>
+     * The structure of the buildings must not have changed since this
+     * snapshot was captured; use {@link #capture(List, long)} after a
+     * structural change. Must be called while nothing else can change the
+     * buildings.
+     *
+     * @param minutesElapsed minutes simulated so far
+     * @return new snapshot
+     */
+    public StateSnapshot next(long minutesElapsed) {
+        RoomSnapshot[] next = rooms;
+        for (int i = 0; i < rooms.length; i++) {
+            Room room = structure.rooms[i];
+            if (!rooms[i].isUpToDate(room)) {
+                if (next == rooms) {
+                    next = rooms.clone();
+                }
+                next[i] = new RoomSnapshot(room);
+            }
+        }
+        return new StateSnapshot(minutesElapsed, structure, next);
+    }
+
+    /**
+     * Returns the number of minutes simulated when the snapshot was
+     * captured.
+     *
+     * @return minutes elapsed
+     */
+    public long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Returns the copy of the given room.
+     *
+     * @param room room to look up
+     * @return copy of the room, or null if the room was not in the
+     * buildings when the snapshot was captured
+     */
+    public RoomSnapshot getRoom(Room room) {
+        Integer index = structure.roomIndexes.get(room);
+        return index == null ? null : rooms[index];
+    }
+
+    /**
+     * Returns the encoded maintenance schedule of the given floor, see
+     * {@link bms.floor.MaintenanceSchedule#encode()}.
+     *
+     * @param floor floor to look up
+     * @return encoded maintenance schedule, or null if the floor had none
+     * when the snapshot was captured
+     */
+    public String getMaintenanceSchedule(Floor floor) {
+        return structure.maintenanceSchedules.get(floor);
+    }
+
+    /**
+     * Rooms of the buildings, and the encoded maintenance schedule of each
+     * floor, which only changes when the structure does.
+     */
+    private static final class Structure {
+        /**
+         * Every room in the buildings.
+         */
+        private final Room[] rooms;
+
+        /**
+         * Position of each room in {@link #rooms}, keyed by the room itself.
+         */
+        private final Map<Room, Integer> roomIndexes;
+
+        /**
+         * Encoded maintenance schedule of each floor which has one, keyed by
+         * the floor itself.
+         */
+        private final Map<Floor, String> maintenanceSchedules;
+
+        private Structure(List<Building> buildings) {
+            // rooms and floors are keyed by identity, as equal rooms on
+            // different floors must not share a snapshot
+            List<Room> allRooms = new ArrayList<>();
+            Map<Room, Integer> roomIndexes = new IdentityHashMap<>();
+            Map<Floor, String> maintenanceSchedules = new IdentityHashMap<>();
+            for (Building building : buildings) {
+                for (Floor floor : building.getFloors()) {
+                    if (floor.getMaintenanceSchedule() != null) {
+                        maintenanceSchedules.put(floor,
+                                floor.getMaintenanceSchedule().encode());
+                    }
+                    for (Room room : floor.getRooms()) {
+                        roomIndexes.put(room, allRooms.size());
+                        allRooms.add(room);
+                    }
+                }
+            }
+            this.rooms = allRooms.toArray(new Room[0]);
+            this.roomIndexes = Collections.unmodifiableMap(roomIndexes);
+            this.maintenanceSchedules =
+                    Collections.unmodifiableMap(maintenanceSchedules);
+        }
+    }
+
+    /**
+     * Immutable copy of the parts of a room which change as the simulation
+     * moves forward.
+     */
+    public static final class RoomSnapshot {
+        /**
+         * State of the room.
+         */
+        private final RoomState state;
+
+        /**
+         * Hazard level of the room; 0 if it has no hazard evaluator.
+         */
+        private final int hazardLevel;
+
+        /**
+         * Whether a fire drill is ongoing.
+         */
+        private final boolean fireDrill;
+
+        /**
+         * Whether maintenance is ongoing.
+         */
+        private final boolean maintenance;
+
+        /**
+         * Current reading of each sensor, keyed by the sensor's simple class
+         * name, in the order of the room's sensors.
+         */
+        private final Map<String, Integer> readings;
+
+        /**
+         * Reading change count of the room when it was copied, see
+         * {@link Room#getReadingChangeCount()}.
+         */
+        private final int readingChanges;
+
+        private RoomSnapshot(Room room) {
+            // read first, so a reading changing while the room is copied
+            // makes the copy out of date
+            this.readingChanges = room.getReadingChangeCount();
+            this.state = room.evaluateRoomState();
+            this.hazardLevel = room.evaluateHazardLevel();
+            this.fireDrill = room.fireDrillOngoing();
+            this.maintenance = room.maintenanceOngoing();
+            Map<String, Integer> readings = new LinkedHashMap<>();
+            for (Sensor sensor : room.getSensors()) {
+                readings.put(sensor.getClass().getSimpleName(),
+                        sensor.getCurrentReading());
+            }
+            this.readings = Collections.unmodifiableMap(readings);
+        }
+
+        /**
+         * Returns whether this copy still matches the given room, the room
+         * it was copied from.
+         *
+         * @param room room this is a copy of
+         * @return true if the room has not changed since it was copied
+         */
+        private boolean isUpToDate(Room room) {
+            return readingChanges != -1
+                    && readingChanges == room.getReadingChangeCount()
+                    && fireDrill == room.fireDrillOngoing()
+                    && maintenance == room.maintenanceOngoing();
+        }
+
+        /**
+         * Returns the state of the room, see {@link Room#evaluateRoomState()}.
+         *
+         * @return room state
+         */
+        public RoomState getState() {
+            return state;
+        }
+
+        /**
+         * Returns the hazard level of the room, see
+         * {@link Room#evaluateHazardLevel()}.
+         *
+         * @return hazard level; 0 if the room has no hazard evaluator
+         */
+        public int getHazardLevel() {
+            return hazardLevel;
+        }
+
+        /**
+         * Returns whether a fire drill is ongoing in the room.
+         *
+         * @return true if a fire drill is ongoing
+         */
+        public boolean fireDrillOngoing() {
+            return fireDrill;
+        }
+
+        /**
+         * Returns whether maintenance is ongoing in the room.
+         *
+         * @return true if maintenance is ongoing
+         */
+        public boolean maintenanceOngoing() {
+            return maintenance;
+        }
+
+        /**
+         * Returns the current reading of the room's sensor of the given
+         * type.
+         *
+         * @param sensorType simple class name of the sensor, eg.
+         *                   "TemperatureSensor"
+         * @return current reading, or null if the room has no such sensor
+         */
+        public Integer getReading(String sensorType) {
+            return readings.get(sensorType);
+        }
+
+        /**
+         * Returns true if and only if this room snapshot is equal to the
+         * other given object.
+         * <p>
+         * Two room snapshots are equal if they have the same state, hazard
+         * level, fire drill and maintenance status, and readings.
+         *
+         * @param obj other object to compare equality
+         * @return true if equal, false otherwise
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RoomSnapshot)) {
+                return false;
+            }
+            RoomSnapshot other = (RoomSnapshot) obj;
+            return state == other.state
+                    && hazardLevel == other.hazardLevel
+                    && fireDrill == other.fireDrill
+                    && maintenance == other.maintenance
+                    && readings.equals(other.readings);
+        }
+
+        /**
+         * Returns the hash code of this room snapshot.
+         * <p>
+         * Two room snapshots that are equal according to
+         * {@link RoomSnapshot#equals(Object)} have the same hash code.
+         *
+         * @return hash code of this room snapshot
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(state, hazardLevel, fireDrill, maintenance,
+                    readings);
+        }
+    }
+}
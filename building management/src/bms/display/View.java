@@ -6,6 +6,7 @@ import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.OccupancySensor;
 import bms.sensors.Sensor;
+import bms.util.SimulationClock;
 import bms.util.StudyRoomRecommender;
 import javafx.animation.AnimationTimer;
 import javafx.beans.property.ReadOnlyDoubleProperty;
@@ -51,6 +52,15 @@ public class View {
     private static final double INFO_BOX_WIDTH = 200;
     private static final double BUTTON_PANE_WIDTH = 150;
 
+    // Simulation speeds offered, in simulated minutes per second
+    private static final Map<String, Double> SPEEDS = new LinkedHashMap<>();
+    static {
+        SPEEDS.put("1x", SimulationClock.REAL_TIME);
+        SPEEDS.put("10x", 10 * SimulationClock.REAL_TIME);
+        SPEEDS.put("1000x", 1000 * SimulationClock.REAL_TIME);
+        SPEEDS.put("Max", SimulationClock.AS_FAST_AS_POSSIBLE);
+    }
+
     private Stage stage;
     private VBox mainWindow;
     private Pane structurePane;
@@ -60,8 +70,6 @@ public class View {
     // Queue of key presses
     private LinkedList<KeyCode> input;
 
-    private long lastNanoTime = 0;
-
     /**
      * @ass2_given
      */
@@ -368,15 +376,24 @@ public class View {
         var findStudyRoomButton = new Button("Find Study Room");
         findStudyRoomButton.setMaxWidth(Double.MAX_VALUE);
         findStudyRoomButton.setOnAction(e -> {
-            Room studyRoom = StudyRoomRecommender.recommendStudyRoom(
-                    viewModel.getSelectedBuilding());
-            if (studyRoom == null) {
+            // sensor readings are moved forward on the simulation thread
+            String recommendation;
+            viewModel.getStateLock().lock();
+            try {
+                Room studyRoom = StudyRoomRecommender.recommendStudyRoom(
+                        viewModel.getSelectedBuilding());
+                recommendation = studyRoom == null ? null
+                        : studyRoom.toString();
+            } finally {
+                viewModel.getStateLock().unlock();
+            }
+            if (recommendation == null) {
                 viewModel.createErrorDialog("Could not find study room",
                         "No suitable study rooms found in the building");
                 return;
             }
             viewModel.createInfoDialog("Study Room Recommendation", null,
-                    studyRoom.toString());
+                    recommendation);
         });
 
         buttonPane.getChildren().addAll(globalLabel, addBuildingButton,
@@ -459,17 +476,33 @@ public class View {
                         + "- Select a floor or room by clicking on it with the "
                         + "left mouse button\n"));
 
+        var speedChoice = new ChoiceBox<String>();
+        speedChoice.getItems().addAll(SPEEDS.keySet());
+        speedChoice.setValue("1x");
+        speedChoice.setFocusTraversable(false);
+        speedChoice.setOnAction(e -> viewModel.setSimulationSpeed(
+                SPEEDS.get(speedChoice.getValue())));
+
         var timeElapsedLabel = new Label();
         timeElapsedLabel.textProperty().bind(viewModel.getTimeElapsedProperty());
         timeElapsedLabel.setFont(new Font(14)); // make it a little larger
         timeElapsedLabel.setMaxHeight(Double.MAX_VALUE); // centered vertically
         timeElapsedLabel.setAlignment(Pos.CENTER);
 
+        // progress and finish time of background quicksaves
+        var saveStatusLabel = new Label();
+        saveStatusLabel.textProperty().bind(viewModel.getSaveStatusProperty());
+        saveStatusLabel.setMaxHeight(Double.MAX_VALUE);
+        saveStatusLabel.setAlignment(Pos.CENTER);
+
         var buttonContainer = new HBox(10);
-        buttonContainer.getChildren().addAll(pauseButton, saveButton,
-                resetViewButton, helpButton);
+        buttonContainer.getChildren().addAll(pauseButton, speedChoice,
+                saveButton, resetViewButton, helpButton);
+        var statusContainer = new HBox(20);
+        statusContainer.getChildren().addAll(saveStatusLabel,
+                timeElapsedLabel);
         infoBar.setLeft(buttonContainer);
-        infoBar.setRight(timeElapsedLabel);
+        infoBar.setRight(statusContainer);
         return infoBar;
     }
 
@@ -484,10 +517,8 @@ public class View {
                     var key = input.pop();
                     viewModel.accept(key);
                 }
-                if (currentNanoTime - lastNanoTime > 1000000000) {
-                    lastNanoTime = currentNanoTime;
-                    viewModel.tick();
-                }
+                // the simulation clock ticks on its own thread
+                viewModel.tick();
                 if (viewModel.isChanged()) {
                     viewModel.notChanged();
                     update();
@@ -1,6 +1,7 @@
 package bms.display;
 
 import bms.building.Building;
+import bms.building.ChangeJournal;
 import bms.exceptions.*;
 import bms.floor.Floor;
 import bms.hazardevaluation.RuleBasedHazardEvaluator;
@@ -8,7 +9,9 @@ import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.SimulationClock;
 import bms.util.TimedItemManager;
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.scene.control.Alert;
 import javafx.scene.input.KeyCode;
@@ -16,7 +19,17 @@ import javafx.scene.input.KeyCode;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * View model for the GUI - you will need to implement a few methods here.
@@ -46,11 +59,53 @@ public class ViewModel {
     private BooleanProperty roomSelected = new SimpleBooleanProperty(false);
     private BooleanProperty noSelected = new SimpleBooleanProperty(true);
 
+    private StringProperty saveStatus = new SimpleStringProperty("");
+
+    // held for writing while the structure of the buildings is changed, and
+    // for reading while it is saved; the simulation clock does not take it,
+    // so saves never hold up the simulation
+    private final ReadWriteLock modelLock = new ReentrantReadWriteLock(true);
+
+    // held while the buildings are changed in any way: by the simulation
+    // clock moving them forward, or by a structural change (which also holds
+    // the model write lock); fair, so the GUI is not starved by a fast clock
+    private final Lock stateLock = new ReentrantLock(true);
+    private final BackgroundSaver backgroundSaver =
+            new BackgroundSaver(modelLock);
+
+    // saves the buildings at intervals; null if autosave is not started
+    private volatile AutosaveService autosave;
+
+    // moves the simulation forward on its own thread while unpaused
+    private final SimulationClock clock =
+            new SimulationClock(this::simulateOneMinute);
+
+    // what the buildings looked like after the last simulated minute or
+    // structural change; replaced whole, so the GUI never sees half a minute
+    private volatile StateSnapshot snapshot;
+
+    // number of instructions carried out, which may have changed the
+    // structure of the buildings; only used on the JavaFX thread
+    private int structuralChanges;
+
+    // errors met while carrying out an instruction, shown once the model
+    // lock has been released; only used on the JavaFX thread
+    private final List<String[]> instructionErrors = new ArrayList<>();
+
+    // records each structural change; null if changes are not journalled
+    private ChangeJournal changeJournal;
+
+    /**
+     * Number of changes the journal may hold before it is compacted.
+     */
+    private static final int COMPACT_AFTER = 500;
+
     /**
      * @ass2_given
      */
     public ViewModel(List<Building> buildings) {
         this.buildings = buildings;
+        this.snapshot = StateSnapshot.capture(buildings, 0);
     }
 
     /**
@@ -75,12 +130,7 @@ public class ViewModel {
         } else if (keyCode.equals(KeyCode.Q)) {
             System.exit(0);
         } else if (keyCode.equals(KeyCode.S)) {
-            try {
-                save("saves/quicksave.txt");
-            } catch (IOException e) {
-
-            }
-
+            saveInBackground("saves/quicksave.txt");
         }
     }
 
@@ -104,7 +154,7 @@ public class ViewModel {
             paused.setValue(true);
             pauseButtonText.setValue("Unpause");
         }
-
+        clock.setPaused(paused.get());
 
     }
 
@@ -125,43 +175,243 @@ public class ViewModel {
      * @ass2
      */
     public void save(String filename) throws IOException {
-        BufferedWriter bufferedWriter =
-                new BufferedWriter(new FileWriter(filename));
-        for (Building building : buildings) {
-            bufferedWriter.write(building.encode());
+        // each building is streamed to the file as it is encoded
+        modelLock.readLock().lock();
+        try (BufferedWriter bufferedWriter =
+                     new BufferedWriter(new FileWriter(filename))) {
+            for (Building building : buildings) {
+                building.encodeTo(bufferedWriter);
+            }
+        } finally {
+            modelLock.readLock().unlock();
         }
-        bufferedWriter.close();
-
+    }
 
+    /**
+     * Starts saving the buildings to the given file on a background thread,
+     * as {@link #save(String)} would, and returns straight away.
+     * <p>
+     * The file is only replaced once the save is complete. Progress, and
+     * the time the save finished (or why it failed), are reported through
+     * the property returned by {@link #getSaveStatusProperty()}.
+     *
+     * @param filename path of file to save to
+     */
+    public void saveInBackground(String filename) {
+        saveStatus.setValue("Saving...");
+        backgroundSaver.save(buildings, Path.of(filename),
+                createSaveStatusListener());
     }
 
     /**
-     * Moves the simulation forward by one "virtual" minute if not paused.
+     * Starts saving the buildings automatically into the given directory,
+     * replacing any autosave started before. No saves are made until an
+     * interval is set on the returned service. Each simulated minute that
+     * passes in {@link #tick()} is counted by the service.
      * <p>
-     * If the simulation is paused, no action should be taken.
-     * Otherwise, the {@link TimedItemManager#elapseOneMinute()} method should
-     * be called to  elapse one minute on all registered timed items.
+     * Progress is reported in the same way as for
+     * {@link #saveInBackground(String)}.
+     *
+     * @param directory      directory to save into
+     * @param keep           number of saves to keep
+     * @param bytesPerSecond most bytes to write per second; 0 for no limit
+     * @return service making the saves
+     * @throws IOException if the directory could not be created or listed
+     */
+    public AutosaveService startAutosave(Path directory, int keep,
+                                         long bytesPerSecond)
+            throws IOException {
+        if (autosave != null) {
+            autosave.shutdown();
+        }
+        autosave = new AutosaveService(buildings, modelLock, directory, keep,
+                bytesPerSecond, createSaveStatusListener());
+        return autosave;
+    }
+
+    /**
+     * Creates a listener which reports the progress of a background save
+     * through the save status property.
+     *
+     * @return listener updating the save status on the JavaFX thread
+     */
+    private BackgroundSaver.Listener createSaveStatusListener() {
+        return new BackgroundSaver.Listener() {
+            @Override
+            public void saveProgress(int buildingsSaved, int buildingCount) {
+                Platform.runLater(() -> saveStatus.setValue(
+                        "Saving... " + buildingsSaved + "/"
+                                + buildingCount + " buildings"));
+            }
+
+            @Override
+            public void saveFinished(Path path, Instant finishTime) {
+                LocalTime time = LocalTime.ofInstant(finishTime,
+                        ZoneId.systemDefault())
+                        .truncatedTo(ChronoUnit.SECONDS);
+                Platform.runLater(() -> saveStatus.setValue(
+                        "Saved " + path.getFileName() + " at "
+                                + time.format(
+                                DateTimeFormatter.ISO_LOCAL_TIME)));
+            }
+
+            @Override
+            public void saveFailed(Path path, IOException exception) {
+                Platform.runLater(() -> saveStatus.setValue(
+                        "Could not save " + path.getFileName()
+                                + ": " + exception.getMessage()));
+            }
+        };
+    }
+
+    /**
+     * Returns the status of the most recent background save, see
+     * {@link #saveInBackground(String)}.
+     *
+     * @return property holding the save status; empty before the first save
+     */
+    public StringProperty getSaveStatusProperty() {
+        return saveStatus;
+    }
+
+    /**
+     * Records every change made to the structure of the buildings from now
+     * on in the given journal, which must have been created for, or opened
+     * with, the buildings of this view model. The journal is compacted in
+     * the background once it holds {@value #COMPACT_AFTER} changes.
+     *
+     * @param changeJournal journal to record changes in; null to stop
+     *                      recording changes
+     */
+    public void setChangeJournal(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
+
+    /**
+     * Writes a change to the journal, if there is one.
+     */
+    private interface JournalRecord {
+        void writeTo(ChangeJournal journal) throws IOException;
+    }
+
+    /**
+     * Records a change which has just been made in the journal, if there is
+     * one. If the change cannot be recorded, changes stop being journalled,
+     * since the journal no longer matches the buildings.
+     *
+     * @param record writes the change to the journal
+     */
+    private void record(JournalRecord record) {
+        if (changeJournal == null) {
+            return;
+        }
+        try {
+            record.writeTo(changeJournal);
+        } catch (IOException e) {
+            changeJournal = null;
+            reportError("Could not record change",
+                    "Changes are no longer being journalled: "
+                            + e.getMessage());
+            return;
+        }
+        if (changeJournal.getRecordCount() >= COMPACT_AFTER) {
+            changeJournal.compactInBackground(stateLock);
+        }
+    }
+
+    /**
+     * Changes the number of simulated minutes which pass every wall-clock
+     * second while the simulation is not paused, see
+     * {@link SimulationClock#setSpeed(double)}.
+     *
+     * @param speed simulated minutes per second;
+     *              {@link SimulationClock#AS_FAST_AS_POSSIBLE} to run the
+     *              simulation as fast as possible
+     * @throws IllegalArgumentException if speed is not positive
+     */
+    public void setSimulationSpeed(double speed) {
+        clock.setSpeed(speed);
+    }
+
+    /**
+     * Shows the time the simulation has moved forward by.
      * <p>
-     * The value of the internal <code>ticks</code> IntegerProperty should be
-     * incremented by one, and the value of the <code>timeElapsed</code>
-     * StringProperty should be updated to contain "X minutes elapsed" where
-     * X is the number of ticks elapsed.
+     * While the simulation is not paused, it is moved forward by a
+     * {@link SimulationClock} on a thread of its own, at the speed set by
+     * {@link #setSimulationSpeed(double)}. This method should be called by
+     * the GUI once per frame; it picks up the minutes the clock has
+     * simulated since the last call.
      * <p>
-     * Finally, the <code>registerChange()</code> method should be called.
+     * If any minutes have passed, the value of the internal
+     * <code>ticks</code> IntegerProperty is set to the minutes elapsed, the
+     * value of the <code>timeElapsed</code> StringProperty is updated to
+     * contain "X minutes elapsed" where X is the number of minutes, and
+     * the <code>registerChange()</code> method is called.
      *
      * @ass2
      */
     public void tick() {
-        if (!paused.get()) {
-            TimedItemManager.getInstance().elapseOneMinute();
-            ticks.setValue(ticks.get()+1);
-            timeElapsed.setValue(
-                     this.ticks.getValue()+ " minutes " +
-                             "elapsed");
+        long minutes = snapshot.getMinutesElapsed();
+        if (minutes != ticks.get()) {
+            ticks.set((int) minutes);
+            timeElapsed.setValue(minutes + " minutes elapsed");
             registerChange();
         }
     }
 
+    /**
+     * Moves the buildings forward by one minute. Called on the simulation
+     * clock's thread.
+     */
+    private void simulateOneMinute() {
+        stateLock.lock();
+        try {
+            TimedItemManager.getInstance().elapseOneMinute();
+            // structure only changes on the JavaFX thread, holding this lock
+            snapshot = snapshot.next(snapshot.getMinutesElapsed() + 1);
+        } finally {
+            stateLock.unlock();
+        }
+        AutosaveService currentAutosave = autosave;
+        if (currentAutosave != null) {
+            currentAutosave.minuteElapsed();
+        }
+    }
+
+    /**
+     * Returns the state of the buildings after the last simulated minute or
+     * structural change. Unlike the buildings themselves, it may be read on
+     * any thread without holding the model lock.
+     *
+     * @return latest snapshot of the buildings
+     */
+    StateSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns a count which goes up whenever the floors, rooms or sensors of
+     * the buildings may have changed, so anything worked out from their
+     * structure, eg. where to draw each room, must be worked out again.
+     *
+     * @return number of possible structural changes so far
+     */
+    int getStructuralChanges() {
+        return structuralChanges;
+    }
+
+    /**
+     * Returns the lock held while the buildings are changed in any way,
+     * including by the simulation clock moving them forward. It must be held
+     * while the values the clock changes are read from the buildings rather
+     * than from {@link #getSnapshot()}.
+     *
+     * @return lock held while the buildings are changed
+     */
+    Lock getStateLock() {
+        return stateLock;
+    }
+
     /**
      * @ass2_given
      */
@@ -262,6 +512,9 @@ public class ViewModel {
      * @ass2_given
      */
     public void updateInfoText() {
+        // values the clock changes come from the snapshot; the structure is
+        // only changed on this thread
+        StateSnapshot current = snapshot;
         StringJoiner joiner = new StringJoiner(System.lineSeparator());
 
         Building building = this.getSelectedBuilding();
@@ -283,19 +536,21 @@ public class ViewModel {
         joiner.add("Free Area: " + (this.selectedFloor.calculateArea()
                 - this.selectedFloor.occupiedArea()));
         joiner.add("Rooms: " + this.selectedFloor.getRooms().size());
-        if (this.selectedFloor.getMaintenanceSchedule() != null) {
-            joiner.add("Maintenance Sched.: " +
-                    this.selectedFloor.getMaintenanceSchedule().encode());
+        String maintenanceSchedule =
+                current.getMaintenanceSchedule(this.selectedFloor);
+        if (maintenanceSchedule != null) {
+            joiner.add("Maintenance Sched.: " + maintenanceSchedule);
         }
 
-        if (roomSelected.get()) {
+        StateSnapshot.RoomSnapshot room = current.getRoom(this.selectedRoom);
+        if (roomSelected.get() && room != null) {
             joiner.add("\nRoom");
             joiner.add("Number: " + this.selectedRoom.getRoomNumber());
             joiner.add("Type: " + this.selectedRoom.getType());
             joiner.add("Area: " + this.selectedRoom.getArea());
-            joiner.add("Fire Drill: " + this.selectedRoom.fireDrillOngoing());
-            joiner.add("Maintenance: " + this.selectedRoom.maintenanceOngoing());
-            joiner.add("State: " + this.selectedRoom.evaluateRoomState());
+            joiner.add("Fire Drill: " + room.fireDrillOngoing());
+            joiner.add("Maintenance: " + room.maintenanceOngoing());
+            joiner.add("State: " + room.getState());
             joiner.add("Sensors: " + this.selectedRoom.getSensors().size());
             if (this.selectedRoom.getHazardEvaluator() != null) {
                 joiner.add("Hazard Evaluator: "
@@ -380,6 +635,41 @@ public class ViewModel {
                 return;
             }
         }
+        // background saves must not see a half-made change, and the clock
+        // must not move the buildings forward while they are changed
+        modelLock.writeLock().lock();
+        stateLock.lock();
+        try {
+            carryOutInstruction(option, args);
+            structuralChanges++;
+            snapshot = StateSnapshot.capture(buildings,
+                    snapshot.getMinutesElapsed());
+        } finally {
+            stateLock.unlock();
+            modelLock.writeLock().unlock();
+        }
+        // shown once unlocked, so saves and the simulation clock carry on
+        // while a dialog is open
+        for (String[] error : instructionErrors) {
+            createErrorDialog(error[0], error[1]);
+        }
+        instructionErrors.clear();
+    }
+
+    /**
+     * Reports an error met while carrying out an instruction. The error is
+     * shown in a dialog once the instruction has finished and the model lock
+     * has been released, see {@link #takeInstruction(ButtonOptions, List)}.
+     *
+     * @param headerText  header of the error dialog
+     * @param contentText content of the error dialog
+     */
+    private void reportError(String headerText, String contentText) {
+        instructionErrors.add(new String[]{headerText, contentText});
+    }
+
+    private void carryOutInstruction(ButtonOptions option,
+                                     List<Optional<String>> args) {
         switch (option) {
             case ADD_BUILDING:
                 addBuilding(args.get(0).orElse(""));
@@ -423,7 +713,7 @@ public class ViewModel {
             try {
                 roomNumber = Integer.parseInt(arg.get());
             } catch (NumberFormatException e) {
-                createErrorDialog("Could not add maintenance schedule",
+                reportError("Could not add maintenance schedule",
                         "Room number must be an integer");
                 return;
             }
@@ -432,21 +722,25 @@ public class ViewModel {
         try {
             this.selectedFloor.createMaintenanceSchedule(roomOrder);
         } catch (IllegalArgumentException e) {
-            createErrorDialog("Could not add maintenance schedule",
+            reportError("Could not add maintenance schedule",
                     e.getMessage());
             return;
         }
 
+        record(journal -> journal.recordCreateMaintenanceSchedule(
+                currentBuildingIndex.get(),
+                selectedFloor.getFloorNumber(), roomOrder));
         this.registerChange();
     }
 
     private void addBuilding(String buildingName) {
         if (buildingName.isBlank()) {
-            createErrorDialog("Could not create building",
+            reportError("Could not create building",
                     "Building name must contain non-whitespace characters");
             return;
         }
         this.buildings.add(new Building(buildingName));
+        record(journal -> journal.recordAddBuilding(buildingName));
         this.registerChange();
     }
 
@@ -466,7 +760,7 @@ public class ViewModel {
         try {
             floorWidth = Integer.parseInt(width);
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add floor",
+            reportError("Could not add floor",
                     "Floor width must be an integer");
             return;
         }
@@ -475,7 +769,7 @@ public class ViewModel {
         try {
             floorLength = Integer.parseInt(length);
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add floor",
+            reportError("Could not add floor",
                     "Floor length must be an integer");
             return;
         }
@@ -485,13 +779,15 @@ public class ViewModel {
             currentBuilding.addFloor(newFloor);
         } catch (DuplicateFloorException | NoFloorBelowException e) {
             // should never happen
-            createErrorDialog("Could not add floor", e.getMessage());
+            reportError("Could not add floor", e.getMessage());
             return;
         } catch (FloorTooSmallException | IllegalArgumentException e) {
-            createErrorDialog("Could not add floor", e.getMessage());
+            reportError("Could not add floor", e.getMessage());
             return;
         }
 
+        record(journal -> journal.recordAddFloor(currentBuildingIndex.get(),
+                newFloor));
         this.registerChange();
     }
 
@@ -500,7 +796,7 @@ public class ViewModel {
         try {
             roomNumber = Integer.parseInt(number);
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add room",
+            reportError("Could not add room",
                     "Room number must be an integer");
             return;
         }
@@ -509,7 +805,7 @@ public class ViewModel {
         try {
             roomType = RoomType.valueOf(type);
         } catch (IllegalArgumentException e) {
-            createErrorDialog("Could not add room",
+            reportError("Could not add room",
                     "Room type is invalid");
             return;
         }
@@ -518,7 +814,7 @@ public class ViewModel {
         try {
             roomArea = Double.parseDouble(area);
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add room",
+            reportError("Could not add room",
                     "Room area must be a double");
             return;
         }
@@ -532,10 +828,12 @@ public class ViewModel {
             currentFloor.addRoom(newRoom);
         } catch (InsufficientSpaceException | DuplicateRoomException
                 | IllegalArgumentException e) {
-            createErrorDialog("Could not add room", e.getMessage());
+            reportError("Could not add room", e.getMessage());
             return;
         }
 
+        record(journal -> journal.recordAddRoom(currentBuildingIndex.get(),
+                currentFloor.getFloorNumber(), newRoom));
         this.registerChange();
     }
 
@@ -550,7 +848,7 @@ public class ViewModel {
         try {
             getSelectedBuilding().fireDrill(roomType);
         } catch (FireDrillException e) {
-            createErrorDialog("Could not start fire drill", e.getMessage());
+            reportError("Could not start fire drill", e.getMessage());
             return;
         }
 
@@ -567,7 +865,7 @@ public class ViewModel {
         try {
             newWidth = Double.parseDouble(width);
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not renovate floor",
+            reportError("Could not renovate floor",
                     "Floor width must be a double");
             return;
         }
@@ -576,7 +874,7 @@ public class ViewModel {
         try {
             newLength = Double.parseDouble(length);
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not renovate floor",
+            reportError("Could not renovate floor",
                     "Floor length must be a double");
             return;
         }
@@ -585,10 +883,13 @@ public class ViewModel {
             getSelectedBuilding().renovateFloor(
                     getSelectedFloor().getFloorNumber(), newWidth, newLength);
         } catch (FloorTooSmallException | IllegalArgumentException e) {
-            createErrorDialog("Could not renovate floor", e.getMessage());
+            reportError("Could not renovate floor", e.getMessage());
             return;
         }
 
+        record(journal -> journal.recordRenovateFloor(
+                currentBuildingIndex.get(),
+                getSelectedFloor().getFloorNumber(), newWidth, newLength));
         this.registerChange();
     }
 
@@ -602,19 +903,20 @@ public class ViewModel {
             sensorReadings = Arrays.stream(args.get(1).get().split(","))
                     .mapToInt(Integer::valueOf).toArray();
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add sensor", "Sensor readings must be "
+            reportError("Could not add sensor", "Sensor readings must be "
                     + "a comma-separated list of integers");
             return;
         }
 
         if (sensorType.equals("TemperatureSensor")) {
+            Sensor sensor = new TemperatureSensor(sensorReadings);
             try {
-                getSelectedRoom().addSensor(
-                        new TemperatureSensor(sensorReadings));
+                getSelectedRoom().addSensor(sensor);
             } catch (DuplicateSensorException e) {
-                createErrorDialog("Could not add sensor", e.getMessage());
+                reportError("Could not add sensor", e.getMessage());
                 return;
             }
+            recordAddSensor(sensor);
             this.registerChange();
             return;
         }
@@ -626,19 +928,20 @@ public class ViewModel {
         try {
             updateFrequency = Integer.parseInt(args.get(2).get());
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add sensor",
+            reportError("Could not add sensor",
                     "Sensor update frequency must be an integer");
             return;
         }
 
         if (sensorType.equals("NoiseSensor")) {
+            Sensor sensor = new NoiseSensor(sensorReadings, updateFrequency);
             try {
-                getSelectedRoom().addSensor(new NoiseSensor(sensorReadings,
-                        updateFrequency));
+                getSelectedRoom().addSensor(sensor);
             } catch (DuplicateSensorException e) {
-                createErrorDialog("Could not add sensor", e.getMessage());
+                reportError("Could not add sensor", e.getMessage());
                 return;
             }
+            recordAddSensor(sensor);
             this.registerChange();
             return;
         }
@@ -651,17 +954,19 @@ public class ViewModel {
             try {
                 capacity = Integer.parseInt(args.get(3).get());
             } catch (NumberFormatException e) {
-                createErrorDialog("Could not add sensor",
+                reportError("Could not add sensor",
                         "Sensor capacity must be an integer");
                 return;
             }
+            Sensor sensor = new OccupancySensor(sensorReadings,
+                    updateFrequency, capacity);
             try {
-                getSelectedRoom().addSensor(new OccupancySensor(sensorReadings,
-                        updateFrequency, capacity));
+                getSelectedRoom().addSensor(sensor);
             } catch (DuplicateSensorException e) {
-                createErrorDialog("Could not add sensor", e.getMessage());
+                reportError("Could not add sensor", e.getMessage());
                 return;
             }
+            recordAddSensor(sensor);
             this.registerChange();
             return;
         }
@@ -673,28 +978,36 @@ public class ViewModel {
         try {
             idealValue = Integer.parseInt(args.get(3).get());
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add sensor",
+            reportError("Could not add sensor",
                     "Sensor ideal value must be an integer");
             return;
         }
         try {
             varLimit = Integer.parseInt(args.get(4).get());
         } catch (NumberFormatException e) {
-            createErrorDialog("Could not add sensor",
+            reportError("Could not add sensor",
                     "Sensor variation limit must be an integer");
             return;
         }
+        Sensor sensor = new CarbonDioxideSensor(sensorReadings,
+                updateFrequency, idealValue, varLimit);
         try {
-            getSelectedRoom().addSensor(new CarbonDioxideSensor(sensorReadings,
-                    updateFrequency, idealValue, varLimit));
+            getSelectedRoom().addSensor(sensor);
         } catch (DuplicateSensorException e) {
-            createErrorDialog("Could not add sensor", e.getMessage());
+            reportError("Could not add sensor", e.getMessage());
             return;
         }
 
+        recordAddSensor(sensor);
         this.registerChange();
     }
 
+    private void recordAddSensor(Sensor sensor) {
+        record(journal -> journal.recordAddSensor(currentBuildingIndex.get(),
+                selectedFloor.getFloorNumber(),
+                getSelectedRoom().getRoomNumber(), sensor));
+    }
+
     private void addHazardEvaluator(List<Optional<String>> args)
             throws IllegalArgumentException, NumberFormatException {
         List<HazardSensor> hazardSensors = new ArrayList<>();
@@ -709,6 +1022,7 @@ public class ViewModel {
         if (evaluatorType.equals("Rule Based")) {
             getSelectedRoom().setHazardEvaluator(
                     new RuleBasedHazardEvaluator(hazardSensors));
+            recordSetHazardEvaluator();
             this.registerChange();
             return;
         }
@@ -721,7 +1035,7 @@ public class ViewModel {
                 try {
                     weighting = Integer.parseInt(args.get(i + 1).get());
                 } catch (NumberFormatException e) {
-                    createErrorDialog("Could not add hazard evaluator",
+                    reportError("Could not add hazard evaluator",
                             "Weighting must be an integer");
                     return;
                 }
@@ -732,11 +1046,18 @@ public class ViewModel {
             getSelectedRoom().setHazardEvaluator(
                     new WeightingBasedHazardEvaluator(weightings));
         } catch (IllegalArgumentException e) {
-            createErrorDialog("Could not add hazard evaluator",
+            reportError("Could not add hazard evaluator",
                     e.getMessage());
             return;
         }
 
+        recordSetHazardEvaluator();
         this.registerChange();
     }
+
+    private void recordSetHazardEvaluator() {
+        record(journal -> journal.recordSetHazardEvaluator(
+                currentBuildingIndex.get(), selectedFloor.getFloorNumber(),
+                getSelectedRoom()));
+    }
 }
@@ -7,6 +7,7 @@ import bms.room.Room;
 import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
+import java.io.IOException;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -318,6 +319,31 @@ public class Floor extends Object implements FireDrill, Encodable {
 
     }
 
+    /**
+     * Writes the machine-readable representation of this floor, room by
+     * room, to the given output.
+     *
+     * @param out output to write to.
+     * @throws IOException if the output could not be written.
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        String separator = System.lineSeparator();
+        out.append(String.valueOf(floorNumber)).append(":")
+                .append(String.format("%.2f:%.2f", width, length))
+                .append(":").append(String.valueOf(rooms.size()));
+        if (maintenanceSchedule != null) {
+            out.append(":");
+            maintenanceSchedule.encodeTo(out);
+        }
+        for (Room room : rooms) {
+            out.append(separator);
+            room.encodeTo(out);
+        }
+        // encode() drops the last character of the final line separator
+        out.append(separator, 0, separator.length() - 1);
+    }
+
     /**
      * Returns the floor's maintenance schedule, null if not have.
      *
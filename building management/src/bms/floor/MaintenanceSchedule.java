@@ -3,9 +3,12 @@ package bms.floor;
 import bms.room.Room;
 import bms.room.RoomState;
 import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
 import bms.util.Encodable;
 import bms.util.TimedItem;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -73,6 +76,44 @@ public class MaintenanceSchedule extends Object implements TimedItem
 
     }
 
+    /**
+     * get the rooms maintained, in order.
+     *
+     * @return List new list of the rooms in the order they are maintained.
+     */
+    public List<Room> getRoomOrder() {
+        return new ArrayList<>(roomOrder);
+    }
+
+    /**
+     * get the index of the current room in the room order.
+     *
+     * @return int index of the room now maintained.
+     */
+    public int getCurrentRoomIndex() {
+        return currentRoomIndex;
+    }
+
+    /**
+     * resume the schedule part way through, as saved by
+     * {@link #getCurrentRoomIndex()} and {@link #getTimeElapsedCurrentRoom()}.
+     * The maintenance status of the rooms is not changed.
+     *
+     * @param currentRoomIndex index of the room to maintain in the room
+     *                         order.
+     * @param elapsedTime      minutes already spent maintaining that room.
+     * @throws IllegalArgumentException if the index is not in the room
+     *                                  order, or elapsedTime is negative.
+     */
+    public void resume(int currentRoomIndex, int elapsedTime) {
+        if (currentRoomIndex < 0 || currentRoomIndex >= roomOrder.size()
+                || elapsedTime < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.currentRoomIndex = currentRoomIndex;
+        this.elapsedTime = elapsedTime;
+    }
+
     /**
      * the number of minutes that have elapsed while maintaining the current
      * room.
@@ -115,6 +156,25 @@ public class MaintenanceSchedule extends Object implements TimedItem
 
     }
 
+    /**
+     * Returns the sensors of every room in the schedule, as whether
+     * maintenance moves on depends on the state of the current room.
+     *
+     * @return timed sensors of the rooms in the schedule
+     */
+    @Override
+    public List<TimedSensor> getSensorDependencies() {
+        List<TimedSensor> dependencies = new ArrayList<>();
+        for (Room room : roomOrder) {
+            for (Sensor sensor : room.getSensors()) {
+                if (sensor instanceof TimedSensor) {
+                    dependencies.add((TimedSensor) sensor);
+                }
+            }
+        }
+        return dependencies;
+    }
+
     /**
      * human-readable string representation of this maintenance schedule.
      *
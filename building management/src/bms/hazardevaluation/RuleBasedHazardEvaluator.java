@@ -3,24 +3,47 @@ package bms.hazardevaluation;
 import bms.sensors.HazardSensor;
 import bms.sensors.OccupancySensor;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Evaluates the hazard level of a location using a rule based system.
  */
 public class RuleBasedHazardEvaluator implements HazardEvaluator {
-    // the list of hazard sensors.
-    private List<HazardSensor> sensors;
+    // number of hazard sensors passed to the constructor.
+    private final int sensorCount;
+    // the only sensor, when exactly one sensor was given.
+    private final HazardSensor onlySensor;
+    // sensors other than the occupancy sensor, in the order given.
+    private final HazardSensor[] hazardSensors;
+    // the last occupancy sensor given, null if none.
+    private final OccupancySensor occupancySensor;
 
     /**
      * Create a new rule-based hazard evaluator using the given sensor list.
+     * <p>
+     * The list is compiled once into a fixed plan, with the occupancy
+     * sensor picked out, so later changes to the list do not affect the
+     * evaluator.
      *
      * @param sensors sensors to be used in the hazard level calculation.
      */
     public RuleBasedHazardEvaluator(List<HazardSensor> sensors) {
-        this.sensors = sensors;
-
+        this.sensorCount = sensors.size();
+        this.onlySensor = sensorCount == 1 ? sensors.get(0) : null;
+        OccupancySensor occupancy = null;
+        int otherCount = 0;
+        HazardSensor[] others = new HazardSensor[sensorCount];
+        for (HazardSensor sensor : sensors) {
+            if (sensor.getClass() == OccupancySensor.class) {
+                occupancy = (OccupancySensor) sensor;
+            } else {
+                others[otherCount++] = sensor;
+            }
+        }
+        this.hazardSensors = otherCount == sensorCount ? others
+                : Arrays.copyOf(others, otherCount);
+        this.occupancySensor = occupancy;
     }
 
     /**
@@ -31,33 +54,22 @@ public class RuleBasedHazardEvaluator implements HazardEvaluator {
      */
     @Override
     public int evaluateHazardLevel() {
-        if (sensors.size() == 0) {
+        if (sensorCount == 0) {
             return 0;
         }
-        if (sensors.size() == 1) {
-            return sensors.get(0).getHazardLevel();
-        }
-        LinkedList<HazardSensor> hazardSensors = new LinkedList();
-        OccupancySensor occupancySensor = null;
-        for (HazardSensor sensor : sensors) {
-            String name = sensor.getClass().getSimpleName();
-            if (name.equals("OccupancySensor")) {
-                occupancySensor = (OccupancySensor) sensor;
-            } else {
-                hazardSensors.add(sensor);
-                if (sensor.getHazardLevel() == 100)
-                    return 100;
-
-
-            }
-
+        if (sensorCount == 1) {
+            return onlySensor.getHazardLevel();
         }
         float avg = 0;
         float sum = 0;
-        for (int i = 0; i <= hazardSensors.size() - 1; i++) {
-            sum += hazardSensors.get(i).getHazardLevel();
+        for (HazardSensor sensor : hazardSensors) {
+            int hazardLevel = sensor.getHazardLevel();
+            if (hazardLevel == 100) {
+                return 100;
+            }
+            sum += hazardLevel;
         }
-        avg = sum / hazardSensors.size();
+        avg = sum / hazardSensors.length;
         if (occupancySensor != null) {
             avg = avg * (float) (occupancySensor.getHazardLevel() / 100);
 
@@ -16,8 +16,17 @@ public class WeightingBasedHazardEvaluator extends Object
     /**map with key of hazard sensor and value with integer.*/
     private Map<HazardSensor, Integer> sensors;
 
+    /** sensors of the map, in the map's iteration order. */
+    private final HazardSensor[] planSensors;
+
+    /** factor applied to the hazard level of each sensor in planSensors. */
+    private final float[] planFactors;
+
     /**
      * weighting-based hazard evaluator with the given sensors and weightings.
+     * <p>
+     * The sensors and weightings are compiled once into arrays, so later
+     * changes to the map do not affect the evaluation.
      *
      * @param sensors mapping of sensors with their respective weighting.
      * @throws IllegalArgumentException if the weighting is not legal.
@@ -37,6 +46,15 @@ public class WeightingBasedHazardEvaluator extends Object
         if (sum != 100) {
             throw new IllegalArgumentException();
         }
+        // compile the map once, so evaluation needs no map lookups
+        this.planSensors = new HazardSensor[sensors.size()];
+        this.planFactors = new float[sensors.size()];
+        int i = 0;
+        for (Map.Entry<HazardSensor, Integer> entry : sensors.entrySet()) {
+            planSensors[i] = entry.getKey();
+            planFactors[i] = (float) (entry.getValue() / 100);
+            i++;
+        }
     }
 
     /**
@@ -49,10 +67,8 @@ public class WeightingBasedHazardEvaluator extends Object
     public int evaluateHazardLevel() {
 
         float res = 0;
-        for (HazardSensor sensor : sensors.keySet()) {
-            res += sensor.getHazardLevel() * (float) (sensors.get(sensor) / 100);
-
-
+        for (int i = 0; i < planSensors.length; i++) {
+            res += planSensors[i].getHazardLevel() * planFactors[i];
         }
         return Math.round(res);
 
@@ -72,6 +88,16 @@ public class WeightingBasedHazardEvaluator extends Object
         return res;
     }
 
+    /**
+     * Returns the weighting of the given sensor.
+     *
+     * @param sensor sensor to look up.
+     * @return Integer weighting of the sensor; null if it is not monitored.
+     */
+    public Integer getWeighting(HazardSensor sensor) {
+        return sensors.get(sensor);
+    }
+
     /**
      * the string representation of this hazard evaluator.
      *
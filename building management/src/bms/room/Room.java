@@ -3,12 +3,15 @@ package bms.room;
 import bms.exceptions.DuplicateSensorException;
 import bms.hazardevaluation.HazardEvaluator;
 import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.sensors.ReadingListener;
 import bms.sensors.Sensor;
 import bms.sensors.TemperatureSensor;
 import bms.sensors.TimedSensor;
 import bms.util.Encodable;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a room on a floor of a building.
@@ -63,6 +66,35 @@ public class Room extends Object implements Encodable {
     private HazardEvaluator hazardEvaluator;
     private boolean maintenance;
 
+    /**
+     * Value of the low half of {@link #hazardCache} while no hazard level is
+     * cached.
+     */
+    private static final int NO_HAZARD_LEVEL = -1;
+
+    /**
+     * Hazard level cached from the hazard evaluator, in the low 32 bits, or
+     * {@link #NO_HAZARD_LEVEL}; and, in the high 32 bits, the number of
+     * times the cache has been invalidated. Both halves are changed in one
+     * step, so a level is never seen without knowing whether it is up to
+     * date, and a level worked out from readings which changed while it
+     * was being worked out is never cached.
+     */
+    private final AtomicLong hazardCache = new AtomicLong(
+            cacheWord(0, NO_HAZARD_LEVEL));
+
+    /**
+     * Whether every sensor in the room reports its reading changes, so that
+     * the hazard level may be cached between changes.
+     */
+    private boolean hazardLevelCacheable = true;
+
+    /**
+     * Listener added to each of the room's sensors.
+     */
+    private final ReadingListener readingListener =
+            sensor -> invalidateHazardLevel();
+
 
     /**
      * Creates a new room with the given room number.
@@ -201,6 +233,11 @@ public class Room extends Object implements Encodable {
             }
         }
         sensors.add(sensor);
+        if (sensor instanceof TimedSensor) {
+            ((TimedSensor) sensor).addReadingListener(readingListener);
+        } else {
+            hazardLevelCacheable = false;
+        }
         //Adding a sensor should remove any hazard evaluator currently in the
         // room
         setHazardEvaluator(null);
@@ -223,6 +260,76 @@ public class Room extends Object implements Encodable {
      */
     public void setHazardEvaluator(HazardEvaluator hazardEvaluator) {
         this.hazardEvaluator = hazardEvaluator;
+        invalidateHazardLevel();
+    }
+
+    /**
+     * Returns the hazard level of the room, as calculated by its hazard
+     * evaluator.
+     * <p>
+     * The result is cached until the reading of one of the room's sensors
+     * changes, or the hazard evaluator is replaced, so repeated calls between
+     * ticks are free. The hazard evaluator is assumed to use only the room's
+     * own sensors.
+     *
+     * @return hazard level from 0 to 100; 0 if the room has no hazard
+     * evaluator
+     */
+    public int evaluateHazardLevel() {
+        HazardEvaluator evaluator = this.hazardEvaluator;
+        if (evaluator == null) {
+            return 0;
+        }
+        if (!hazardLevelCacheable) {
+            return evaluator.evaluateHazardLevel();
+        }
+        long cached = hazardCache.get();
+        if ((int) cached != NO_HAZARD_LEVEL) {
+            return (int) cached;
+        }
+        // the sensors are read first; the level is only cached if the cache
+        // has not been invalidated since, ie. no reading has changed
+        int level = evaluator.evaluateHazardLevel();
+        hazardCache.compareAndSet(cached,
+                cacheWord((int) (cached >>> 32), level));
+        return level;
+    }
+
+    /**
+     * Returns a count which changes whenever the reading of one of the
+     * room's sensors changes, or its hazard evaluator is replaced. Anything
+     * worked out from the readings need only be worked out again when the
+     * count has changed.
+     *
+     * @return number of changes so far; -1 if the room has a sensor which
+     * does not report its reading changes, so the readings may change at
+     * any time
+     */
+    public int getReadingChangeCount() {
+        if (!hazardLevelCacheable) {
+            return -1;
+        }
+        return (int) (hazardCache.get() >>> 32);
+    }
+
+    /**
+     * Forgets the cached hazard level, so it is worked out again when next
+     * asked for.
+     */
+    private void invalidateHazardLevel() {
+        hazardCache.updateAndGet(cached -> cacheWord(
+                (int) (cached >>> 32) + 1, NO_HAZARD_LEVEL));
+    }
+
+    /**
+     * Returns the value of {@link #hazardCache} holding the given halves.
+     *
+     * @param invalidations number of times the cache has been invalidated
+     * @param level         cached hazard level, or {@link #NO_HAZARD_LEVEL}
+     * @return cache word
+     */
+    private static long cacheWord(int invalidations, int level) {
+        return ((long) invalidations << 32) | (level & 0xFFFFFFFFL);
     }
 
     /**
@@ -387,6 +494,37 @@ public class Room extends Object implements Encodable {
         }
         return head.toString();
     }
+
+    /**
+     * Writes the machine-readable representation of this room, sensor by
+     * sensor, to the given output.
+     *
+     * @param out output to write to.
+     * @throws IOException if the output could not be written.
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append(String.valueOf(roomNumber)).append(":")
+                .append(type.toString()).append(":")
+                .append(String.format("%.2f", area)).append(":")
+                .append(String.valueOf(sensors.size()));
+        List<Integer> weights = null;
+        if (hazardEvaluator != null) {
+            out.append(":").append(hazardEvaluator.toString());
+            if (hazardEvaluator.getClass()
+                    == WeightingBasedHazardEvaluator.class) {
+                weights = ((WeightingBasedHazardEvaluator) hazardEvaluator)
+                        .getWeightings();
+            }
+        }
+        for (int i = 0; i < sensors.size(); i++) {
+            out.append(System.lineSeparator());
+            ((Encodable) sensors.get(i)).encodeTo(out);
+            if (weights != null) {
+                out.append("@").append(String.valueOf(weights.get(i)));
+            }
+        }
+    }
 }
 
 
@@ -0,0 +1,30 @@
+package bms.sensors;
+
+/**
+ * A reading series backed by an int array on the heap.
+ */
+final class ArrayReadingSeries implements ReadingSeries {
+    /**
+     * Readings of the series.
+     */
+    private final int[] readings;
+
+    /**
+     * Creates a new series over the given array, without copying it.
+     *
+     * @param readings non-empty array of non-negative readings
+     */
+    ArrayReadingSeries(int[] readings) {
+        this.readings = readings;
+    }
+
+    @Override
+    public int size() {
+        return readings.length;
+    }
+
+    @Override
+    public int get(int index) {
+        return readings[index];
+    }
+}
@@ -1,5 +1,6 @@
 package bms.sensors;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -50,6 +51,28 @@ public class CarbonDioxideSensor extends TimedSensor implements
     public CarbonDioxideSensor(int[] sensorReadings, int updateFrequency,
                                int idealValue, int variationLimit)
             throws IllegalArgumentException {
+        this(toSeries(sensorReadings), updateFrequency, idealValue,
+                variationLimit);
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor with the given series of sensor
+     * readings, update frequency, ideal CO2 value and acceptable variation
+     * limit.
+     *
+     * @param sensorReadings series of CO2 sensor readings <b>in ppm</b>
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit) &lt; 0
+     * @see #CarbonDioxideSensor(int[], int, int, int)
+     */
+    public CarbonDioxideSensor(ReadingSeries sensorReadings,
+                               int updateFrequency, int idealValue,
+                               int variationLimit)
+            throws IllegalArgumentException {
         super(sensorReadings, updateFrequency);
 
         if (idealValue <= 0) {
@@ -206,4 +229,19 @@ public class CarbonDioxideSensor extends TimedSensor implements
                 super.encode(),getUpdateFrequency(),idealValue,variationLimit);
 
     }
+
+    /**
+     * Writes the machine-readable representation of this sensor to the
+     * given output.
+     *
+     * @param out output to write to
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("CarbonDioxideSensor:");
+        super.encodeTo(out);
+        out.append(String.format(":%d:%d:%d", getUpdateFrequency(),
+                idealValue, variationLimit));
+    }
 }
@@ -0,0 +1,156 @@
+package bms.sensors;
+
+/**
+ * A reading series stored with frame-of-reference bit-packing.
+ * <p>
+ * The readings are split into blocks of {@value #BLOCK_SIZE}. Each block
+ * stores its smallest reading as a base, and every reading of the block as
+ * its difference from that base, packed using only as many bits as the
+ * largest difference in the block needs. Slowly changing series, such as
+ * CO2 or occupancy readings, therefore take a fraction of the memory of an
+ * int array, while any reading can still be read in constant time.
+ */
+public final class CompressedReadingSeries implements ReadingSeries {
+    /**
+     * Number of readings in each block.
+     */
+    private static final int BLOCK_SIZE = 128;
+
+    /**
+     * log2 of {@link #BLOCK_SIZE}.
+     */
+    private static final int BLOCK_SHIFT = 7;
+
+    /**
+     * Number of readings in the series.
+     */
+    private final int size;
+
+    /**
+     * Smallest reading of each block.
+     */
+    private final int[] bases;
+
+    /**
+     * Number of bits used by each packed reading of each block.
+     */
+    private final byte[] widths;
+
+    /**
+     * Index in {@link #words} of the first word of each block.
+     */
+    private final int[] starts;
+
+    /**
+     * Packed differences of every reading from the base of its block.
+     */
+    private final long[] words;
+
+    /**
+     * Creates a compressed copy of the given series.
+     *
+     * @param readings non-empty series of non-negative readings to compress
+     * @throws IllegalArgumentException if readings is null or empty, or any
+     *                                  reading is less than zero
+     */
+    public CompressedReadingSeries(ReadingSeries readings) {
+        if (readings == null || readings.size() == 0) {
+            throw new IllegalArgumentException("Sensor readings must "
+                    + "not be null and must have at least one element");
+        }
+        this.size = readings.size();
+        int blockCount = (size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        this.bases = new int[blockCount];
+        this.widths = new byte[blockCount];
+        this.starts = new int[blockCount];
+
+        int wordCount = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(from + BLOCK_SIZE, size);
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            for (int i = from; i < to; i++) {
+                int reading = readings.get(i);
+                if (reading < 0) {
+                    throw new IllegalArgumentException(
+                            "All sensor readings must be non-negative");
+                }
+                min = Math.min(min, reading);
+                max = Math.max(max, reading);
+            }
+            int width = 32 - Integer.numberOfLeadingZeros(max - min);
+            bases[block] = min;
+            widths[block] = (byte) width;
+            starts[block] = wordCount;
+            wordCount += ((to - from) * width + 63) >>> 6;
+        }
+
+        this.words = new long[wordCount];
+        for (int block = 0; block < blockCount; block++) {
+            int width = widths[block];
+            if (width == 0) {
+                continue;
+            }
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(from + BLOCK_SIZE, size);
+            for (int i = from; i < to; i++) {
+                long delta = readings.get(i) - bases[block];
+                int bit = (i - from) * width;
+                int word = starts[block] + (bit >>> 6);
+                int shift = bit & 63;
+                words[word] |= delta << shift;
+                if (shift + width > 64) {
+                    words[word + 1] |= delta >>> (64 - shift);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a compressed copy of the given readings.
+     *
+     * @param readings non-empty array of non-negative readings
+     * @throws IllegalArgumentException if readings is null or empty, or any
+     *                                  reading is less than zero
+     */
+    public CompressedReadingSeries(int[] readings) {
+        this(TimedSensor.toSeries(readings));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        int block = index >>> BLOCK_SHIFT;
+        int width = widths[block];
+        if (width == 0) {
+            return bases[block];
+        }
+        int bit = (index & (BLOCK_SIZE - 1)) * width;
+        int word = starts[block] + (bit >>> 6);
+        int shift = bit & 63;
+        long value = words[word] >>> shift;
+        if (shift + width > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return bases[block] + (int) (value & ((1L << width) - 1));
+    }
+
+    /**
+     * Returns the approximate number of bytes used to hold the readings,
+     * not counting object headers.
+     *
+     * @return approximate size of the compressed readings in bytes
+     */
+    public long getCompressedBytes() {
+        return (long) bases.length * (Integer.BYTES * 2 + 1)
+                + (long) words.length * Long.BYTES;
+    }
+}
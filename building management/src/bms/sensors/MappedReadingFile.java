@@ -0,0 +1,323 @@
+package bms.sensors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of sensor readings which are read back through memory mapping, so
+ * that they are kept off the Java heap and paged in by the operating system
+ * only when accessed.
+ * <p>
+ * The file starts with a short header, followed by every appended series as
+ * a run of 32-bit big-endian integers. A series is identified by the offset
+ * (in readings) of its first reading and its length, see
+ * {@link #getSeries(long, int)}.
+ * <p>
+ * The file is mapped in chunks on first access to each chunk.
+ */
+public class MappedReadingFile implements Closeable {
+    /**
+     * Value of the first four bytes of every readings file ("BMSR").
+     */
+    private static final int MAGIC = 0x424D5352;
+
+    /**
+     * Version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * Each chunk maps 2^CHUNK_SHIFT bytes of the file.
+     */
+    private static final int CHUNK_SHIFT = 26;
+
+    /**
+     * Mask giving the position of a byte within its chunk.
+     */
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    /**
+     * Channel to the underlying file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Mapped chunks of the file, null where not yet mapped. Replaced (never
+     * modified) when a chunk is mapped, so readers need no locking.
+     */
+    private volatile MappedByteBuffer[] chunks;
+
+    /**
+     * Number of readings stored in the file.
+     */
+    private long readingCount;
+
+    /**
+     * Opens the given channel, which is positioned after a valid header.
+     *
+     * @param channel channel to the file
+     * @param readingCount number of readings in the file
+     */
+    private MappedReadingFile(FileChannel channel, long readingCount) {
+        this.channel = channel;
+        this.readingCount = readingCount;
+        this.chunks = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Creates a new, empty readings file at the given path, replacing any
+     * existing file.
+     *
+     * @param path path of the file to create
+     * @return readings file open for appending and reading
+     * @throws IOException if the file could not be created
+     */
+    public static MappedReadingFile create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return new MappedReadingFile(channel, 0);
+    }
+
+    /**
+     * Opens an existing readings file at the given path.
+     * <p>
+     * Only the header is read; the readings are checked a series at a time,
+     * as each series is handed out, see {@link #getSeries(long, int)}.
+     *
+     * @param path path of the file to open
+     * @return readings file open for appending and reading
+     * @throws IOException if the file could not be read, or is not a
+     *                     readings file
+     */
+    public static MappedReadingFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if (header.remaining() != HEADER_BYTES || header.getInt() != MAGIC
+                || header.getInt() != VERSION) {
+            channel.close();
+            throw new IOException("Not a sensor readings file: " + path);
+        }
+        return new MappedReadingFile(channel,
+                (channel.size() - HEADER_BYTES) / Integer.BYTES);
+    }
+
+    /**
+     * Returns the number of readings stored in the file.
+     *
+     * @return number of readings
+     */
+    public synchronized long getReadingCount() {
+        return readingCount;
+    }
+
+    /**
+     * Appends the given readings to the end of the file.
+     *
+     * @param readings non-empty array of non-negative readings
+     * @return series reading the appended readings back from the file
+     * @throws IllegalArgumentException if readings is null or empty, or any
+     *                                  reading is less than zero
+     * @throws IOException              if the readings could not be written
+     */
+    public synchronized ReadingSeries append(int[] readings)
+            throws IOException {
+        if (readings == null || readings.length == 0) {
+            throw new IllegalArgumentException("Sensor readings array must "
+                    + "not be null and must have at least one element");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(readings.length
+                * Integer.BYTES);
+        for (int reading : readings) {
+            if (reading < 0) {
+                throw new IllegalArgumentException(
+                        "All sensor readings must be non-negative");
+            }
+            buffer.putInt(reading);
+        }
+        buffer.flip();
+        long position = HEADER_BYTES + readingCount * Integer.BYTES;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        long offset = readingCount;
+        readingCount += readings.length;
+        return new MappedReadingSeries(offset, readings.length);
+    }
+
+    /**
+     * Returns a series over readings already stored in the file.
+     * <p>
+     * The readings of the series are checked as it is handed out, so only
+     * the pages of the file holding this series are read.
+     *
+     * @param offset index of the first reading of the series in the file
+     * @param length number of readings in the series
+     * @return series reading from the file
+     * @throws IllegalArgumentException if the series does not lie within the
+     *                                  readings stored in the file, is
+     *                                  empty, or holds a negative reading
+     */
+    public synchronized ReadingSeries getSeries(long offset, int length) {
+        if (offset < 0 || length < 1 || offset + length > readingCount) {
+            throw new IllegalArgumentException(
+                    "Series is not within the readings file");
+        }
+        for (long index = offset; index < offset + length; index++) {
+            if (getReading(index) < 0) {
+                throw new IllegalArgumentException("Negative sensor reading "
+                        + "at index " + index + " of the readings file");
+            }
+        }
+        return new MappedReadingSeries(offset, length);
+    }
+
+    /**
+     * Returns the offset of the given series within this file.
+     *
+     * @param series series previously returned by this file
+     * @return index of the first reading of the series in the file
+     * @throws IllegalArgumentException if the series was not read from this
+     *                                  file
+     */
+    public long getOffset(ReadingSeries series) {
+        if (!(series instanceof MappedReadingSeries)
+                || ((MappedReadingSeries) series).file() != this) {
+            throw new IllegalArgumentException(
+                    "Series was not read from this file");
+        }
+        return ((MappedReadingSeries) series).offset;
+    }
+
+    /**
+     * Returns whether the given series was read from a readings file.
+     *
+     * @param series series to look at
+     * @return true if the series reads from a readings file
+     */
+    static boolean isMappedSeries(ReadingSeries series) {
+        return series instanceof MappedReadingSeries;
+    }
+
+    /**
+     * Closes the underlying file. Series read from the file must not be used
+     * afterwards.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the reading at the given index of the file.
+     *
+     * @param index index of the reading in the file
+     * @return reading at the index
+     */
+    private int getReading(long index) {
+        long position = HEADER_BYTES + index * Integer.BYTES;
+        int chunkIndex = (int) (position >>> CHUNK_SHIFT);
+        int positionInChunk = (int) (position & CHUNK_MASK);
+        MappedByteBuffer[] mapped = chunks;
+        MappedByteBuffer chunk = chunkIndex < mapped.length
+                ? mapped[chunkIndex] : null;
+        if (chunk == null
+                || positionInChunk + Integer.BYTES > chunk.capacity()) {
+            chunk = mapChunk(chunkIndex);
+        }
+        return chunk.getInt(positionInChunk);
+    }
+
+    /**
+     * Maps (or re-maps, if the file has grown) the chunk with the given
+     * index.
+     *
+     * @param chunkIndex index of the chunk to map
+     * @return mapped chunk
+     */
+    private synchronized MappedByteBuffer mapChunk(int chunkIndex) {
+        try {
+            long start = (long) chunkIndex << CHUNK_SHIFT;
+            long end = Math.min(start + (1L << CHUNK_SHIFT),
+                    HEADER_BYTES + readingCount * Integer.BYTES);
+            MappedByteBuffer chunk = channel.map(
+                    FileChannel.MapMode.READ_ONLY, start, end - start);
+            MappedByteBuffer[] mapped = chunks;
+            if (chunkIndex >= mapped.length) {
+                MappedByteBuffer[] grown = new MappedByteBuffer[chunkIndex + 1];
+                System.arraycopy(mapped, 0, grown, 0, mapped.length);
+                mapped = grown;
+            } else {
+                mapped = mapped.clone();
+            }
+            mapped[chunkIndex] = chunk;
+            chunks = mapped;
+            return chunk;
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Could not map sensor readings file", e);
+        }
+    }
+
+    /**
+     * A series of readings stored in this file.
+     */
+    private class MappedReadingSeries implements ReadingSeries {
+        /**
+         * Index of the first reading of the series in the file.
+         */
+        private final long offset;
+
+        /**
+         * Number of readings in the series.
+         */
+        private final int length;
+
+        MappedReadingSeries(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+
+        @Override
+        public int get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return getReading(offset + index);
+        }
+
+        private MappedReadingFile file() {
+            return MappedReadingFile.this;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import java.io.IOException;
+
 /**
  * A sensor that measures the noise levels in a room.
  *
@@ -28,6 +30,19 @@ public class NoiseSensor extends TimedSensor
         super(sensorReadings, updateFrequency);
     }
 
+    /**
+     * Creates a new noise sensor with the given series of sensor readings
+     * and update frequency.
+     *
+     * @param sensorReadings  series of noise sensor readings <b>in
+     *                        decibels</b>
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     */
+    public NoiseSensor(ReadingSeries sensorReadings, int updateFrequency) {
+        super(sensorReadings, updateFrequency);
+    }
+
 
     /**
      * Calculates the relative loudness level compared to a reference of 70.0
@@ -129,4 +144,18 @@ public class NoiseSensor extends TimedSensor
         return String.format("NoiseSensor:%s:%d", super.encode()
                 , getUpdateFrequency());
     }
+
+    /**
+     * Writes the machine-readable representation of this sensor to the
+     * given output.
+     *
+     * @param out output to write to
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("NoiseSensor:");
+        super.encodeTo(out);
+        out.append(String.format(":%d", getUpdateFrequency()));
+    }
 }
@@ -1,5 +1,6 @@
 package bms.sensors;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -29,6 +30,22 @@ public class OccupancySensor extends TimedSensor
      */
     public OccupancySensor(int[] sensorReadings, int updateFrequency,
                            int capacity) {
+        this(toSeries(sensorReadings), updateFrequency, capacity);
+    }
+
+    /**
+     * Creates a new occupancy sensor with the given series of sensor
+     * readings, update frequency and capacity.
+     *
+     * @param sensorReadings  a non-empty series of sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity        maximum allowable number of people in the room
+     * @throws IllegalArgumentException if capacity is less than zero
+     * @see #OccupancySensor(int[], int, int)
+     */
+    public OccupancySensor(ReadingSeries sensorReadings, int updateFrequency,
+                           int capacity) {
         super(sensorReadings, updateFrequency);
 
         if (capacity < 0) {
@@ -91,6 +108,20 @@ public class OccupancySensor extends TimedSensor
 
     }
 
+    /**
+     * Writes the machine-readable representation of this sensor to the
+     * given output.
+     *
+     * @param out output to write to
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("OccupancySensor:");
+        super.encodeTo(out);
+        out.append(String.format(":%d:%d", getUpdateFrequency(), capacity));
+    }
+
     /**
      * whether two occupancy sensors are equal.
      *
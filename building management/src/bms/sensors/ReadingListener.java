@@ -0,0 +1,21 @@
+package bms.sensors;
+
+/**
+ * Listens for changes to the current reading of a timed sensor.
+ *
+ * @see TimedSensor#addReadingListener(ReadingListener)
+ */
+@FunctionalInterface
+public interface ReadingListener {
+    /**
+     * Called after the current reading of the given sensor has changed to a
+     * different value.
+     * <p>
+     * May be called from the thread advancing the sensor, which need not be
+     * the thread that added the listener, and may be called for several
+     * sensors at once.
+     *
+     * @param sensor sensor whose reading changed
+     */
+    void readingChanged(TimedSensor sensor);
+}
@@ -0,0 +1,25 @@
+package bms.sensors;
+
+/**
+ * A read-only sequence of sensor readings, taken one minute apart.
+ * <p>
+ * Implementations decide where the readings are kept, eg. in an array on
+ * the heap or in a memory-mapped file. All readings in a series must be
+ * non-negative.
+ */
+public interface ReadingSeries {
+    /**
+     * Returns the number of readings in the series.
+     *
+     * @return number of readings, at least one
+     */
+    int size();
+
+    /**
+     * Returns the reading at the given index.
+     *
+     * @param index index of the reading, from 0 to {@code size() - 1}
+     * @return reading at the index
+     */
+    int get(int index);
+}
@@ -0,0 +1,128 @@
+package bms.sensors;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares one immutable reading series between all sensors with identical
+ * readings, eg. the many rooms of a templated building which share the same
+ * reading profile.
+ * <p>
+ * Interning is safe to use from several threads at once.
+ */
+public class ReadingSeriesInterner {
+    /**
+     * Interned series, keyed by their readings.
+     */
+    private final ConcurrentMap<Key, ReadingSeries> series =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared series holding the given readings, creating it from
+     * a copy of the readings if none exists yet.
+     * <p>
+     * The given array is not kept, so it may be reused by the caller.
+     *
+     * @param readings non-empty array of non-negative readings
+     * @return shared series with the same readings
+     * @throws IllegalArgumentException if readings is null or empty, or any
+     *                                  reading is less than zero
+     */
+    public ReadingSeries intern(int[] readings) {
+        if (readings == null) {
+            throw new IllegalArgumentException("Sensor readings array must "
+                    + "not be null and must have at least one element");
+        }
+        return intern(readings, readings.length);
+    }
+
+    /**
+     * Returns the shared series holding the first {@code length} readings
+     * of the given array, creating it from a copy of the readings if none
+     * exists yet.
+     * <p>
+     * The given array is not kept, so it may be reused by the caller, eg. as
+     * a buffer for the readings of each sensor in turn.
+     *
+     * @param readings array holding the readings at its start
+     * @param length   number of readings, at least one
+     * @return shared series with the same readings
+     * @throws IllegalArgumentException if length is less than one, or any
+     *                                  of the readings is less than zero
+     */
+    public ReadingSeries intern(int[] readings, int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Sensor readings array must "
+                    + "not be null and must have at least one element");
+        }
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            if (readings[i] < 0) {
+                throw new IllegalArgumentException(
+                        "All sensor readings must be non-negative");
+            }
+            hash = 31 * hash + readings[i];
+        }
+        Key key = new Key(readings, length, hash);
+        ReadingSeries shared = series.get(key);
+        if (shared != null) {
+            return shared;
+        }
+        int[] copy = Arrays.copyOf(readings, length);
+        ReadingSeries created = new ArrayReadingSeries(copy);
+        shared = series.putIfAbsent(new Key(copy, length, hash), created);
+        return shared == null ? created : shared;
+    }
+
+    /**
+     * Returns the number of distinct series interned so far.
+     *
+     * @return number of distinct series
+     */
+    public int size() {
+        return series.size();
+    }
+
+    /**
+     * Key comparing readings by content, with the content hash computed
+     * once up front.
+     */
+    private static final class Key {
+        /**
+         * Array holding the readings of the key at its start.
+         */
+        private final int[] readings;
+
+        /**
+         * Number of readings of the key.
+         */
+        private final int length;
+
+        /**
+         * Hash of the readings.
+         */
+        private final int hash;
+
+        Key(int[] readings, int length, int hash) {
+            this.readings = readings;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return other.hash == hash && Arrays.equals(other.readings, 0,
+                    other.length, readings, 0, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented storage for the readings and timing state of many timed
+ * sensors of a single type.
+ * <p>
+ * The readings of every attached sensor are packed one after the other into
+ * a single array, and each sensor's offset, number of readings, update
+ * frequency, time elapsed, current reading and hazard level are kept in
+ * primitive arrays indexed by the sensor's slot. Attached sensors become
+ * thin views over their slot, see
+ * {@link TimedSensor#attachTo(SensorColumnStore)}.
+ * <p>
+ * The store registers itself as a single timed item and advances every slot
+ * in one loop. Attached sensors are unregistered from the
+ * {@link TimedItemManager}, so they are no longer advanced individually.
+ * <p>
+ * The hazard level of each slot is worked out by its sensor only when the
+ * slot's reading changes, so sweeps over the hazard levels of every
+ * attached sensor (eg. {@link #countHazardLevelsAtLeast(int)}) are plain
+ * loops over an array.
+ */
+public class SensorColumnStore implements TimedItem {
+    /**
+     * Type of sensor held by this store.
+     */
+    private final Class<? extends TimedSensor> sensorType;
+
+    /**
+     * Readings of every attached sensor, packed one after the other.
+     */
+    private int[] readings;
+
+    /**
+     * Number of elements of {@code readings} in use.
+     */
+    private int readingsUsed;
+
+    /**
+     * Index of each slot's first reading in {@code readings}.
+     */
+    private int[] offsets;
+
+    /**
+     * Number of readings of each slot.
+     */
+    private int[] lengths;
+
+    /**
+     * Update frequency of each slot, in minutes.
+     */
+    private int[] frequencies;
+
+    /**
+     * Time elapsed of each slot, in minutes.
+     */
+    private int[] timeElapsed;
+
+    /**
+     * Current reading of each slot.
+     */
+    private int[] currentReadings;
+
+    /**
+     * Hazard level of each slot, see {@link HazardSensor#getHazardLevel()};
+     * 0 if the store's sensors are not hazard sensors.
+     */
+    private int[] hazardLevels;
+
+    /**
+     * Sensor attached to each slot, told when its reading changes.
+     */
+    private TimedSensor[] sensors;
+
+    /**
+     * Number of slots in use.
+     */
+    private int size;
+
+    /**
+     * Creates a new empty store for sensors of the given type, and registers
+     * it as a timed item.
+     *
+     * @param sensorType class of the sensors that may be attached
+     */
+    public SensorColumnStore(Class<? extends TimedSensor> sensorType) {
+        this.sensorType = sensorType;
+        this.readings = new int[64];
+        this.offsets = new int[16];
+        this.lengths = new int[16];
+        this.frequencies = new int[16];
+        this.timeElapsed = new int[16];
+        this.currentReadings = new int[16];
+        this.hazardLevels = new int[16];
+        this.sensors = new TimedSensor[16];
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Returns the type of sensor held by this store.
+     *
+     * @return sensor class
+     */
+    public Class<? extends TimedSensor> getSensorType() {
+        return sensorType;
+    }
+
+    /**
+     * Returns the number of sensors attached to this store.
+     *
+     * @return number of slots in use
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Attaches each of the given sensors to this store, in order, see
+     * {@link TimedSensor#attachTo(SensorColumnStore)}.
+     * <p>
+     * The sensors are unregistered from the {@link TimedItemManager}
+     * together, rather than one at a time.
+     *
+     * @param sensors sensors to attach
+     * @throws IllegalArgumentException if any sensor is not of this store's
+     *                                  type
+     * @throws IllegalStateException    if any sensor is already attached to
+     *                                  a store
+     */
+    public void attachAll(List<? extends TimedSensor> sensors) {
+        List<TimedItem> attached = new ArrayList<>();
+        try {
+            for (TimedSensor sensor : sensors) {
+                sensor.moveInto(this);
+                attached.add(sensor);
+            }
+        } finally {
+            TimedItemManager.getInstance().unregisterTimedItems(attached);
+        }
+    }
+
+    /**
+     * Copies the current reading of every slot into the given array, in slot
+     * order.
+     *
+     * @param dest array of at least {@link #size()} elements
+     */
+    public void copyCurrentReadings(int[] dest) {
+        System.arraycopy(currentReadings, 0, dest, 0, size);
+    }
+
+    /**
+     * Returns the number of attached sensors whose current reading is
+     * greater than or equal to the given threshold.
+     *
+     * @param threshold reading to compare against
+     * @return number of sensors at or above the threshold
+     */
+    public int countReadingsAtLeast(int threshold) {
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (currentReadings[slot] >= threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies the hazard level of every slot into the given array, in slot
+     * order.
+     *
+     * @param dest array of at least {@link #size()} elements
+     */
+    public void copyHazardLevels(int[] dest) {
+        System.arraycopy(hazardLevels, 0, dest, 0, size);
+    }
+
+    /**
+     * Returns the number of attached sensors whose hazard level is greater
+     * than or equal to the given threshold.
+     *
+     * @param threshold hazard level to compare against
+     * @return number of sensors at or above the threshold; 0 if the store's
+     * sensors are not hazard sensors
+     */
+    public int countHazardLevelsAtLeast(int threshold) {
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (hazardLevels[slot] >= threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the highest hazard level of all attached sensors.
+     *
+     * @return highest hazard level; 0 if no sensors are attached, or the
+     * store's sensors are not hazard sensors
+     */
+    public int getMaxHazardLevel() {
+        int max = 0;
+        for (int slot = 0; slot < size; slot++) {
+            max = Math.max(max, hazardLevels[slot]);
+        }
+        return max;
+    }
+
+    /**
+     * Increments the time elapsed of every slot by one, updating the current
+     * reading of each slot whose update frequency divides its new time
+     * elapsed.
+     */
+    @Override
+    public void elapseOneMinute() {
+        for (int slot = 0; slot < size; slot++) {
+            int time = ++timeElapsed[slot];
+            int frequency = frequencies[slot];
+            // the reading index only moves on multiples of the frequency
+            if (time % frequency == 0) {
+                int index = (int) (time
+                        % ((long) lengths[slot] * frequency)) / frequency;
+                int reading = readings[offsets[slot] + index];
+                if (reading != currentReadings[slot]) {
+                    readingChanged(slot, reading);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every slot forward by the given number of minutes.
+     *
+     * @param minutes number of minutes to move forward
+     * @throws IllegalArgumentException if minutes is less than zero, or a
+     *                                  slot's time elapsed would no longer
+     *                                  fit in an int
+     */
+    @Override
+    public void advanceMinutes(long minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot move backwards in time");
+        }
+        for (int slot = 0; slot < size; slot++) {
+            seek(slot, timeElapsed[slot] + minutes);
+        }
+    }
+
+    /**
+     * Adds a slot holding a copy of the given readings.
+     *
+     * @param sensor          sensor attached to the slot
+     * @param sensorReadings  readings of the sensor
+     * @param updateFrequency update frequency of the sensor, in minutes
+     * @param minute          time elapsed of the sensor, in minutes
+     * @return slot of the sensor
+     */
+    int add(TimedSensor sensor, ReadingSeries sensorReadings,
+            int updateFrequency, int minute) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+            timeElapsed = Arrays.copyOf(timeElapsed, capacity);
+            currentReadings = Arrays.copyOf(currentReadings, capacity);
+            hazardLevels = Arrays.copyOf(hazardLevels, capacity);
+            sensors = Arrays.copyOf(sensors, capacity);
+        }
+        int length = sensorReadings.size();
+        if (readingsUsed + length > readings.length) {
+            readings = Arrays.copyOf(readings, Math.max(readings.length * 2,
+                    readingsUsed + length));
+        }
+        for (int i = 0; i < length; i++) {
+            readings[readingsUsed + i] = sensorReadings.get(i);
+        }
+        int slot = size++;
+        offsets[slot] = readingsUsed;
+        lengths[slot] = length;
+        frequencies[slot] = updateFrequency;
+        sensors[slot] = sensor;
+        currentReadings[slot] = sensor.getCurrentReading();
+        readingsUsed += length;
+        seek(slot, minute);
+        // the sensor reads its own state until it is attached, which
+        // matches the slot at the same time elapsed
+        hazardLevels[slot] = hazardLevelOf(sensor);
+        return slot;
+    }
+
+    /**
+     * Sets the time elapsed of the given slot and updates its current
+     * reading to match.
+     *
+     * @param slot   slot to update
+     * @param minute new time elapsed, in minutes
+     * @throws IllegalArgumentException if minute is less than zero or greater
+     *                                  than {@link Integer#MAX_VALUE}
+     */
+    void seek(int slot, long minute) {
+        if (minute < 0 || minute > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Time elapsed must be between "
+                    + "0 and " + Integer.MAX_VALUE + " minutes");
+        }
+        int frequency = frequencies[slot];
+        timeElapsed[slot] = (int) minute;
+        int index = (int) (minute % ((long) lengths[slot] * frequency))
+                / frequency;
+        int reading = readings[offsets[slot] + index];
+        if (reading != currentReadings[slot]) {
+            readingChanged(slot, reading);
+        }
+    }
+
+    /**
+     * Sets the current reading of the given slot, works out its hazard
+     * level again, and tells its sensor's reading listeners.
+     *
+     * @param slot    slot whose reading changed
+     * @param reading new current reading
+     */
+    private void readingChanged(int slot, int reading) {
+        currentReadings[slot] = reading;
+        hazardLevels[slot] = hazardLevelOf(sensors[slot]);
+        sensors[slot].fireReadingChanged();
+    }
+
+    /**
+     * Returns the hazard level of the given sensor.
+     *
+     * @param sensor sensor to look at
+     * @return hazard level; 0 if the sensor is not a hazard sensor
+     */
+    private static int hazardLevelOf(TimedSensor sensor) {
+        if (sensor instanceof HazardSensor) {
+            return ((HazardSensor) sensor).getHazardLevel();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the current reading of the given slot.
+     *
+     * @param slot slot to look up
+     * @return current reading
+     */
+    int getCurrentReading(int slot) {
+        return currentReadings[slot];
+    }
+
+    /**
+     * Returns the time elapsed of the given slot.
+     *
+     * @param slot slot to look up
+     * @return time elapsed in minutes
+     */
+    int getTimeElapsed(int slot) {
+        return timeElapsed[slot];
+    }
+
+    /**
+     * Returns the number of readings of the given slot.
+     *
+     * @param slot slot to look up
+     * @return number of readings
+     */
+    int getReadingCount(int slot) {
+        return lengths[slot];
+    }
+
+    /**
+     * Returns a reading of the given slot.
+     *
+     * @param slot  slot to look up
+     * @param index index of the reading within the slot
+     * @return reading at the index
+     */
+    int getReading(int slot, int index) {
+        return readings[offsets[slot] + index];
+    }
+}
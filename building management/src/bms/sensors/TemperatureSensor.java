@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import java.io.IOException;
+
 /**
  * A sensor that measures ambient temperature in a room.
  *
@@ -24,6 +26,17 @@ public class TemperatureSensor
         super(sensorReadings, 1);
     }
 
+    /**
+     * Creates a new temperature sensor with the given series of sensor
+     * readings and an update frequency of 1 minute.
+     *
+     * @param sensorReadings a non-empty series of sensor readings
+     * @see TimedSensor#TimedSensor(ReadingSeries, int)
+     */
+    public TemperatureSensor(ReadingSeries sensorReadings) {
+        super(sensorReadings, 1);
+    }
+
     /**
      * Returns the hazard level as detected by this sensor.
      * <p>
@@ -76,6 +89,19 @@ public class TemperatureSensor
         return String.format("TemperatureSensor:%s", super.encode());
     }
 
+    /**
+     * Writes the machine-readable representation of this sensor to the
+     * given output.
+     *
+     * @param out output to write to
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("TemperatureSensor:");
+        super.encodeTo(out);
+    }
+
     /**
      * Returns the comfort level detected by this sensor.
      *
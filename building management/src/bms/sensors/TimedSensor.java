@@ -1,10 +1,12 @@
 package bms.sensors;
 
 import bms.util.Encodable;
+import bms.util.EventTickScheduler;
 import bms.util.TimedItem;
 import bms.util.TimedItemManager;
 
-import java.lang.reflect.Array;
+import java.io.IOException;
+
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -16,11 +18,11 @@ public abstract class TimedSensor extends Object
         implements TimedItem, Sensor, Encodable {
 
     /**
-     * Data array representing the readings observed by the sensor.
+     * Series of readings observed by the sensor.
      * <p>
      * Readings taken one minute apart.
      */
-    private int[] sensorReadings;
+    private ReadingSeries sensorReadings;
 
     /**
      * The current sensor reading observed by the sensor.
@@ -39,6 +41,47 @@ public abstract class TimedSensor extends Object
      */
     private int updateFrequency;
 
+    /**
+     * Scheduler which brings this sensor up to date only when its reading
+     * changes; null if the sensor is brought up to date every minute.
+     */
+    private volatile EventTickScheduler scheduler;
+
+    /**
+     * Minute of {@link #scheduler} at which this sensor's time elapsed was
+     * zero, so the sensor knows its time elapsed between wake-ups.
+     */
+    private long scheduledFrom;
+
+    /**
+     * Hash of the readings, independent of their order so that it agrees
+     * with {@link #equals(Object)}; zero until first computed.
+     */
+    private int readingsHash;
+
+    /**
+     * Column store holding this sensor's readings and timing state; null if
+     * they are held by this sensor.
+     */
+    private SensorColumnStore store;
+
+    /**
+     * Slot of this sensor in its column store.
+     */
+    private int slot;
+
+    /**
+     * Listeners told when the current reading changes. Replaced (never
+     * modified) when a listener is added or removed.
+     */
+    private volatile ReadingListener[] readingListeners = NO_LISTENERS;
+
+    /**
+     * Shared empty listener array.
+     */
+    private static final ReadingListener[] NO_LISTENERS =
+            new ReadingListener[0];
+
     /**
      * Creates a new timed sensor, using the provided list of sensor readings.
      * These represent "raw" data values, and have different meanings depending
@@ -68,10 +111,65 @@ public abstract class TimedSensor extends Object
      */
     public TimedSensor(int[] sensorReadings, int updateFrequency) throws
             IllegalArgumentException {
+        this(toSeries(sensorReadings), updateFrequency);
+    }
+
+    /**
+     * Creates a new timed sensor, using the provided series of sensor
+     * readings, which may be kept off the heap (see
+     * {@link MappedReadingFile}).
+     * <p>
+     * Series made by this package check their readings as they are made
+     * (or, for a {@link MappedReadingFile}, as they are handed out), so they
+     * are not checked again here. The readings of any other series are
+     * checked.
+     *
+     * @param sensorReadings  a non-empty series of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is &lt; 1 or &gt; 5;
+     *                                  or if sensorReadings is null or empty;
+     *                                  or if any value in sensorReadings is
+     *                                  less than zero
+     * @see #TimedSensor(int[], int)
+     */
+    public TimedSensor(ReadingSeries sensorReadings, int updateFrequency)
+            throws IllegalArgumentException {
         if ((updateFrequency < 1) || (updateFrequency > 5)) {
             throw new IllegalArgumentException("Update frequency must be "
                     + "between 1 and 5 minutes (inclusive)");
         }
+        if (sensorReadings == null || sensorReadings.size() == 0) {
+            throw new IllegalArgumentException("Sensor readings must "
+                    + "not be null and must have at least one element");
+        }
+        if (!isChecked(sensorReadings)) {
+            for (int i = 0; i < sensorReadings.size(); i++) {
+                if (sensorReadings.get(i) < 0) {
+                    throw new IllegalArgumentException(
+                            "All sensor readings must be non-negative");
+                }
+            }
+        }
+        this.sensorReadings = sensorReadings;
+        this.currentReading = sensorReadings.get(0);
+        this.updateFrequency = updateFrequency;
+        this.timeElapsed = 0;
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Checks that the given readings array is non-empty and all of its
+     * readings are non-negative.
+     *
+     * @param sensorReadings readings to check
+     * @return series over the given array
+     * @throws IllegalArgumentException if sensorReadings is null; if
+     *                                  sensorReadings is empty; or if any
+     *                                  value in sensorReadings is less than
+     *                                  zero
+     */
+    static ReadingSeries toSeries(int[] sensorReadings) {
         if (sensorReadings == null || sensorReadings.length == 0) {
             throw new IllegalArgumentException("Sensor readings array must "
                     + "not be null and must have at least one element");
@@ -82,11 +180,20 @@ public abstract class TimedSensor extends Object
                         "All sensor readings must be non-negative");
             }
         }
-        this.sensorReadings = sensorReadings;
-        this.currentReading = sensorReadings[0];
-        this.updateFrequency = updateFrequency;
-        this.timeElapsed = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        return new ArrayReadingSeries(sensorReadings);
+    }
+
+    /**
+     * Returns whether the given series is of a kind which checks that none
+     * of its readings is negative when it is made.
+     *
+     * @param series series to look at
+     * @return true if the series was made by this package
+     */
+    private static boolean isChecked(ReadingSeries series) {
+        return series instanceof ArrayReadingSeries
+                || series instanceof CompressedReadingSeries
+                || MappedReadingFile.isMappedSeries(series);
     }
 
     /**
@@ -96,6 +203,9 @@ public abstract class TimedSensor extends Object
      * @ass1
      */
     public int getCurrentReading() {
+        if (store != null) {
+            return store.getCurrentReading(slot);
+        }
         return this.currentReading;
     }
 
@@ -108,9 +218,61 @@ public abstract class TimedSensor extends Object
      * @ass1
      */
     public int getTimeElapsed() {
+        if (store != null) {
+            return store.getTimeElapsed(slot);
+        }
+        EventTickScheduler scheduler = this.scheduler;
+        if (scheduler != null) {
+            // left behind between wake-ups, see deferTo
+            return (int) (scheduler.getCurrentMinute() - scheduledFrom);
+        }
         return timeElapsed;
     }
 
+    /**
+     * Leaves this sensor to be brought up to date by the given scheduler,
+     * only on the minutes its reading changes. Until the sensor is next
+     * brought up to date, its time elapsed is worked out from the
+     * scheduler's current minute.
+     *
+     * @param scheduler scheduler the sensor is left to, whose current
+     *                  minute is the sensor's time elapsed from now on;
+     *                  null to go back to bringing the sensor up to date
+     *                  every minute, once it has been brought up to date
+     */
+    public void deferTo(EventTickScheduler scheduler) {
+        if (scheduler != null) {
+            this.scheduledFrom = scheduler.getCurrentMinute() - timeElapsed;
+        }
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the number of minutes this sensor is behind the scheduler it
+     * has been left to, see {@link #deferTo(EventTickScheduler)}.
+     *
+     * @return minutes since the sensor was last brought up to date; 0 if
+     * it has not been left to a scheduler
+     */
+    public long getPendingMinutes() {
+        EventTickScheduler scheduler = this.scheduler;
+        if (scheduler == null) {
+            return 0;
+        }
+        return scheduler.getCurrentMinute() - scheduledFrom - timeElapsed;
+    }
+
+    /**
+     * Returns the readings observed by the sensor, in order.
+     * <p>
+     * Changing the returned array does not affect the sensor.
+     *
+     * @return new array containing the sensor readings
+     */
+    public int[] getSensorReadings() {
+        return copyReadings();
+    }
+
     /**
      * Returns the number of minutes in between updates to the current sensor
      * reading.
@@ -136,21 +298,287 @@ public abstract class TimedSensor extends Object
      * @ass1
      */
     public void elapseOneMinute() {
+        if (store != null) {
+            // advanced along with the rest of the store
+            return;
+        }
         this.timeElapsed++;
+        updateReading(this.sensorReadings.get(readingIndexAt(
+                this.timeElapsed)));
+    }
 
+    /**
+     * Moves the sensor forward by the given number of minutes.
+     * <p>
+     * Equivalent to calling {@link #elapseOneMinute()} the given number of
+     * times, but takes constant time. Does nothing once the sensor is
+     * attached to a column store, which advances it instead.
+     *
+     * @param minutes number of minutes to move forward
+     * @throws IllegalArgumentException if minutes is less than zero, or the
+     *                                  sensor's time elapsed would no longer
+     *                                  fit in an int
+     */
+    @Override
+    public void advanceMinutes(long minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot move backwards in time");
+        }
+        if (store != null) {
+            return;
+        }
+        seekTo(this.timeElapsed + minutes);
+    }
+
+    /**
+     * Sets the time elapsed (in minutes) to the given value and updates the
+     * current sensor reading to match, in constant time.
+     * <p>
+     * Afterwards the sensor is in the same state as a new sensor on which
+     * {@link #elapseOneMinute()} has been called {@code minute} times.
+     *
+     * @param minute new time elapsed in minutes
+     * @throws IllegalArgumentException if minute is less than zero or greater
+     *                                  than {@link Integer#MAX_VALUE}
+     */
+    public void seekTo(long minute) {
+        if (minute < 0 || minute > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Time elapsed must be between "
+                    + "0 and " + Integer.MAX_VALUE + " minutes");
+        }
+        if (store != null) {
+            store.seek(slot, minute);
+            return;
+        }
+        this.timeElapsed = (int) minute;
+        updateReading(this.sensorReadings.get(readingIndexAt(minute)));
+    }
+
+    /**
+     * Sets the current reading, telling the reading listeners if it changed.
+     *
+     * @param reading new current reading
+     */
+    private void updateReading(int reading) {
+        if (reading != this.currentReading) {
+            this.currentReading = reading;
+            fireReadingChanged();
+        }
+    }
+
+    /**
+     * Adds a listener to be told whenever the current reading of this
+     * sensor changes to a different value.
+     *
+     * @param listener listener to add
+     */
+    public synchronized void addReadingListener(ReadingListener listener) {
+        ReadingListener[] listeners = Arrays.copyOf(readingListeners,
+                readingListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        readingListeners = listeners;
+    }
+
+    /**
+     * Removes a listener previously added to this sensor. Does nothing if
+     * the listener was not added.
+     *
+     * @param listener listener to remove
+     */
+    public synchronized void removeReadingListener(ReadingListener listener) {
+        ReadingListener[] listeners = readingListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ReadingListener[] remaining =
+                        new ReadingListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i,
+                        remaining.length - i);
+                readingListeners = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells every reading listener that the current reading changed.
+     */
+    void fireReadingChanged() {
+        for (ReadingListener listener : readingListeners) {
+            listener.readingChanged(this);
+        }
+    }
+
+    /**
+     * Returns the number of minutes until the current sensor reading changes
+     * to a different value.
+     * <p>
+     * Consecutive equal readings in the array do not count as a change.
+     *
+     * @return minutes until the current reading changes; -1 if all readings
+     * are equal, so the current reading never changes, or if the sensor is
+     * attached to a column store
+     */
+    public long minutesUntilReadingChanges() {
+        if (store != null) {
+            // woken along with the rest of the store
+            return -1;
+        }
+        int index = readingIndexAt(this.timeElapsed);
+        // minutes until the index next moves on
+        long untilNextIndex = this.updateFrequency
+                - this.timeElapsed % this.updateFrequency;
+        int readingCount = this.sensorReadings.size();
+        for (int step = 1; step < readingCount; step++) {
+            int next = (index + step) % readingCount;
+            if (this.sensorReadings.get(next) != this.currentReading) {
+                return untilNextIndex
+                        + (long) (step - 1) * this.updateFrequency;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the reading observed once the given number of
+     * minutes have elapsed.
+     *
+     * @param minute time elapsed in minutes
+     * @return index into the sensor readings array
+     */
+    private int readingIndexAt(long minute) {
         // calculate the time taken before wrapping around to the starting value
         // again
-        int rotationDuration = this.sensorReadings.length
+        long rotationDuration = (long) getReadingCount()
                 * this.updateFrequency;
 
         // calculate the time remaining in the current rotation
-        int timeRemainingInRotation = this.timeElapsed % rotationDuration;
+        long timeRemainingInRotation = minute % rotationDuration;
 
         // index is time remaining in the current rotation divided by the update
         // frequency
-        int index = timeRemainingInRotation / this.updateFrequency;
+        return (int) (timeRemainingInRotation / this.updateFrequency);
+    }
+
+    /**
+     * Returns the number of readings observed by the sensor.
+     *
+     * @return number of sensor readings
+     */
+    private int getReadingCount() {
+        if (store != null) {
+            return store.getReadingCount(slot);
+        }
+        return this.sensorReadings.size();
+    }
+
+    /**
+     * Returns the reading at the given index of the sensor readings.
+     *
+     * @param index index of the reading
+     * @return sensor reading at the index
+     */
+    private int getReading(int index) {
+        if (store != null) {
+            return store.getReading(slot, index);
+        }
+        return this.sensorReadings.get(index);
+    }
+
+    /**
+     * Returns a copy of the readings observed by the sensor.
+     *
+     * @return new array containing the sensor readings
+     */
+    private int[] copyReadings() {
+        int[] readings = new int[getReadingCount()];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = getReading(i);
+        }
+        return readings;
+    }
+
+    /**
+     * Replaces this sensor's readings with a bit-packed copy (see
+     * {@link CompressedReadingSeries}). The sensor behaves exactly as before,
+     * but slowly changing readings take several times less memory.
+     *
+     * @throws IllegalStateException if the sensor is attached to a column
+     *                               store
+     */
+    public void compressReadings() {
+        if (this.store != null) {
+            throw new IllegalStateException(
+                    "Sensor readings are held by a column store");
+        }
+        if (!(this.sensorReadings instanceof CompressedReadingSeries)) {
+            this.sensorReadings =
+                    new CompressedReadingSeries(this.sensorReadings);
+        }
+    }
 
-        this.currentReading = this.sensorReadings[index];
+    /**
+     * Moves this sensor's readings out of the heap by appending them to the
+     * given readings file. The sensor then reads them back through the
+     * file's memory mapping.
+     *
+     * @param file readings file to append to
+     * @throws IOException           if the readings could not be written
+     * @throws IllegalStateException if the sensor is attached to a column
+     *                               store
+     */
+    public void moveReadingsTo(MappedReadingFile file) throws IOException {
+        if (this.store != null) {
+            throw new IllegalStateException(
+                    "Sensor readings are held by a column store");
+        }
+        this.sensorReadings = file.append(copyReadings());
+    }
+
+    /**
+     * Moves this sensor's readings and timing state into a slot of the given
+     * column store.
+     * <p>
+     * Afterwards the sensor reads its state from the store, and is advanced
+     * by the store rather than by its own {@link #elapseOneMinute()}, so it
+     * is unregistered from the {@link TimedItemManager}.
+     *
+     * @param store column store to move into
+     * @throws IllegalArgumentException if the store holds a different type
+     *                                  of sensor
+     * @throws IllegalStateException    if the sensor is already attached to
+     *                                  a store
+     */
+    public void attachTo(SensorColumnStore store) {
+        moveInto(store);
+        TimedItemManager.getInstance().unregisterTimedItem(this);
+    }
+
+    /**
+     * Moves this sensor's readings and timing state into a slot of the given
+     * column store, leaving it registered, see
+     * {@link #attachTo(SensorColumnStore)}.
+     *
+     * @param store column store to move into
+     * @throws IllegalArgumentException if the store holds a different type
+     *                                  of sensor
+     * @throws IllegalStateException    if the sensor is already attached to
+     *                                  a store
+     */
+    void moveInto(SensorColumnStore store) {
+        if (store.getSensorType() != getClass()) {
+            throw new IllegalArgumentException("Store holds sensors of type "
+                    + store.getSensorType().getSimpleName());
+        }
+        if (this.store != null) {
+            throw new IllegalStateException(
+                    "Sensor is already attached to a store");
+        }
+        this.slot = store.add(this, this.sensorReadings,
+                this.updateFrequency, getTimeElapsed());
+        this.store = store;
+        this.sensorReadings = null;
     }
 
     /**
@@ -171,7 +599,7 @@ public abstract class TimedSensor extends Object
     public String toString() {
         return String.format("TimedSensor: freq=%d, readings=%s",
                 this.updateFrequency,
-                String.join(",", Arrays.stream(this.sensorReadings)
+                String.join(",", Arrays.stream(copyReadings())
                         .mapToObj(String::valueOf)
                         .toArray(String[]::new)));
     }
@@ -192,8 +620,8 @@ public abstract class TimedSensor extends Object
         if (sensor.updateFrequency != getUpdateFrequency()) {
             return false;
         }
-        int[] array = sensorReadings.clone();
-        int[] array1 = sensor.sensorReadings.clone();
+        int[] array = copyReadings();
+        int[] array1 = sensor.copyReadings();
         Arrays.sort(array);
         Arrays.sort(array1);
         return Arrays.equals(array, array1);
@@ -209,9 +637,29 @@ public abstract class TimedSensor extends Object
      */
     @Override
     public int hashCode() {
-        return Objects.hash(sensorReadings, updateFrequency);
-
+        int hash = readingsHash;
+        if (hash == 0) {
+            int readingCount = getReadingCount();
+            for (int i = 0; i < readingCount; i++) {
+                hash += mixReading(getReading(i));
+            }
+            readingsHash = hash;
+        }
+        // equals does not compare classes, and class hashes differ from
+        // run to run, so the class is left out
+        return Objects.hash(hash, updateFrequency);
+    }
 
+    /**
+     * Spreads the bits of a reading, so that summing the results gives a
+     * well distributed hash of the readings regardless of their order.
+     *
+     * @param reading reading to mix
+     * @return mixed reading
+     */
+    private static int mixReading(int reading) {
+        int mixed = reading * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
     }
 
     /**
@@ -221,9 +669,27 @@ public abstract class TimedSensor extends Object
      */
     public String encode() {
         return String.format("%s", String.join(","
-                , Arrays.stream(this.sensorReadings)
+                , Arrays.stream(copyReadings())
                         .mapToObj(String::valueOf)
                         .toArray(String[]::new)));
 
     }
+
+    /**
+     * Writes the machine-readable representation of this timed sensor to the
+     * given output, one reading at a time.
+     *
+     * @param out output to write to
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        int readingCount = getReadingCount();
+        for (int i = 0; i < readingCount; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(String.valueOf(getReading(i)));
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package bms.util;
 
+import java.io.IOException;
+
 /**
  * A type that can be encoded to a machine-readable string representation,
  * useful for saving objects to files.
@@ -11,4 +13,19 @@ public interface Encodable {
      * @return String encoded String representation.
      */
     String encode();
+
+    /**
+     * Writes the same representation as {@link #encode()} to the given
+     * output.
+     * <p>
+     * Types holding other encodable objects write each part as they go,
+     * so large models can be saved without building their whole
+     * representation in memory first.
+     *
+     * @param out output to write to, eg. a buffered Writer
+     * @throws IOException if the output could not be written
+     */
+    default void encodeTo(Appendable out) throws IOException {
+        out.append(encode());
+    }
 }
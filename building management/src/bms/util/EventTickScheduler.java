@@ -0,0 +1,240 @@
+package bms.util;
+
+import bms.sensors.SensorColumnStore;
+import bms.sensors.TimedSensor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Advances a list of timed items by waking each timed sensor only on the
+ * minute its current reading actually changes.
+ * <p>
+ * Timed sensors are kept in a priority queue ordered by the minute of their
+ * next change. Between wake-ups a sensor is left untouched, and is brought up
+ * to date in a single jump when it is next woken, see
+ * {@link TimedSensor#advanceMinutes(long)}. Each sensor keeps track of how
+ * far behind it is itself, see {@link TimedSensor#deferTo(EventTickScheduler)},
+ * so its time elapsed can be read without looking at the scheduler's
+ * bookkeeping.
+ * <p>
+ * Sensor column stores are advanced every minute, straight after the woken
+ * sensors. Every other timed item (eg. maintenance schedules, whose progress depends
+ * on room states that can change at any time) is advanced every minute,
+ * after all sensors due that minute have been woken.
+ */
+public class EventTickScheduler {
+    /**
+     * Sensors waiting for their next change, earliest first.
+     */
+    private final PriorityQueue<Entry> queue;
+
+    /**
+     * Scheduling state of every sensor known to the scheduler.
+     */
+    private final List<Entry> entries;
+
+    /**
+     * Column stores, advanced every minute before the stepped items.
+     */
+    private final List<TimedItem> stores;
+
+    /**
+     * Items advanced every minute, in registration order.
+     */
+    private final List<TimedItem> steppedItems;
+
+    /**
+     * Number of items from the source list that have been sorted so far.
+     */
+    private int sortedCount;
+
+    /**
+     * Number of sensors added to the scheduler, used to break ties.
+     */
+    private long sequence;
+
+    /**
+     * Current minute of the scheduler. Volatile, as sensors read it to work
+     * out their time elapsed on whichever thread they are asked.
+     */
+    private volatile long now;
+
+    /**
+     * Creates a new scheduler whose clock starts at the given minute.
+     *
+     * @param now minute the scheduler starts at
+     */
+    public EventTickScheduler(long now) {
+        this.queue = new PriorityQueue<>(Comparator
+                .comparingLong((Entry entry) -> entry.due)
+                .thenComparingLong(entry -> entry.sequence));
+        this.entries = new ArrayList<>();
+        this.stores = new ArrayList<>();
+        this.steppedItems = new ArrayList<>();
+        this.now = now;
+    }
+
+    /**
+     * Moves the given timed items forward by one minute.
+     * <p>
+     * The list may only have been appended to since the previous call; newly
+     * added items are picked up before the minute elapses.
+     *
+     * @param timedItems items to advance, in registration order
+     */
+    public void elapseOneMinute(List<TimedItem> timedItems) {
+        sortNewItems(timedItems);
+        now++;
+        wakeDueSensors();
+        for (TimedItem store : stores) {
+            store.elapseOneMinute();
+        }
+        for (TimedItem timedItem : steppedItems) {
+            timedItem.elapseOneMinute();
+        }
+    }
+
+    /**
+     * Moves the given timed items forward by the given number of minutes.
+     * <p>
+     * Only sensors that change at least once in that time are touched.
+     *
+     * @param timedItems items to advance, in registration order
+     * @param minutes    number of minutes to move forward
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    public void advanceMinutes(List<TimedItem> timedItems, long minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot move backwards in time");
+        }
+        sortNewItems(timedItems);
+        if (steppedItems.isEmpty()) {
+            now += minutes;
+            wakeDueSensors();
+            for (TimedItem store : stores) {
+                store.advanceMinutes(minutes);
+            }
+            return;
+        }
+        for (long i = 0; i < minutes; i++) {
+            elapseOneMinute(timedItems);
+        }
+    }
+
+    /**
+     * Returns the current minute of the scheduler.
+     *
+     * @return minutes the scheduler has moved forward by, plus the minute
+     * it started at
+     */
+    public long getCurrentMinute() {
+        return now;
+    }
+
+    /**
+     * Returns the number of minutes the given item is behind the scheduler,
+     * ie. the minutes that have passed since it was last woken, see
+     * {@link TimedSensor#getPendingMinutes()}.
+     *
+     * @param timedItem item to look up
+     * @return minutes since the item was last brought up to date; 0 if the
+     * item is not waiting on a scheduler
+     */
+    public long getPendingMinutes(TimedItem timedItem) {
+        if (!(timedItem instanceof TimedSensor)) {
+            return 0;
+        }
+        return ((TimedSensor) timedItem).getPendingMinutes();
+    }
+
+    /**
+     * Brings every sensor up to the scheduler's current minute and hands it
+     * back, so that the items can be advanced by other means afterwards.
+     * The scheduler no longer advances them.
+     */
+    public void flush() {
+        for (Entry entry : entries) {
+            sync(entry);
+            entry.sensor.deferTo(null);
+        }
+        entries.clear();
+        queue.clear();
+    }
+
+    /**
+     * Sorts items added to the list since the last call into sensors, which
+     * are scheduled, column stores, and items which are stepped every
+     * minute.
+     *
+     * @param timedItems items in registration order
+     */
+    private void sortNewItems(List<TimedItem> timedItems) {
+        for (int i = sortedCount; i < timedItems.size(); i++) {
+            TimedItem timedItem = timedItems.get(i);
+            if (timedItem instanceof TimedSensor) {
+                Entry entry = new Entry((TimedSensor) timedItem, sequence++);
+                entry.sensor.deferTo(this);
+                entries.add(entry);
+                schedule(entry);
+            } else if (timedItem instanceof SensorColumnStore) {
+                stores.add(timedItem);
+            } else {
+                steppedItems.add(timedItem);
+            }
+        }
+        sortedCount = timedItems.size();
+    }
+
+    /**
+     * Wakes every sensor due at or before the current minute.
+     */
+    private void wakeDueSensors() {
+        while (!queue.isEmpty() && queue.peek().due <= now) {
+            Entry entry = queue.poll();
+            sync(entry);
+            schedule(entry);
+        }
+    }
+
+    /**
+     * Brings the sensor of the given entry up to the current minute.
+     *
+     * @param entry entry to bring up to date
+     */
+    private void sync(Entry entry) {
+        entry.sensor.advanceMinutes(entry.sensor.getPendingMinutes());
+    }
+
+    /**
+     * Queues the given entry for the next time its reading changes, if it
+     * ever does.
+     *
+     * @param entry entry whose sensor is up to date
+     */
+    private void schedule(Entry entry) {
+        long minutesUntilChange = entry.sensor.minutesUntilReadingChanges();
+        if (minutesUntilChange < 0) {
+            return;
+        }
+        entry.due = now + minutesUntilChange;
+        queue.add(entry);
+    }
+
+    /**
+     * Scheduling state of a single sensor.
+     */
+    private static class Entry {
+        private final TimedSensor sensor;
+        private final long sequence;
+        private long due;
+
+        Entry(TimedSensor sensor, long sequence) {
+            this.sensor = sensor;
+            this.sequence = sequence;
+        }
+    }
+}
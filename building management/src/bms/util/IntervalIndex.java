@@ -0,0 +1,97 @@
+package bms.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Finds which of a set of non-overlapping intervals contains a point, by
+ * binary search over the intervals sorted by where they start.
+ * <p>
+ * Intervals are open, so a point on the boundary between two intervals
+ * lies in neither of them. The index cannot be changed once built.
+ *
+ * @param <T> type of item each interval belongs to
+ */
+public class IntervalIndex<T> {
+    /**
+     * Start of each interval, in ascending order.
+     */
+    private final double[] starts;
+
+    /**
+     * End of each interval, in the same order as the starts.
+     */
+    private final double[] ends;
+
+    /**
+     * Item each interval belongs to, in the same order as the starts.
+     */
+    private final List<T> items;
+
+    /**
+     * Builds an index over the given items.
+     *
+     * @param items items to index, in any order
+     * @param start returns where an item's interval starts
+     * @param end   returns where an item's interval ends
+     * @throws IllegalArgumentException if any two intervals overlap, or any
+     *                                  interval ends before it starts
+     */
+    public IntervalIndex(List<T> items, ToDoubleFunction<T> start,
+                         ToDoubleFunction<T> end) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingDouble(start));
+        this.starts = new double[sorted.size()];
+        this.ends = new double[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            starts[i] = start.applyAsDouble(sorted.get(i));
+            ends[i] = end.applyAsDouble(sorted.get(i));
+            if (ends[i] < starts[i]) {
+                throw new IllegalArgumentException(
+                        "Interval ends before it starts");
+            }
+            if (i > 0 && starts[i] < ends[i - 1]) {
+                throw new IllegalArgumentException("Intervals overlap");
+            }
+        }
+        this.items = sorted;
+    }
+
+    /**
+     * Returns the item whose interval contains the given point.
+     *
+     * @param point point to look up
+     * @return item whose interval contains the point, or null if no
+     * interval contains it
+     */
+    public T find(double point) {
+        // index of the last interval starting before the point
+        int low = 0;
+        int high = starts.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < point) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (found >= 0 && point < ends[found]) {
+            return items.get(found);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of intervals in the index.
+     *
+     * @return number of intervals
+     */
+    public int size() {
+        return starts.length;
+    }
+}
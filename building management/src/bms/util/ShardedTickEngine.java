@@ -0,0 +1,131 @@
+package bms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Advances a list of timed items by one minute, splitting the sensors into
+ * per-core shards which are advanced in parallel.
+ * <p>
+ * A tick is carried out in two phases. First every timed sensor (or sensor
+ * column store) is advanced; these only touch their own readings, so the
+ * shards can run concurrently. Once all shards have finished, every other timed item
+ * (eg. maintenance schedules, which read room states derived from sensor
+ * readings) is advanced in registration order on the calling thread.
+ */
+public class ShardedTickEngine {
+    /**
+     * Smallest number of sensors worth handing to a separate worker.
+     */
+    private static final int MIN_SHARD_SIZE = 1024;
+
+    /**
+     * Pool used to advance the shards.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Sensors advanced in the first (parallel) phase.
+     */
+    private final List<TimedItem> sensors;
+
+    /**
+     * Items advanced in the second (serial) phase, in registration order.
+     */
+    private final List<TimedItem> others;
+
+    /**
+     * Number of items from the source list that have been sorted into
+     * phases so far.
+     */
+    private int sortedCount;
+
+    /**
+     * Creates a new engine which advances its shards on the common pool.
+     */
+    public ShardedTickEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new engine which advances its shards on the given pool.
+     *
+     * @param pool fork-join pool to run the shards on
+     */
+    public ShardedTickEngine(ForkJoinPool pool) {
+        this.pool = pool;
+        this.sensors = new ArrayList<>();
+        this.others = new ArrayList<>();
+        this.sortedCount = 0;
+    }
+
+    /**
+     * Calls {@code elapseOneMinute()} on each of the given timed items.
+     * <p>
+     * The list may only have been appended to since the previous call; newly
+     * added items are sorted into their phase before the tick starts.
+     *
+     * @param timedItems items to advance, in registration order
+     */
+    public void elapseOneMinute(List<TimedItem> timedItems) {
+        for (int i = sortedCount; i < timedItems.size(); i++) {
+            TimedItem timedItem = timedItems.get(i);
+            if (TimedItemManager.isSelfContained(timedItem)) {
+                sensors.add(timedItem);
+            } else {
+                others.add(timedItem);
+            }
+        }
+        sortedCount = timedItems.size();
+
+        int shardSize = Math.max(MIN_SHARD_SIZE,
+                sensors.size() / (pool.getParallelism() * 4));
+        if (sensors.size() <= shardSize) {
+            for (TimedItem sensor : sensors) {
+                sensor.elapseOneMinute();
+            }
+        } else {
+            // invoke() only returns once every shard has finished
+            pool.invoke(new Shard(sensors, 0, sensors.size(), shardSize));
+        }
+
+        for (TimedItem timedItem : others) {
+            timedItem.elapseOneMinute();
+        }
+    }
+
+    /**
+     * A contiguous range of sensors, split in half until it is small enough
+     * to advance directly.
+     */
+    private static class Shard extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<TimedItem> items;
+        private final int from;
+        private final int to;
+        private final int shardSize;
+
+        Shard(List<TimedItem> items, int from, int to, int shardSize) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.shardSize = shardSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= shardSize) {
+                for (int i = from; i < to; i++) {
+                    items.get(i).elapseOneMinute();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Shard(items, from, middle, shardSize),
+                    new Shard(items, middle, to, shardSize));
+        }
+    }
+}
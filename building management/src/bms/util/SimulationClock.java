@@ -0,0 +1,195 @@
+package bms.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the simulation forward on a thread of its own, at a rate which does
+ * not depend on how often the GUI draws a frame.
+ * <p>
+ * The clock calls the tick it is given once per simulated minute. At
+ * {@link #REAL_TIME} a simulated minute passes every wall-clock second, as
+ * it did when the GUI drove the simulation; faster speeds pass that many
+ * simulated minutes per second, and {@link #AS_FAST_AS_POSSIBLE} ticks back
+ * to back. If the tick falls behind the requested speed, the clock does not
+ * try to catch up on the minutes it missed.
+ * <p>
+ * The tick runs on the clock's thread, so anything it shares with other
+ * threads must be published safely, eg. through a lock or a volatile field.
+ * A clock starts paused.
+ */
+public class SimulationClock {
+    /**
+     * Speed at which one simulated minute passes every second.
+     */
+    public static final double REAL_TIME = 1;
+
+    /**
+     * Speed at which ticks are run back to back.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    /**
+     * Moves the simulation forward by one minute.
+     */
+    private final Runnable tick;
+
+    /**
+     * Thread running the ticks; null until the clock is first unpaused.
+     */
+    private Thread thread;
+
+    /**
+     * Simulated minutes per wall-clock second.
+     */
+    private double speed = REAL_TIME;
+
+    /**
+     * Whether ticking is paused.
+     */
+    private boolean paused = true;
+
+    /**
+     * Whether the clock has been shut down.
+     */
+    private boolean shutDown;
+
+    /**
+     * Value of {@link System#nanoTime()} at which the next tick is due.
+     */
+    private long nextTick;
+
+    /**
+     * Number of ticks run.
+     */
+    private volatile long ticks;
+
+    /**
+     * Creates a new, paused, clock.
+     *
+     * @param tick moves the simulation forward by one minute; called on the
+     *             clock's thread
+     */
+    public SimulationClock(Runnable tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Returns the number of simulated minutes which pass every wall-clock
+     * second.
+     *
+     * @return speed of the clock
+     */
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Changes the number of simulated minutes which pass every wall-clock
+     * second. A tick which would be due sooner at the new speed is brought
+     * forward.
+     *
+     * @param speed new speed; {@link #AS_FAST_AS_POSSIBLE} to tick back to
+     *              back
+     * @throws IllegalArgumentException if speed is not positive
+     */
+    public synchronized void setSpeed(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        this.speed = speed;
+        nextTick = Math.min(nextTick, System.nanoTime() + period());
+        notifyAll();
+    }
+
+    /**
+     * Returns whether ticking is paused.
+     *
+     * @return true if paused
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Pauses or resumes ticking. When resumed, the first tick is due one
+     * tick period later. The clock's thread is started the first time it is
+     * resumed.
+     *
+     * @param paused true to pause, false to resume
+     * @throws IllegalStateException if the clock has been shut down
+     */
+    public synchronized void setPaused(boolean paused) {
+        if (shutDown) {
+            throw new IllegalStateException("Clock has been shut down");
+        }
+        if (this.paused && !paused) {
+            nextTick = System.nanoTime() + period();
+        }
+        this.paused = paused;
+        if (thread == null && !paused) {
+            thread = new Thread(this::run, "simulation-clock");
+            // the clock must not keep the application running
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of ticks the clock has run.
+     *
+     * @return ticks run
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Stops the clock for good. A tick already running is finished.
+     */
+    public synchronized void shutdown() {
+        shutDown = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns the wall-clock time between ticks at the current speed.
+     *
+     * @return nanoseconds between ticks; 0 if ticks run back to back
+     */
+    private long period() {
+        return Double.isInfinite(speed) ? 0 : (long) (1e9 / speed);
+    }
+
+    /**
+     * Runs ticks as they become due, until the clock is shut down.
+     */
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    if (shutDown) {
+                        return;
+                    }
+                    if (paused) {
+                        wait();
+                        continue;
+                    }
+                    long now = System.nanoTime();
+                    long delay = nextTick - now;
+                    if (delay > 0) {
+                        // woken early by a change of speed or pause
+                        TimeUnit.NANOSECONDS.timedWait(this, delay);
+                        continue;
+                    }
+                    // minutes missed while falling behind are not caught up
+                    nextTick = Math.max(nextTick, now - period()) + period();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            tick.run();
+            ticks++;
+        }
+    }
+}
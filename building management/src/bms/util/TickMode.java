@@ -0,0 +1,14 @@
+package bms.util;
+
+/**
+ * Enum to represent the way the timed item manager advances its registered
+ * items by one minute.
+ */
+public enum TickMode {
+    /** every item is advanced in turn, in registration order. */
+    SERIAL,
+    /** sensors are split into shards and advanced in parallel. */
+    PARALLEL,
+    /** sensors are only woken on the minutes their reading changes. */
+    EVENT_DRIVEN
+}
@@ -1,5 +1,9 @@
 package bms.util;
 
+import bms.sensors.TimedSensor;
+
+import java.util.List;
+
 /**
  * Denotes a class containing a routine to be executed at regular intervals
  * in time.
@@ -12,4 +16,40 @@ public interface TimedItem {
      * @ass1
      */
     void elapseOneMinute();
+
+    /**
+     * Moves this item forward by the given number of minutes, as if
+     * {@link #elapseOneMinute()} had been called that many times.
+     * <p>
+     * Items whose state at a given minute can be worked out directly should
+     * override this to avoid stepping through every minute.
+     *
+     * @param minutes number of minutes to move forward
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    default void advanceMinutes(long minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot move backwards in time");
+        }
+        for (long i = 0; i < minutes; i++) {
+            elapseOneMinute();
+        }
+    }
+
+    /**
+     * Returns the timed sensors whose readings this item depends on when it
+     * is advanced.
+     * <p>
+     * When the manager moves forward several minutes at once, only these
+     * sensors need to be brought to each minute in between before this item
+     * is advanced; every other sensor can jump straight to its new reading,
+     * see {@link TimedItemManager#advanceMinutes(long)}.
+     *
+     * @return sensors this item reads; null if this item may depend on the
+     * state of any other timed item
+     */
+    default List<TimedSensor> getSensorDependencies() {
+        return null;
+    }
 }
@@ -1,7 +1,14 @@
 package bms.util;
 
+import bms.sensors.SensorColumnStore;
+import bms.sensors.TimedSensor;
+
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Singleton class which manages all the timed items.
@@ -27,12 +34,35 @@ public class TimedItemManager implements TimedItem {
      */
     private List<TimedItem> timedItems;
 
+    /**
+     * How registered items are advanced each minute.
+     */
+    private TickMode tickMode;
+
+    /**
+     * Engine used to advance items when in {@link TickMode#PARALLEL} mode;
+     * null until first needed.
+     */
+    private ShardedTickEngine shardedTickEngine;
+
+    /**
+     * Scheduler used to advance items when in {@link TickMode#EVENT_DRIVEN}
+     * mode; null in any other mode.
+     */
+    private EventTickScheduler eventTickScheduler;
+
+    /**
+     * Number of minutes the manager has moved its items forward by.
+     */
+    private long minutesElapsed;
+
     /**
      * Creates a new timed item manager with an empty list of registered items.
      * @ass1
      */
     private TimedItemManager() {
         this.timedItems = new ArrayList<>();
+        this.tickMode = TickMode.SERIAL;
     }
 
     /**
@@ -50,22 +80,240 @@ public class TimedItemManager implements TimedItem {
      * <p>
      * After calling this method, the manager will call the given timed item's
      * {@code elapseOneMinute()} method at regular intervals.
+     * <p>
+     * Items may be registered from several threads at once, eg. by sensors
+     * created while buildings are loaded in parallel.
      *
      * @param timedItem a timed item to register with the manager
      * @ass1
      */
-    public void registerTimedItem(TimedItem timedItem) {
+    public synchronized void registerTimedItem(TimedItem timedItem) {
         this.timedItems.add(timedItem);
     }
 
+    /**
+     * Unregisters a timed item, so the manager no longer advances it. Does
+     * nothing if the item is not registered.
+     *
+     * @param timedItem timed item to unregister
+     */
+    public void unregisterTimedItem(TimedItem timedItem) {
+        unregisterTimedItems(List.of(timedItem));
+    }
+
+    /**
+     * Unregisters each of the given timed items, see
+     * {@link #unregisterTimedItem(TimedItem)}.
+     * <p>
+     * Takes time in proportion to the number of registered items, however
+     * many are unregistered, so many items should be unregistered at once.
+     *
+     * @param timedItems timed items to unregister
+     */
+    public synchronized void unregisterTimedItems(
+            Collection<? extends TimedItem> timedItems) {
+        if (timedItems.isEmpty()) {
+            return;
+        }
+        Set<TimedItem> removed =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(timedItems);
+        if (!this.timedItems.removeIf(removed::contains)) {
+            return;
+        }
+        // the engines sort items as they are appended, so they start again
+        // from the remaining items
+        if (shardedTickEngine != null) {
+            shardedTickEngine = new ShardedTickEngine();
+        }
+        if (eventTickScheduler != null) {
+            eventTickScheduler.flush();
+            eventTickScheduler = new EventTickScheduler(minutesElapsed);
+        }
+    }
+
+    /**
+     * Returns whether the given item only touches its own state when
+     * advanced, so it can be advanced independently of (and before) any
+     * other item.
+     *
+     * @param timedItem item to check
+     * @return true if the item is a timed sensor or a sensor column store
+     */
+    static boolean isSelfContained(TimedItem timedItem) {
+        return timedItem instanceof TimedSensor
+                || timedItem instanceof SensorColumnStore;
+    }
+
+    /**
+     * Returns the number of timed items currently registered with the
+     * manager.
+     *
+     * @return number of registered items
+     */
+    public synchronized int getTimedItemCount() {
+        return timedItems.size();
+    }
+
+    /**
+     * Returns the number of minutes the manager has moved its registered
+     * items forward by.
+     *
+     * @return minutes elapsed
+     */
+    public long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Returns the way registered items are advanced each minute.
+     *
+     * @return current tick mode
+     */
+    public TickMode getTickMode() {
+        return tickMode;
+    }
+
+    /**
+     * Changes the way registered items are advanced each minute.
+     *
+     * @param tickMode new tick mode
+     * @throws IllegalArgumentException if tickMode is null
+     */
+    public void setTickMode(TickMode tickMode) {
+        if (tickMode == null) {
+            throw new IllegalArgumentException("Tick mode must not be null");
+        }
+        if (tickMode == TickMode.PARALLEL && shardedTickEngine == null) {
+            shardedTickEngine = new ShardedTickEngine();
+        }
+        if (this.tickMode == TickMode.EVENT_DRIVEN
+                && tickMode != TickMode.EVENT_DRIVEN) {
+            // sensors left waiting must be caught up before being stepped
+            eventTickScheduler.flush();
+            eventTickScheduler = null;
+        }
+        if (tickMode == TickMode.EVENT_DRIVEN && eventTickScheduler == null) {
+            eventTickScheduler = new EventTickScheduler(minutesElapsed);
+        }
+        this.tickMode = tickMode;
+    }
+
     /**
      * Calls {@code elapseOneMinute()} on each registered timed item.
+     * <p>
+     * In {@link TickMode#PARALLEL} mode, all sensors finish advancing before
+     * any other item is advanced, see {@link ShardedTickEngine}. In
+     * {@link TickMode#EVENT_DRIVEN} mode, only sensors whose reading changes
+     * this minute are touched, see {@link EventTickScheduler}.
      * @ass1
      */
     @Override
     public void elapseOneMinute() {
+        this.minutesElapsed++;
+        if (tickMode == TickMode.PARALLEL) {
+            shardedTickEngine.elapseOneMinute(this.timedItems);
+            return;
+        }
+        if (tickMode == TickMode.EVENT_DRIVEN) {
+            eventTickScheduler.elapseOneMinute(this.timedItems);
+            return;
+        }
         for (TimedItem timedItem : this.timedItems) {
             timedItem.elapseOneMinute();
         }
     }
+
+    /**
+     * Moves every registered timed item forward by the given number of
+     * minutes.
+     * <p>
+     * Each timed sensor (and sensor column store) jumps straight to its new
+     * reading in constant time. Other items (eg. maintenance schedules)
+     * depend on the sensor readings of every minute in between, so they are
+     * stepped through every minute, with only the sensors they depend on
+     * (see {@link TimedItem#getSensorDependencies()}) brought to each minute
+     * before them. As in the other tick modes, sensors are brought to a
+     * minute before any other item is advanced for that minute.
+     * <p>
+     * If a registered item may depend on any other item, the manager falls
+     * back to calling {@link #elapseOneMinute()} once per minute.
+     *
+     * @param minutes number of minutes to move forward
+     * @throws IllegalArgumentException if minutes is less than zero
+     */
+    @Override
+    public void advanceMinutes(long minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot move backwards in time");
+        }
+        if (tickMode == TickMode.EVENT_DRIVEN) {
+            // only wakes sensors as they change, minute by minute if need be
+            this.minutesElapsed += minutes;
+            eventTickScheduler.advanceMinutes(this.timedItems, minutes);
+            return;
+        }
+
+        List<TimedItem> steppedItems = new ArrayList<>();
+        Set<TimedSensor> dependencies =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TimedItem timedItem : this.timedItems) {
+            if (isSelfContained(timedItem)) {
+                continue;
+            }
+            List<TimedSensor> itemDependencies =
+                    timedItem.getSensorDependencies();
+            if (itemDependencies == null) {
+                for (long i = 0; i < minutes; i++) {
+                    elapseOneMinute();
+                }
+                return;
+            }
+            steppedItems.add(timedItem);
+            dependencies.addAll(itemDependencies);
+        }
+
+        // where each depended-on sensor starts, before it jumps with the rest
+        TimedSensor[] sensors = dependencies.toArray(new TimedSensor[0]);
+        long[] startMinutes = new long[sensors.length];
+        for (int i = 0; i < sensors.length; i++) {
+            startMinutes[i] = sensors[i].getTimeElapsed();
+        }
+
+        this.minutesElapsed += minutes;
+        for (TimedItem timedItem : this.timedItems) {
+            if (isSelfContained(timedItem)) {
+                timedItem.advanceMinutes(minutes);
+            }
+        }
+        if (steppedItems.isEmpty()) {
+            return;
+        }
+        for (long minute = 1; minute <= minutes; minute++) {
+            for (int i = 0; i < sensors.length; i++) {
+                sensors[i].seekTo(startMinutes[i] + minute);
+            }
+            for (TimedItem timedItem : steppedItems) {
+                timedItem.elapseOneMinute();
+            }
+        }
+    }
+
+    /**
+     * Moves every registered timed item forward until the manager's minutes
+     * elapsed is equal to the given minute, see
+     * {@link #advanceMinutes(long)}.
+     *
+     * @param minute minute to move forward to
+     * @throws IllegalArgumentException if minute is earlier than
+     *                                  {@link #getMinutesElapsed()}
+     */
+    public void seekTo(long minute) {
+        if (minute < minutesElapsed) {
+            throw new IllegalArgumentException(
+                    "Cannot move backwards in time");
+        }
+        advanceMinutes(minute - minutesElapsed);
+    }
 }
@@ -0,0 +1,69 @@
+package bms;
+
+import bms.building.BinarySnapshot;
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HeadlessRunnerTest {
+
+    @Test
+    public void simulateReportsThroughput() throws Exception {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        HeadlessRunner.simulate(buildings, 100, 0, Path.of("."),
+                new PrintStream(output, true));
+
+        String[] lines = output.toString().split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("Simulated 100 minutes in "));
+        assertTrue(lines[1], lines[1].endsWith(" ticks/s"));
+        assertTrue(lines[2], lines[2].endsWith(" sensor updates/s"));
+    }
+
+    @Test
+    public void simulateWritesSnapshots() throws Exception {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        Path directory = Files.createTempDirectory("headless");
+        try {
+            HeadlessRunner.simulate(buildings, 25, 10, directory,
+                    new PrintStream(new ByteArrayOutputStream()));
+
+            assertEquals(2, directory.toFile().listFiles().length);
+            List<Building> restored = BinarySnapshot.load(
+                    directory.resolve("minute-20.bin"));
+            assertEquals(buildings.size(), restored.size());
+            assertTrue(Files.exists(directory.resolve("minute-10.bin")));
+        } finally {
+            for (File file : directory.toFile().listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void countSensors() throws Exception {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        long expected = 0;
+        for (String line : Files.readAllLines(Path.of("saves/uqstlucia.txt"))) {
+            if (line.matches("[A-Za-z]+Sensor:.*")) {
+                expected++;
+            }
+        }
+        assertEquals(expected, HeadlessRunner.countSensors(buildings));
+    }
+}
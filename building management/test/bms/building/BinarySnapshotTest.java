@@ -0,0 +1,206 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinarySnapshotTest {
+
+    private static byte[] write(List<Building> buildings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinarySnapshot.write(buildings, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static List<Building> read(byte[] bytes)
+            throws IOException, FileFormatException {
+        return BinarySnapshot.read(new DataInputStream(
+                new ByteArrayInputStream(bytes)));
+    }
+
+    private static void advance(List<Building> buildings, int minutes) {
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    for (Sensor sensor : room.getSensors()) {
+                        ((TimedSensor) sensor).advanceMinutes(minutes);
+                    }
+                }
+                if (floor.getMaintenanceSchedule() != null) {
+                    for (int i = 0; i < minutes; i++) {
+                        floor.getMaintenanceSchedule().elapseOneMinute();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertSameState(Building expected, Building actual) {
+        assertEquals(expected.encode(), actual.encode());
+        List<Floor> expectedFloors = expected.getFloors();
+        List<Floor> actualFloors = actual.getFloors();
+        for (int i = 0; i < expectedFloors.size(); i++) {
+            MaintenanceSchedule expectedSchedule =
+                    expectedFloors.get(i).getMaintenanceSchedule();
+            MaintenanceSchedule actualSchedule =
+                    actualFloors.get(i).getMaintenanceSchedule();
+            if (expectedSchedule != null) {
+                assertEquals(expectedSchedule.getCurrentRoomIndex(),
+                        actualSchedule.getCurrentRoomIndex());
+                assertEquals(expectedSchedule.getTimeElapsedCurrentRoom(),
+                        actualSchedule.getTimeElapsedCurrentRoom());
+            }
+            List<Room> expectedRooms = expectedFloors.get(i).getRooms();
+            List<Room> actualRooms = actualFloors.get(i).getRooms();
+            for (int j = 0; j < expectedRooms.size(); j++) {
+                Room expectedRoom = expectedRooms.get(j);
+                Room actualRoom = actualRooms.get(j);
+                assertEquals(expectedRoom.fireDrillOngoing(),
+                        actualRoom.fireDrillOngoing());
+                assertEquals(expectedRoom.maintenanceOngoing(),
+                        actualRoom.maintenanceOngoing());
+                assertEquals(expectedRoom.evaluateRoomState(),
+                        actualRoom.evaluateRoomState());
+                assertEquals(expectedRoom.evaluateHazardLevel(),
+                        actualRoom.evaluateHazardLevel());
+                List<Sensor> expectedSensors = expectedRoom.getSensors();
+                List<Sensor> actualSensors = actualRoom.getSensors();
+                for (int k = 0; k < expectedSensors.size(); k++) {
+                    TimedSensor expectedSensor =
+                            (TimedSensor) expectedSensors.get(k);
+                    TimedSensor actualSensor =
+                            (TimedSensor) actualSensors.get(k);
+                    assertEquals(expectedSensor.getTimeElapsed(),
+                            actualSensor.getTimeElapsed());
+                    assertEquals(expectedSensor.getCurrentReading(),
+                            actualSensor.getCurrentReading());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsRunningModel() throws IOException,
+            FileFormatException {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        advance(buildings, 37);
+        buildings.get(1).getFloors().get(0).fireDrill(RoomType.STUDY);
+
+        List<Building> restored = read(write(buildings));
+        assertEquals(buildings.size(), restored.size());
+        for (int i = 0; i < buildings.size(); i++) {
+            assertSameState(buildings.get(i), restored.get(i));
+        }
+
+        // both models carry on in step
+        advance(buildings, 11);
+        advance(restored, 11);
+        for (int i = 0; i < buildings.size(); i++) {
+            assertSameState(buildings.get(i), restored.get(i));
+        }
+    }
+
+    @Test
+    public void keepsWeightingsOfEachSensor() throws Exception {
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{40, 90}, 1);
+        TemperatureSensor temperatureSensor =
+                new TemperatureSensor(new int[]{20, 80});
+        room.addSensor(noiseSensor);
+        room.addSensor(temperatureSensor);
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        weightings.put(noiseSensor, 30);
+        weightings.put(temperatureSensor, 70);
+        room.setHazardEvaluator(new WeightingBasedHazardEvaluator(weightings));
+        Floor floor = new Floor(1, 10, 10);
+        floor.addRoom(room);
+        Building building = new Building("Weighted");
+        building.addFloor(floor);
+
+        Room restored = read(write(List.of(building))).get(0).getFloors()
+                .get(0).getRoomByNumber(101);
+        WeightingBasedHazardEvaluator evaluator =
+                (WeightingBasedHazardEvaluator) restored.getHazardEvaluator();
+        for (Sensor sensor : restored.getSensors()) {
+            assertEquals(weightings.get((HazardSensor) sensor),
+                    evaluator.getWeighting((HazardSensor) sensor));
+        }
+    }
+
+    @Test
+    public void savesToFile() throws IOException, FileFormatException {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        BinarySnapshot.save(buildings, file.toPath());
+        List<Building> restored = BinarySnapshot.load(file.toPath());
+        assertEquals(buildings.get(1).encode(), restored.get(1).encode());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void rejectsOtherFiles() throws IOException, FileFormatException {
+        read("Forgan Smith Building\n1\n".getBytes());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void rejectsTruncatedSnapshot() throws IOException,
+            FileFormatException {
+        byte[] bytes = write(
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt"));
+        read(Arrays.copyOf(bytes, bytes.length / 2));
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void rejectsCorruptReadingCount() throws IOException,
+            FileFormatException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BinarySnapshot.MAGIC);
+        out.writeInt(BinarySnapshot.VERSION);
+        out.writeInt(1);
+        out.writeUTF("Corrupt");
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeDouble(10);
+        out.writeDouble(10);
+        out.writeInt(1);
+        out.writeInt(101);
+        out.writeByte(RoomType.OFFICE.ordinal());
+        out.writeDouble(20);
+        out.writeBoolean(false);
+        out.writeBoolean(false);
+        out.writeInt(1);
+        // a noise sensor claiming far more readings than follow
+        out.writeByte(1);
+        out.writeInt(1);
+        out.writeInt(Integer.MAX_VALUE - 8);
+        out.writeInt(50);
+        out.writeInt(60);
+        read(bytes.toByteArray());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void rejectsNewerVersion() throws IOException,
+            FileFormatException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BinarySnapshot.MAGIC);
+        out.writeInt(BinarySnapshot.VERSION + 1);
+        read(bytes.toByteArray());
+    }
+}
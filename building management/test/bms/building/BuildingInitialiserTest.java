@@ -7,13 +7,21 @@ import bms.hazardevaluation.RuleBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.TimedItemManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -234,4 +242,210 @@ public class BuildingInitialiserTest {
     }
 
 
-}
\ No newline at end of file
+
+    @Test
+    public void failedParallelLoadLeavesNoSensorsRegistered()
+            throws IOException {
+        List<String> lines = new ArrayList<>(List.of("Leaky", "8",
+                "1:10.00:10.00:1", "101:NOTATYPE:20.00:0"));
+        for (int floor = 2; floor <= 8; floor++) {
+            lines.add(floor + ":10.00:10.00:1");
+            lines.add(floor + "01:STUDY:20.00:1");
+            lines.add("NoiseSensor:50,60:2");
+        }
+        lines.add("");
+        Path save = Files.createTempFile("leaky", ".txt");
+        try {
+            Files.writeString(save, String.join(System.lineSeparator(),
+                    lines));
+            int registered = TimedItemManager.getInstance()
+                    .getTimedItemCount();
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                BuildingInitialiser.loadBuildings(save.toString(), pool);
+                fail("Expected FileFormatException");
+            } catch (FileFormatException expected) {
+                // the first floor has an unknown room type
+            } finally {
+                pool.shutdown();
+            }
+            assertEquals(registered,
+                    TimedItemManager.getInstance().getTimedItemCount());
+        } finally {
+            Files.deleteIfExists(save);
+        }
+    }
+
+    @Test
+    public void loadBuildingsFromReader() throws IOException,
+            FileFormatException {
+        String save = String.join(System.lineSeparator(),
+                "Small", "2",
+                "1:10.00:10.00:2:102,101",
+                "101:STUDY:20.00:1",
+                "NoiseSensor:50,60:2",
+                "102:OFFICE:30.00:2:RuleBased",
+                "OccupancySensor:3,4:1:10",
+                "TemperatureSensor:20,21",
+                "2:10.00:10.00:0",
+                "Empty", "0", "");
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings(new StringReader(save));
+        assertEquals(2, buildings.size());
+        assertEquals(save, buildings.get(0).encode()
+                + buildings.get(1).encode());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void loadBuildingsEmptyLine() throws FileFormatException {
+        BuildingInitialiser.loadBuildings(new StringReader(
+                "Small\n1\n\n1:10:10:0\n"));
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void loadBuildingsTruncated() throws FileFormatException {
+        BuildingInitialiser.loadBuildings(new StringReader(
+                "Small\n1\n1:10:10:1\n"));
+    }
+
+    /**
+     * Loads the given file serially, or in parallel when a pool is given,
+     * and describes the buildings loaded or the exception thrown.
+     */
+    private static String load(String filename, ForkJoinPool pool)
+            throws IOException {
+        try {
+            List<Building> buildings = pool == null
+                    ? BuildingInitialiser.loadBuildings(filename)
+                    : BuildingInitialiser.loadBuildings(filename, pool);
+            return describe(buildings);
+        } catch (FileFormatException e) {
+            return "FileFormatException: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Loads the given file by mapping it, serially or in parallel when a
+     * pool is given, and describes the buildings loaded or the exception
+     * thrown.
+     */
+    private static String loadMapped(String filename, ForkJoinPool pool)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename))) {
+            List<Building> buildings = pool == null
+                    ? BuildingInitialiser.loadBuildings(channel)
+                    : BuildingInitialiser.loadBuildings(channel, pool);
+            return describe(buildings);
+        } catch (FileFormatException e) {
+            return "FileFormatException: " + e.getMessage();
+        }
+    }
+
+    private static String describe(List<Building> buildings) {
+        StringBuilder result = new StringBuilder();
+        for (Building building : buildings) {
+            result.append(building.encode()).append("\n--\n");
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void loadBuildingsParallelMatchesSerial() throws IOException {
+        File[] saves = new File("saves").listFiles();
+        assertNotNull(saves);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (File save : saves) {
+                assertEquals(save.getName(), load(save.getPath(), null),
+                        load(save.getPath(), pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void loadBuildingsMappedMatchesReader() throws IOException {
+        File[] saves = new File("saves").listFiles();
+        assertNotNull(saves);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (File save : saves) {
+                String expected = load(save.getPath(), null);
+                assertEquals(save.getName(), expected,
+                        loadMapped(save.getPath(), null));
+                assertEquals(save.getName(), expected,
+                        loadMapped(save.getPath(), pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void loadBuildingsMappedDecodesNames() throws IOException,
+            FileFormatException {
+        File file = File.createTempFile("mapped", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "Caf\u00e9 \u00d6st\n0\n"
+                .getBytes(StandardCharsets.UTF_8));
+        String expected = BuildingInitialiser.loadBuildings(file.getPath())
+                .get(0).getName();
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            List<Building> buildings =
+                    BuildingInitialiser.loadBuildings(channel);
+            assertEquals(expected, buildings.get(0).getName());
+        }
+    }
+
+    @Test
+    public void loadBuildingsParallelFirstError() throws IOException {
+        String save = String.join("\n",
+                "First", "1",
+                "1:10:10:1",
+                "101:STUDY:20:1",
+                "NoiseSensor:50,60:2",
+                "Second", "2",
+                "1:10:10:0",
+                "3:10:10:0",
+                "Third", "1",
+                "1:10:10:1",
+                "101:KITCHEN:20:0");
+        File file = File.createTempFile("parallel", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), save);
+
+        String serial = load(file.getPath(), null);
+        assertTrue(serial, serial.startsWith("FileFormatException: line 10"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(serial, load(file.getPath(), pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void encodeToMatchesEncode() throws IOException,
+            FileFormatException {
+        for (Building building :
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt")) {
+            StringBuilder out = new StringBuilder();
+            building.encodeTo(out);
+            assertEquals(building.encode(), out.toString());
+            for (Floor floor : building.getFloors()) {
+                out.setLength(0);
+                floor.encodeTo(out);
+                assertEquals(floor.encode(), out.toString());
+                for (Room room : floor.getRooms()) {
+                    for (Sensor sensor : room.getSensors()) {
+                        out.setLength(0);
+                        ((TimedSensor) sensor).encodeTo(out);
+                        assertEquals(((TimedSensor) sensor).encode(),
+                                out.toString());
+                    }
+                }
+            }
+        }
+    }
+}
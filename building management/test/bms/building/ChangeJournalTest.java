@@ -0,0 +1,232 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TemperatureSensor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ChangeJournalTest {
+
+    /**
+     * Number of changes made by {@link #makeChanges}.
+     */
+    private static final int CHANGES = 12;
+
+    private Path directory;
+    private List<Building> buildings;
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        directory = Files.createTempDirectory("journal");
+        buildings = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    private static String encodeAll(List<Building> buildings) {
+        StringBuilder encoded = new StringBuilder();
+        for (Building building : buildings) {
+            encoded.append(building.encode());
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Makes one change of every kind to the buildings, recording each.
+     */
+    private static void makeChanges(List<Building> buildings,
+                                    ChangeJournal journal) throws Exception {
+        Building annex = new Building("Annex: East");
+        buildings.add(annex);
+        journal.recordAddBuilding(annex.getName());
+        int index = buildings.size() - 1;
+
+        Floor floor = new Floor(1, 10.5, 12);
+        annex.addFloor(floor);
+        journal.recordAddFloor(index, floor);
+        Room office = new Room(101, RoomType.OFFICE, 20.25);
+        floor.addRoom(office);
+        journal.recordAddRoom(index, 1, office);
+        Room study = new Room(102, RoomType.STUDY, 15);
+        floor.addRoom(study);
+        journal.recordAddRoom(index, 1, study);
+
+        NoiseSensor noise = new NoiseSensor(new int[]{55, 62, 69}, 3);
+        office.addSensor(noise);
+        journal.recordAddSensor(index, 1, 101, noise);
+        OccupancySensor occupancy =
+                new OccupancySensor(new int[]{13, 24, 28}, 4, 30);
+        office.addSensor(occupancy);
+        journal.recordAddSensor(index, 1, 101, occupancy);
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        weightings.put(noise, 40);
+        weightings.put(occupancy, 60);
+        office.setHazardEvaluator(
+                new WeightingBasedHazardEvaluator(weightings));
+        journal.recordSetHazardEvaluator(index, 1, office);
+
+        floor.createMaintenanceSchedule(List.of(study, office));
+        journal.recordCreateMaintenanceSchedule(index, 1,
+                List.of(study, office));
+
+        Room existing = buildings.get(0).getFloorByNumber(2)
+                .getRoomByNumber(202);
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[]{25, 26, 24});
+        existing.addSensor(temperature);
+        journal.recordAddSensor(0, 2, 202, temperature);
+        existing.setHazardEvaluator(new RuleBasedHazardEvaluator(
+                List.of(temperature)));
+        journal.recordSetHazardEvaluator(0, 2, existing);
+
+        buildings.get(0).renovateFloor(2, 10, 9);
+        journal.recordRenovateFloor(0, 2, 10, 9);
+
+        existing.setHazardEvaluator(null);
+        journal.recordSetHazardEvaluator(0, 2, existing);
+    }
+
+    @Test
+    public void recoversChangesAfterSnapshot() throws Exception {
+        try (ChangeJournal journal = ChangeJournal.create(directory,
+                buildings)) {
+            makeChanges(buildings, journal);
+            assertEquals(CHANGES, journal.getSequence());
+            assertEquals(CHANGES, journal.getRecordCount());
+        }
+
+        try (ChangeJournal journal = ChangeJournal.open(directory)) {
+            assertEquals(encodeAll(buildings),
+                    encodeAll(journal.getBuildings()));
+            assertEquals(CHANGES, journal.getSequence());
+            assertEquals(CHANGES, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    public void ignoresTruncatedLastLine() throws Exception {
+        try (ChangeJournal journal = ChangeJournal.create(directory,
+                buildings)) {
+            makeChanges(buildings, journal);
+        }
+        Files.writeString(directory.resolve("journal.log"),
+                (CHANGES + 1) + ":addBuil", StandardOpenOption.APPEND);
+
+        try (ChangeJournal journal = ChangeJournal.open(directory)) {
+            assertEquals(encodeAll(buildings),
+                    encodeAll(journal.getBuildings()));
+            buildings.add(new Building("Late"));
+            journal.recordAddBuilding("Late");
+        }
+
+        try (ChangeJournal journal = ChangeJournal.open(directory)) {
+            assertEquals(encodeAll(buildings),
+                    encodeAll(journal.getBuildings()));
+            assertEquals(CHANGES + 1, journal.getSequence());
+        }
+    }
+
+    @Test
+    public void compactionDropsRecordsInSnapshot() throws Exception {
+        ReentrantLock stateLock = new ReentrantLock();
+        try (ChangeJournal journal = ChangeJournal.create(directory,
+                buildings)) {
+            makeChanges(buildings, journal);
+            journal.compactInBackground(stateLock).get(10, TimeUnit.SECONDS);
+
+            assertEquals(0, journal.getRecordCount());
+            assertEquals("", Files.readString(
+                    directory.resolve("journal.log")));
+            assertTrue(Files.exists(
+                    directory.resolve("snapshot-" + CHANGES + ".bin")));
+            assertFalse(Files.exists(directory.resolve("snapshot-0.bin")));
+            assertEquals(2, directory.toFile().listFiles().length);
+
+            buildings.add(new Building("After compaction"));
+            journal.recordAddBuilding("After compaction");
+        }
+
+        try (ChangeJournal journal = ChangeJournal.open(directory)) {
+            assertEquals(encodeAll(buildings),
+                    encodeAll(journal.getBuildings()));
+            assertEquals(CHANGES + 1, journal.getSequence());
+            assertEquals(1, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    public void compactionWritesOutsideTheLock() throws Exception {
+        List<String> filesWhileLocked = new ArrayList<>();
+        ReentrantLock stateLock = new ReentrantLock() {
+            @Override
+            public void unlock() {
+                for (File file : directory.toFile().listFiles()) {
+                    filesWhileLocked.add(file.getName());
+                }
+                super.unlock();
+            }
+        };
+        try (ChangeJournal journal = ChangeJournal.create(directory,
+                buildings)) {
+            makeChanges(buildings, journal);
+            journal.compact(stateLock);
+        }
+        // nothing of the new snapshot is on the disk until it is unlocked
+        assertEquals(List.of("journal.log", "snapshot-0.bin"),
+                filesWhileLocked.stream().sorted().collect(
+                        Collectors.toList()));
+    }
+
+    @Test
+    public void reportsLineOfInvalidRecord() throws Exception {
+        ChangeJournal.create(directory, buildings).close();
+        Files.writeString(directory.resolve("journal.log"),
+                "1:addBuilding:Annex\n2:addFloor:9:1:10.0:10.0\n",
+                StandardCharsets.UTF_8);
+
+        try {
+            ChangeJournal.open(directory);
+            fail("Opened a journal referring to a missing building");
+        } catch (FileFormatException expected) {
+            assertTrue(expected.getMessage(),
+                    expected.getMessage().startsWith("line 2,"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void createRefusesExistingJournal() throws Exception {
+        ChangeJournal.create(directory, buildings).close();
+        ChangeJournal.create(directory, buildings);
+    }
+}
@@ -0,0 +1,150 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SaveFileTokenizerTest {
+
+    private static SaveFileTokenizer tokens(String text) {
+        return new CharBufferTokenizer(new StringReader(text));
+    }
+
+    @Test
+    public void readsFloorLine() throws IOException, FileFormatException {
+        SaveFileTokenizer tokens = tokens("1:8.5:40:10:104,107\r\nnext");
+        assertEquals(1, tokens.readInt());
+        tokens.expect(':');
+        assertEquals(8.5, tokens.readDouble(), 0);
+        tokens.expect(':');
+        assertEquals(40, tokens.readDouble(), 0);
+        tokens.expect(':');
+        assertEquals(10, tokens.readInt());
+        tokens.expect(':');
+        assertEquals(2, tokens.readInts(','));
+        assertEquals(104, tokens.getInts()[0]);
+        assertEquals(107, tokens.getInts()[1]);
+        assertTrue(tokens.atLineEnd());
+        tokens.endLine();
+        assertEquals(2, tokens.getLine());
+        assertEquals("next", tokens.readLine());
+        assertTrue(tokens.atEnd());
+    }
+
+    @Test
+    public void doublesMatchParseDouble() throws IOException,
+            FileFormatException {
+        Random random = new Random(12012);
+        for (int i = 0; i < 10000; i++) {
+            String text = random.nextInt(100000) + "." + random.nextInt(100);
+            if (i % 3 == 0) {
+                text = String.valueOf(random.nextDouble() * 1000);
+            }
+            assertEquals(text, Double.parseDouble(text),
+                    tokens(text).readDouble(), 0);
+        }
+        for (String text : new String[]{"5.", ".5", "-0", "1e3", " 7",
+                "12345678901234567890.5", "0.1000000000000000055511"}) {
+            assertEquals(text, Double.parseDouble(text),
+                    tokens(text).readDouble(), 0);
+        }
+    }
+
+    @Test
+    public void intBounds() throws IOException, FileFormatException {
+        assertEquals(Integer.MAX_VALUE, tokens("2147483647").readInt());
+        assertEquals(Integer.MIN_VALUE, tokens("-2147483648").readInt());
+        assertEquals(5, tokens("+5").readInt());
+    }
+
+    @Test
+    public void errorPosition() throws IOException, FileFormatException {
+        SaveFileTokenizer tokens = tokens("Building\n1:\n");
+        tokens.readLine();
+        assertEquals(1, tokens.readInt());
+        try {
+            tokens.endLine();
+            fail();
+        } catch (FileFormatException e) {
+            assertTrue(e.getMessage(), e.getMessage()
+                    .startsWith("line 2, column 2:"));
+        }
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void intOverflow() throws IOException, FileFormatException {
+        tokens("2147483648").readInt();
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void intFollowedByText() throws IOException, FileFormatException {
+        tokens("12a").readInt();
+    }
+
+    @Test
+    public void trailingSeparatorsEndInts() throws IOException,
+            FileFormatException {
+        SaveFileTokenizer tokens = tokens("13,24,28,15,6,:4:30");
+        assertEquals(5, tokens.readInts(','));
+        assertEquals(6, tokens.getInts()[4]);
+        tokens.expect(':');
+        assertEquals(4, tokens.readInt());
+
+        tokens = tokens("104,107,,\n");
+        assertEquals(2, tokens.readInts(','));
+        assertTrue(tokens.atLineEnd());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void emptyFieldBetweenInts() throws IOException,
+            FileFormatException {
+        tokens("13,,24:4").readInts(',');
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void notADouble() throws IOException, FileFormatException {
+        tokens("1.2.3").readDouble();
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void emptyLine() throws IOException, FileFormatException {
+        tokens("\nBuilding").readLine();
+    }
+
+    @Test
+    public void byteBufferSpansChunks() throws IOException,
+            FileFormatException {
+        byte[] bytes = "Caf\u00e9\n12:3.25,-7\r\nend"
+                .getBytes(StandardCharsets.UTF_8);
+        // chunks of 4 bytes, so every token crosses a chunk boundary
+        ByteBuffer[] chunks = new ByteBuffer[(bytes.length + 3) / 4];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.wrap(bytes, i * 4,
+                    Math.min(4, bytes.length - i * 4)).slice();
+        }
+        RandomAccessTokenizer tokens = new ByteBufferTokenizer(chunks, 2,
+                StandardCharsets.UTF_8, 0, bytes.length, 1);
+        assertEquals("Caf\u00e9", tokens.readLine());
+        assertEquals(12, tokens.readInt());
+        tokens.expect(':');
+        assertEquals(3.25, tokens.readDouble(), 0);
+        tokens.expect(',');
+        long offset = tokens.getOffset();
+        assertEquals(-7, tokens.readInt());
+        tokens.endLine();
+        assertEquals(3, tokens.getLine());
+
+        RandomAccessTokenizer slice = tokens.slice(offset, offset + 2, 2);
+        assertEquals(-7, slice.readInt());
+        assertTrue(slice.atEnd());
+        assertEquals("end", tokens.readWord());
+        assertTrue(tokens.atEnd());
+    }
+}
@@ -0,0 +1,180 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.Assert.*;
+
+public class AutosaveServiceTest {
+
+    private ReentrantReadWriteLock modelLock;
+    private Path directory;
+    private List<Building> buildings;
+    private List<String> saved;
+    private Semaphore finished;
+    private AutosaveService autosave;
+
+    private final BackgroundSaver.Listener listener =
+            new BackgroundSaver.Listener() {
+                @Override
+                public void saveProgress(int buildingsSaved,
+                                         int buildingCount) {
+                }
+
+                @Override
+                public void saveFinished(Path path, Instant finishTime) {
+                    saved.add(path.getFileName().toString());
+                    finished.release();
+                }
+
+                @Override
+                public void saveFailed(Path path, IOException exception) {
+                    saved.add("failed " + path.getFileName());
+                    finished.release();
+                }
+            };
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        modelLock = new ReentrantReadWriteLock();
+        directory = Files.createTempDirectory("autosave");
+        buildings = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        saved = Collections.synchronizedList(new ArrayList<>());
+        finished = new Semaphore(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (autosave != null) {
+            autosave.shutdown();
+        }
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    private void awaitSaves(int count) throws InterruptedException {
+        assertTrue("Saves did not finish",
+                finished.tryAcquire(count, 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void savesEverySimulatedInterval() throws Exception {
+        autosave = new AutosaveService(buildings, modelLock, directory, 3, 0,
+                listener);
+        autosave.saveEverySimulatedMinutes(10);
+        for (int minute = 1; minute <= 9; minute++) {
+            autosave.minuteElapsed();
+        }
+        assertFalse(finished.tryAcquire(200, TimeUnit.MILLISECONDS));
+
+        autosave.minuteElapsed();
+        awaitSaves(1);
+        assertEquals(List.of("autosave-0.txt"), saved);
+    }
+
+    @Test
+    public void keepsRingOfSaves() throws Exception {
+        autosave = new AutosaveService(buildings, modelLock, directory, 3, 0,
+                listener);
+        for (int i = 0; i < 4; i++) {
+            autosave.saveNow();
+            awaitSaves(1);
+        }
+        assertEquals(List.of("autosave-0.txt", "autosave-1.txt",
+                "autosave-2.txt", "autosave-0.txt"), saved);
+        assertEquals(3, directory.toFile().listFiles().length);
+        autosave.shutdown();
+
+        // a new service replaces the oldest save first
+        Files.setLastModifiedTime(directory.resolve("autosave-0.txt"),
+                FileTime.fromMillis(3000));
+        Files.setLastModifiedTime(directory.resolve("autosave-1.txt"),
+                FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(directory.resolve("autosave-2.txt"),
+                FileTime.fromMillis(2000));
+        saved.clear();
+        autosave = new AutosaveService(buildings, modelLock, directory, 3, 0,
+                listener);
+        autosave.saveNow();
+        awaitSaves(1);
+        assertEquals(List.of("autosave-1.txt"), saved);
+    }
+
+    @Test
+    public void coalescesSavesAskedForWhileSaving() throws Exception {
+        autosave = new AutosaveService(buildings, modelLock, directory, 5, 0,
+                listener);
+        modelLock.writeLock().lock();
+        try {
+            for (int i = 0; i < 5; i++) {
+                autosave.saveNow();
+            }
+        } finally {
+            modelLock.writeLock().unlock();
+        }
+        awaitSaves(2);
+        assertFalse(finished.tryAcquire(300, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("autosave-0.txt", "autosave-1.txt"), saved);
+    }
+
+    @Test
+    public void minuteElapsedDoesNotWaitForModelLock() throws Exception {
+        autosave = new AutosaveService(buildings, modelLock, directory, 3, 0,
+                listener);
+        autosave.saveEverySimulatedMinutes(1);
+        modelLock.writeLock().lock();
+        try {
+            Thread clock = new Thread(autosave::minuteElapsed);
+            clock.start();
+            clock.join(5000);
+            assertFalse(clock.isAlive());
+            assertFalse(finished.tryAcquire(300, TimeUnit.MILLISECONDS));
+        } finally {
+            modelLock.writeLock().unlock();
+        }
+        awaitSaves(1);
+        assertEquals(List.of("autosave-0.txt"), saved);
+    }
+
+    @Test
+    public void limitsBytesPerSecond() throws Exception {
+        long size = 0;
+        for (Building building : buildings) {
+            size += building.encode().length();
+        }
+        // the whole save should take at least half a second
+        autosave = new AutosaveService(buildings, modelLock, directory, 1,
+                size * 2, listener);
+        long start = System.nanoTime();
+        autosave.saveNow();
+        awaitSaves(1);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue("Save took " + elapsedMillis + "ms",
+                elapsedMillis >= 450);
+        assertEquals(List.of("autosave-0.txt"), saved);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustKeepASave() throws IOException {
+        new AutosaveService(buildings, modelLock, directory, 0, 0, listener);
+    }
+}
@@ -0,0 +1,126 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.Assert.*;
+
+public class BackgroundSaverTest {
+
+    private ReentrantReadWriteLock modelLock;
+    private BackgroundSaver saver;
+    private Path directory;
+    private List<Building> buildings;
+    private List<String> events;
+
+    private final BackgroundSaver.Listener listener =
+            new BackgroundSaver.Listener() {
+                @Override
+                public void saveProgress(int buildingsSaved,
+                                         int buildingCount) {
+                    events.add(buildingsSaved + "/" + buildingCount);
+                }
+
+                @Override
+                public void saveFinished(Path path, Instant finishTime) {
+                    events.add("finished " + path.getFileName());
+                }
+
+                @Override
+                public void saveFailed(Path path, IOException exception) {
+                    events.add("failed " + path.getFileName());
+                }
+            };
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        modelLock = new ReentrantReadWriteLock();
+        saver = new BackgroundSaver(modelLock);
+        directory = Files.createTempDirectory("saves");
+        buildings = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        events = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        saver.shutdown();
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    private String encodeAll() {
+        StringBuilder expected = new StringBuilder();
+        for (Building building : buildings) {
+            expected.append(building.encode());
+        }
+        return expected.toString();
+    }
+
+    @Test
+    public void replacesFileWithSave() throws Exception {
+        Path path = directory.resolve("quicksave.txt");
+        Files.writeString(path, "previous save");
+
+        saver.save(buildings, path, listener).get(10, TimeUnit.SECONDS);
+
+        assertEquals(encodeAll(),
+                Files.readString(path, Charset.defaultCharset()));
+        int count = buildings.size();
+        assertEquals(count + 1, events.size());
+        assertEquals(count + "/" + count, events.get(count - 1));
+        assertEquals("finished quicksave.txt", events.get(count));
+        // only the save itself is left behind
+        assertEquals(1, directory.toFile().listFiles().length);
+    }
+
+    @Test
+    public void waitsForStructuralChanges() throws Exception {
+        Path path = directory.resolve("quicksave.txt");
+        modelLock.writeLock().lock();
+        Future<?> save;
+        try {
+            save = saver.save(buildings, path, listener);
+            try {
+                save.get(200, TimeUnit.MILLISECONDS);
+                fail("Save completed while the model was being changed");
+            } catch (TimeoutException expected) {
+                // still waiting for the write lock
+            }
+            assertFalse(Files.exists(path));
+        } finally {
+            modelLock.writeLock().unlock();
+        }
+        save.get(10, TimeUnit.SECONDS);
+        assertEquals(encodeAll(),
+                Files.readString(path, Charset.defaultCharset()));
+    }
+
+    @Test
+    public void reportsFailure() throws Exception {
+        Path path = directory.resolve("missing").resolve("quicksave.txt");
+
+        saver.save(buildings, path, listener).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("failed quicksave.txt"), events);
+        assertFalse(Files.exists(path));
+    }
+}
@@ -0,0 +1,149 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TemperatureSensor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BuildingLayoutTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Building building;
+    private Room office;
+    private Room study;
+    private Room laboratory;
+
+    @Before
+    public void setUp() throws Exception {
+        building = new Building("Test");
+        Floor ground = new Floor(1, 10, 10);
+        building.addFloor(ground);
+        office = new Room(101, RoomType.OFFICE, 20);
+        study = new Room(102, RoomType.STUDY, 40);
+        ground.addRoom(office);
+        ground.addRoom(study);
+        Floor first = new Floor(2, 10, 10);
+        building.addFloor(first);
+        laboratory = new Room(201, RoomType.LABORATORY, 50);
+        first.addRoom(laboratory);
+
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[]{20, 21});
+        office.addSensor(temperature);
+        office.addSensor(new OccupancySensor(new int[]{3, 4}, 2, 12));
+        office.setHazardEvaluator(
+                new RuleBasedHazardEvaluator(List.of(temperature)));
+    }
+
+    @Test
+    public void floorsAreStackedFromTheBottom() {
+        BuildingLayout layout = new BuildingLayout(building, 800, 600);
+        List<BuildingLayout.FloorLayout> floors = layout.getFloors();
+        assertEquals(2, floors.size());
+        assertEquals(1, floors.get(0).getFloor().getFloorNumber());
+        assertEquals(2, floors.get(1).getFloor().getFloorNumber());
+        assertEquals(600 - 20 - BuildingLayout.FLOOR_HEIGHT,
+                floors.get(0).getY(), DELTA);
+        assertEquals(floors.get(0).getY() - BuildingLayout.FLOOR_HEIGHT,
+                floors.get(1).getY(), DELTA);
+        // equal floors fill the width of the canvas, less padding
+        assertEquals(760, floors.get(0).getWidth(), DELTA);
+        assertEquals(760, floors.get(1).getWidth(), DELTA);
+        assertEquals(3, layout.getRoomCount());
+    }
+
+    @Test
+    public void roomsAreSideBySideInProportionToArea() {
+        BuildingLayout layout = new BuildingLayout(building, 800, 600);
+        List<BuildingLayout.RoomLayout> rooms =
+                layout.getFloors().get(0).getRooms();
+        assertSame(office, rooms.get(0).getRoom());
+        assertSame(study, rooms.get(1).getRoom());
+        assertEquals(0, rooms.get(0).getIndex());
+        assertEquals(1, rooms.get(1).getIndex());
+        // 20 and 40 of the 100 square metres, less 5 padding on each side
+        assertEquals(760 * 0.2 - 10, rooms.get(0).getWidth(), DELTA);
+        assertEquals(760 * 0.4 - 10, rooms.get(1).getWidth(), DELTA);
+        assertEquals(rooms.get(0).getX() + rooms.get(0).getWidth() + 10,
+                rooms.get(1).getX(), DELTA);
+    }
+
+    @Test
+    public void describesStructureOfRooms() {
+        BuildingLayout layout = new BuildingLayout(building, 800, 600);
+        BuildingLayout.RoomLayout officeLayout =
+                layout.getFloors().get(0).getRooms().get(0);
+        BuildingLayout.RoomLayout studyLayout =
+                layout.getFloors().get(0).getRooms().get(1);
+        assertTrue(officeLayout.hasHazardEvaluator());
+        assertFalse(studyLayout.hasHazardEvaluator());
+        assertEquals(12, officeLayout.getOccupancyCapacity());
+        assertEquals(-1, studyLayout.getOccupancyCapacity());
+        assertEquals("Room #101" + System.lineSeparator() + "OFFICE",
+                officeLayout.getHeading());
+    }
+
+    @Test
+    public void findsFloorsAndRoomsAtPoints() {
+        BuildingLayout layout = new BuildingLayout(building, 800, 600);
+        BuildingLayout.FloorLayout ground = layout.getFloors().get(0);
+        BuildingLayout.RoomLayout officeLayout = ground.getRooms().get(0);
+
+        double x = officeLayout.getX() + 1;
+        double y = officeLayout.getY() + 1;
+        assertSame(ground, layout.findFloor(x, y));
+        assertSame(officeLayout, layout.findRoom(x, y));
+
+        // in the padding around a room, on the floor
+        assertSame(ground, layout.findFloor(x, ground.getY() + 2));
+        assertNull(layout.findRoom(x, ground.getY() + 2));
+
+        // on the floor, right of the rooms
+        double right = ground.getX() + ground.getWidth() - 1;
+        assertSame(ground, layout.findFloor(right, y));
+        assertNull(layout.findRoom(right, y));
+
+        assertSame(laboratory, layout.findRoom(x,
+                y - BuildingLayout.FLOOR_HEIGHT).getRoom());
+        assertNull(layout.findFloor(x, 599));
+        assertNull(layout.findFloor(5, y));
+    }
+
+    @Test
+    public void laysOutFloorsAtFractionalHeights() throws Exception {
+        Building tall = new Building("Tall");
+        for (int number = 1; number <= 5; number++) {
+            tall.addFloor(new Floor(number, 10, 10));
+        }
+        // eg. pixel-snapped heights at fractional display scales
+        for (double height : new double[]{161.6, 600.8, 719.2, 1079.6}) {
+            BuildingLayout layout = new BuildingLayout(tall, 800, height);
+            List<BuildingLayout.FloorLayout> floors = layout.getFloors();
+            assertEquals(5, floors.size());
+            for (int i = 0; i < floors.size(); i++) {
+                BuildingLayout.FloorLayout floor = floors.get(i);
+                assertSame(floor, layout.findFloor(100,
+                        floor.getY() + BuildingLayout.FLOOR_HEIGHT / 2));
+            }
+        }
+    }
+
+    @Test
+    public void emptyBuildingHasNoFloors() {
+        BuildingLayout layout = new BuildingLayout(new Building("Empty"),
+                800, 600);
+        assertTrue(layout.getFloors().isEmpty());
+        assertEquals(0, layout.getRoomCount());
+        assertNull(layout.findFloor(100, 500));
+    }
+}
@@ -0,0 +1,151 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StateSnapshotTest {
+
+    private List<Building> buildings;
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        buildings = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+    }
+
+    @Test
+    public void capturesEveryRoom() {
+        StateSnapshot snapshot = StateSnapshot.capture(buildings, 7);
+        assertEquals(7, snapshot.getMinutesElapsed());
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    StateSnapshot.RoomSnapshot copy = snapshot.getRoom(room);
+                    assertNotNull(copy);
+                    assertEquals(room.evaluateRoomState(), copy.getState());
+                    assertEquals(room.evaluateHazardLevel(),
+                            copy.getHazardLevel());
+                    assertEquals(room.fireDrillOngoing(),
+                            copy.fireDrillOngoing());
+                    assertEquals(room.maintenanceOngoing(),
+                            copy.maintenanceOngoing());
+                    for (Sensor sensor : room.getSensors()) {
+                        assertEquals(Integer.valueOf(sensor.getCurrentReading()),
+                                copy.getReading(
+                                        sensor.getClass().getSimpleName()));
+                    }
+                }
+                if (floor.getMaintenanceSchedule() == null) {
+                    assertNull(snapshot.getMaintenanceSchedule(floor));
+                } else {
+                    assertEquals(floor.getMaintenanceSchedule().encode(),
+                            snapshot.getMaintenanceSchedule(floor));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void doesNotChangeAsSimulationMovesForward() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        floor.addRoom(room);
+        room.addSensor(new TemperatureSensor(new int[]{20, 68, 25}));
+        Building building = new Building("Test");
+        building.addFloor(floor);
+
+        StateSnapshot snapshot = StateSnapshot.capture(List.of(building), 0);
+        // the reading changes once per minute
+        TimedItemManager.getInstance().elapseOneMinute();
+        assertEquals(Integer.valueOf(68),
+                StateSnapshot.capture(List.of(building), 1).getRoom(room)
+                        .getReading("TemperatureSensor"));
+
+        StateSnapshot.RoomSnapshot copy = snapshot.getRoom(room);
+        assertEquals(Integer.valueOf(20),
+                copy.getReading("TemperatureSensor"));
+        assertNull(copy.getReading("NoiseSensor"));
+    }
+
+    @Test
+    public void roomSnapshotsEqualWhenRoomLooksTheSame() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        floor.addRoom(room);
+        room.addSensor(new TemperatureSensor(new int[]{20, 20, 68}));
+        Building building = new Building("Test");
+        building.addFloor(floor);
+
+        StateSnapshot.RoomSnapshot first =
+                StateSnapshot.capture(List.of(building), 0).getRoom(room);
+        TimedItemManager.getInstance().elapseOneMinute();
+        StateSnapshot.RoomSnapshot second =
+                StateSnapshot.capture(List.of(building), 1).getRoom(room);
+        TimedItemManager.getInstance().elapseOneMinute();
+        StateSnapshot.RoomSnapshot third =
+                StateSnapshot.capture(List.of(building), 2).getRoom(room);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(second, third);
+    }
+
+    @Test
+    public void nextSharesRoomsWhichHaveNotChanged() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Room steady = new Room(101, RoomType.OFFICE, 20);
+        Room changing = new Room(102, RoomType.OFFICE, 20);
+        Room empty = new Room(103, RoomType.OFFICE, 20);
+        floor.addRoom(steady);
+        floor.addRoom(changing);
+        floor.addRoom(empty);
+        steady.addSensor(new TemperatureSensor(new int[]{20}));
+        changing.addSensor(new TemperatureSensor(new int[]{20, 68}));
+        Building building = new Building("Test");
+        building.addFloor(floor);
+
+        StateSnapshot first = StateSnapshot.capture(List.of(building), 0);
+        TimedItemManager.getInstance().elapseOneMinute();
+        StateSnapshot second = first.next(1);
+        assertEquals(1, second.getMinutesElapsed());
+        assertSame(first.getRoom(steady), second.getRoom(steady));
+        assertSame(first.getRoom(empty), second.getRoom(empty));
+        assertNotSame(first.getRoom(changing), second.getRoom(changing));
+        assertEquals(Integer.valueOf(68), second.getRoom(changing)
+                .getReading("TemperatureSensor"));
+        assertEquals(Integer.valueOf(20), first.getRoom(changing)
+                .getReading("TemperatureSensor"));
+
+        empty.setFireDrill(true);
+        StateSnapshot third = second.next(2);
+        assertTrue(third.getRoom(empty).fireDrillOngoing());
+        assertSame(second.getRoom(steady), third.getRoom(steady));
+    }
+
+    @Test
+    public void roomsAreKeyedByIdentity() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Room captured = new Room(101, RoomType.OFFICE, 20);
+        floor.addRoom(captured);
+        Building building = new Building("Test");
+        building.addFloor(floor);
+        StateSnapshot snapshot = StateSnapshot.capture(List.of(building), 0);
+
+        // an equal room added later was not captured
+        assertNotNull(snapshot.getRoom(captured));
+        assertNull(snapshot.getRoom(new Room(101, RoomType.OFFICE, 20)));
+    }
+}
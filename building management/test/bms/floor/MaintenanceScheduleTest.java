@@ -4,6 +4,8 @@ import bms.exceptions.DuplicateRoomException;
 import bms.exceptions.InsufficientSpaceException;
 import bms.room.Room;
 import bms.room.RoomType;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -88,6 +90,48 @@ public class MaintenanceScheduleTest {
         assertTrue(maintenanceSchedule.getCurrentRoom().maintenanceOngoing());
     }
 
+    private static MaintenanceSchedule createScheduleWithFire()
+            throws Exception {
+        List<Room> roomOrder = new ArrayList<>();
+        roomOrder.add(new Room(105, RoomType.OFFICE, 20.0));
+        roomOrder.add(new Room(106, RoomType.STUDY, 16.0));
+        // maintenance waits while the first room is evacuated
+        roomOrder.get(0).addSensor(new TemperatureSensor(
+                new int[]{20, 20, 70, 70, 70, 20, 20}));
+        roomOrder.get(1).addSensor(new TemperatureSensor(
+                new int[]{70, 20, 20, 20}));
+        return new MaintenanceSchedule(roomOrder);
+    }
+
+    @Test
+    public void advancedByManagerMatchesSteppingEveryMinute()
+            throws Exception {
+        MaintenanceSchedule advanced = createScheduleWithFire();
+        TimedItemManager.getInstance().registerTimedItem(advanced);
+        TimedItemManager.getInstance().advanceMinutes(30);
+
+        MaintenanceSchedule stepped = createScheduleWithFire();
+        for (int minute = 0; minute < 30; minute++) {
+            for (Room room : stepped.getRoomOrder()) {
+                ((TemperatureSensor) room.getSensor("TemperatureSensor"))
+                        .elapseOneMinute();
+            }
+            stepped.elapseOneMinute();
+        }
+
+        assertEquals(stepped.getCurrentRoomIndex(),
+                advanced.getCurrentRoomIndex());
+        assertEquals(stepped.getTimeElapsedCurrentRoom(),
+                advanced.getTimeElapsedCurrentRoom());
+        for (int i = 0; i < 2; i++) {
+            Room room = advanced.getRoomOrder().get(i);
+            assertEquals(stepped.getRoomOrder().get(i).maintenanceOngoing(),
+                    room.maintenanceOngoing());
+            assertEquals(30, ((TemperatureSensor) room
+                    .getSensor("TemperatureSensor")).getTimeElapsed());
+        }
+    }
+
     @Test
     public void testToString() {
         List<Room> roomOrder = new ArrayList<>();
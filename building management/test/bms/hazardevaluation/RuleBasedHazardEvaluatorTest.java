@@ -3,9 +3,12 @@ package bms.hazardevaluation;
 import bms.sensors.CarbonDioxideSensor;
 import bms.sensors.HazardSensor;
 import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
 import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -27,4 +30,46 @@ public class RuleBasedHazardEvaluatorTest {
         System.out.println(evaluator.evaluateHazardLevel());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void occupancyFactor() {
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{60}, 1);
+        TemperatureSensor temperatureSensor =
+                new TemperatureSensor(new int[]{20});
+        OccupancySensor occupancySensor =
+                new OccupancySensor(new int[]{10, 5}, 1, 10);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(noiseSensor);
+        sensors.add(occupancySensor);
+        sensors.add(temperatureSensor);
+        RuleBasedHazardEvaluator evaluator =
+                new RuleBasedHazardEvaluator(sensors);
+        // full occupancy keeps the average of the other sensors
+        assertEquals(25, evaluator.evaluateHazardLevel());
+        // partial occupancy uses integer division, as it always has
+        occupancySensor.elapseOneMinute();
+        assertEquals(0, evaluator.evaluateHazardLevel());
+        // the plan is fixed when the evaluator is created
+        sensors.clear();
+        occupancySensor.elapseOneMinute();
+        assertEquals(25, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void anySensorAt100() {
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(new OccupancySensor(new int[]{1}, 1, 10));
+        sensors.add(new TemperatureSensor(new int[]{70}));
+        assertEquals(100, new RuleBasedHazardEvaluator(sensors)
+                .evaluateHazardLevel());
+    }
+
+    @Test
+    public void singleSensor() {
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(new OccupancySensor(new int[]{4}, 1, 10));
+        assertEquals(40, new RuleBasedHazardEvaluator(sensors)
+                .evaluateHazardLevel());
+        assertEquals(0, new RuleBasedHazardEvaluator(new ArrayList<>())
+                .evaluateHazardLevel());
+    }
+}
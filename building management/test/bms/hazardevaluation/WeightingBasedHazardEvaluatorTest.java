@@ -0,0 +1,61 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WeightingBasedHazardEvaluatorTest {
+
+    @Test
+    public void evaluatesFromCompiledPlan() {
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{60, 80}, 1);
+        TemperatureSensor temperatureSensor =
+                new TemperatureSensor(new int[]{20, 70});
+        Map<HazardSensor, Integer> weights = new LinkedHashMap<>();
+        weights.put(noiseSensor, 100);
+        weights.put(temperatureSensor, 0);
+        WeightingBasedHazardEvaluator evaluator =
+                new WeightingBasedHazardEvaluator(weights);
+        assertEquals(50, evaluator.evaluateHazardLevel());
+        noiseSensor.elapseOneMinute();
+        temperatureSensor.elapseOneMinute();
+        assertEquals(100, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void partialWeightsIgnored() {
+        // weights below 100 use integer division, as they always have
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{80}, 1);
+        TemperatureSensor temperatureSensor =
+                new TemperatureSensor(new int[]{70});
+        Map<HazardSensor, Integer> weights = new HashMap<>();
+        weights.put(noiseSensor, 40);
+        weights.put(temperatureSensor, 60);
+        assertEquals(0, new WeightingBasedHazardEvaluator(weights)
+                .evaluateHazardLevel());
+    }
+
+    @Test
+    public void weightingsInMapOrder() {
+        Map<HazardSensor, Integer> weights = new LinkedHashMap<>();
+        weights.put(new NoiseSensor(new int[]{80}, 1), 30);
+        weights.put(new TemperatureSensor(new int[]{70}), 70);
+        assertEquals(List.of(30, 70),
+                new WeightingBasedHazardEvaluator(weights).getWeightings());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightsMustSumTo100() {
+        Map<HazardSensor, Integer> weights = new HashMap<>();
+        weights.put(new NoiseSensor(new int[]{80}, 1), 30);
+        new WeightingBasedHazardEvaluator(weights);
+    }
+}
@@ -0,0 +1,121 @@
+package bms.room;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.SensorColumnStore;
+import bms.sensors.TemperatureSensor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RoomTest {
+
+    private Room room;
+    private NoiseSensor noiseSensor;
+    private TemperatureSensor temperatureSensor;
+    private int evaluations;
+
+    @Before
+    public void setUp() throws DuplicateSensorException {
+        room = new Room(101, RoomType.OFFICE, 20);
+        noiseSensor = new NoiseSensor(new int[]{60, 60, 80}, 1);
+        temperatureSensor = new TemperatureSensor(new int[]{20, 21});
+        room.addSensor(noiseSensor);
+        room.addSensor(temperatureSensor);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(noiseSensor);
+        sensors.add(temperatureSensor);
+        HazardEvaluator ruleBased = new RuleBasedHazardEvaluator(sensors);
+        room.setHazardEvaluator(() -> {
+            evaluations++;
+            return ruleBased.evaluateHazardLevel();
+        });
+    }
+
+    @Test
+    public void noHazardEvaluator() {
+        room.setHazardEvaluator(null);
+        assertEquals(0, room.evaluateHazardLevel());
+    }
+
+    @Test
+    public void hazardLevelCachedUntilReadingChanges() {
+        assertEquals(25, room.evaluateHazardLevel());
+        assertEquals(25, room.evaluateHazardLevel());
+        assertEquals(1, evaluations);
+
+        // noise reading stays at 60, temperature reading changes
+        noiseSensor.elapseOneMinute();
+        temperatureSensor.elapseOneMinute();
+        assertEquals(25, room.evaluateHazardLevel());
+        assertEquals(2, evaluations);
+
+        // only the noise reading changes
+        noiseSensor.elapseOneMinute();
+        assertEquals(100, room.evaluateHazardLevel());
+        assertEquals(3, evaluations);
+
+        noiseSensor.seekTo(0);
+        assertEquals(25, room.evaluateHazardLevel());
+        assertEquals(4, evaluations);
+    }
+
+    @Test
+    public void hazardLevelInvalidatedByColumnStore() {
+        assertEquals(25, room.evaluateHazardLevel());
+        SensorColumnStore store = new SensorColumnStore(NoiseSensor.class);
+        noiseSensor.attachTo(store);
+        store.elapseOneMinute();
+        assertEquals(25, room.evaluateHazardLevel());
+        assertEquals(1, evaluations);
+        store.elapseOneMinute();
+        assertEquals(100, room.evaluateHazardLevel());
+        assertEquals(2, evaluations);
+    }
+
+    @Test
+    public void hazardLevelNotCachedIfReadingChangesDuringEvaluation() {
+        // the noise reading goes from 60 to 80 part way through evaluating
+        noiseSensor.elapseOneMinute();
+        HazardEvaluator ruleBased = new RuleBasedHazardEvaluator(
+                List.of(noiseSensor, temperatureSensor));
+        room.setHazardEvaluator(() -> {
+            int level = ruleBased.evaluateHazardLevel();
+            if (evaluations++ == 0) {
+                noiseSensor.elapseOneMinute();
+            }
+            return level;
+        });
+        assertEquals(25, room.evaluateHazardLevel());
+        assertEquals(100, room.evaluateHazardLevel());
+        assertEquals(100, room.evaluateHazardLevel());
+        assertEquals(2, evaluations);
+    }
+
+    @Test
+    public void encodeToMatchesEncode() throws IOException {
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        weightings.put(noiseSensor, 40);
+        weightings.put(temperatureSensor, 60);
+        room.setHazardEvaluator(new WeightingBasedHazardEvaluator(weightings));
+        StringBuilder out = new StringBuilder();
+        room.encodeTo(out);
+        assertEquals(room.encode(), out.toString());
+
+        Room empty = new Room(102, RoomType.STUDY, 12.345);
+        out.setLength(0);
+        empty.encodeTo(out);
+        assertEquals(empty.encode(), out.toString());
+    }
+}
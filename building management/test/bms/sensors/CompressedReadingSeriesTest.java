@@ -0,0 +1,78 @@
+package bms.sensors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompressedReadingSeriesTest {
+
+    @Test
+    public void matchesOriginalReadings() {
+        Random random = new Random(6006);
+        for (int length : new int[]{1, 2, 127, 128, 129, 1000}) {
+            int[] readings = new int[length];
+            int reading = 400 + random.nextInt(1000);
+            for (int i = 0; i < length; i++) {
+                reading = Math.max(0, reading + random.nextInt(41) - 20);
+                readings[i] = reading;
+            }
+            CompressedReadingSeries series =
+                    new CompressedReadingSeries(readings);
+            assertEquals(length, series.size());
+            for (int i = 0; i < length; i++) {
+                assertEquals(readings[i], series.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void wideAndConstantBlocks() {
+        int[] readings = new int[300];
+        for (int i = 0; i < 128; i++) {
+            readings[i] = 42;
+        }
+        for (int i = 128; i < readings.length; i++) {
+            readings[i] = i % 2 == 0 ? 0 : Integer.MAX_VALUE;
+        }
+        CompressedReadingSeries series = new CompressedReadingSeries(readings);
+        for (int i = 0; i < readings.length; i++) {
+            assertEquals(readings[i], series.get(i));
+        }
+    }
+
+    @Test
+    public void slowlyChangingSeriesIsSmaller() {
+        int[] readings = new int[10080];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = 745 + (i / 10) % 50;
+        }
+        CompressedReadingSeries series = new CompressedReadingSeries(readings);
+        assertTrue(series.getCompressedBytes() * 4
+                < (long) readings.length * Integer.BYTES);
+    }
+
+    @Test
+    public void compressedSensorBehavesTheSame() {
+        int[] readings = {745, 1320, 2782, 3028, 3194, 3450};
+        CarbonDioxideSensor plain = new CarbonDioxideSensor(readings, 3, 600,
+                200);
+        CarbonDioxideSensor compressed = new CarbonDioxideSensor(
+                readings.clone(), 3, 600, 200);
+        compressed.compressReadings();
+        for (int minute = 0; minute < 40; minute++) {
+            plain.elapseOneMinute();
+            compressed.elapseOneMinute();
+            assertEquals(plain.getCurrentReading(),
+                    compressed.getCurrentReading());
+        }
+        assertEquals(plain.encode(), compressed.encode());
+        assertEquals(plain, compressed);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfRange() {
+        new CompressedReadingSeries(new int[]{1, 2}).get(2);
+    }
+}
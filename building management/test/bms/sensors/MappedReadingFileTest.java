@@ -0,0 +1,116 @@
+package bms.sensors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class MappedReadingFileTest {
+
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("readings", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void appendedSeriesReadBack() throws IOException {
+        try (MappedReadingFile file = MappedReadingFile.create(path)) {
+            ReadingSeries first = file.append(new int[]{745, 1320, 2782});
+            ReadingSeries second = file.append(new int[]{0, 5});
+            assertEquals(3, first.size());
+            assertEquals(1320, first.get(1));
+            assertEquals(2782, first.get(2));
+            assertEquals(5, second.get(1));
+            assertEquals(3, file.getOffset(second));
+            assertEquals(5, file.getReadingCount());
+        }
+        try (MappedReadingFile file = MappedReadingFile.open(path)) {
+            assertEquals(5, file.getReadingCount());
+            ReadingSeries series = file.getSeries(0, 3);
+            assertEquals(745, series.get(0));
+            assertEquals(2782, series.get(2));
+        }
+    }
+
+    @Test
+    public void negativeReadingRejectedOnlyWhenSeriesHandedOut()
+            throws IOException {
+        try (MappedReadingFile file = MappedReadingFile.create(path)) {
+            file.append(new int[]{745, 1320, 2782});
+        }
+        // the last reading is overwritten with -1
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(-1).flip(),
+                    channel.size() - Integer.BYTES);
+        }
+        // opening reads the header only, so the bad reading goes unseen
+        try (MappedReadingFile file = MappedReadingFile.open(path)) {
+            assertEquals(3, file.getReadingCount());
+            assertEquals(1320, file.getSeries(0, 2).get(1));
+            try {
+                file.getSeries(1, 2);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // the series holds the negative reading
+            }
+        }
+    }
+
+    @Test
+    public void sensorMatchesHeapSensorAfterMove() throws IOException {
+        int[] readings = {50, 60, 55, 72};
+        NoiseSensor heap = new NoiseSensor(readings, 2);
+        NoiseSensor mapped = new NoiseSensor(readings.clone(), 2);
+        try (MappedReadingFile file = MappedReadingFile.create(path)) {
+            mapped.moveReadingsTo(file);
+            for (int minute = 0; minute < 20; minute++) {
+                heap.elapseOneMinute();
+                mapped.elapseOneMinute();
+                assertEquals(heap.getCurrentReading(),
+                        mapped.getCurrentReading());
+            }
+            assertEquals(heap.toString(), mapped.toString());
+            assertEquals(heap, mapped);
+        }
+    }
+
+    @Test
+    public void sensorFromSeries() throws IOException {
+        try (MappedReadingFile file = MappedReadingFile.create(path)) {
+            OccupancySensor sensor = new OccupancySensor(
+                    file.append(new int[]{3, 9}), 1, 10);
+            assertEquals(3, sensor.getCurrentReading());
+            sensor.elapseOneMinute();
+            assertEquals(90, sensor.getHazardLevel());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() throws IOException {
+        try (MappedReadingFile file = MappedReadingFile.create(path)) {
+            file.append(new int[]{1, -1});
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void notAReadingsFile() throws IOException {
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        MappedReadingFile.open(path).close();
+    }
+}
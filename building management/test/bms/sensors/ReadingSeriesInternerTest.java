@@ -0,0 +1,48 @@
+package bms.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReadingSeriesInternerTest {
+
+    @Test
+    public void identicalReadingsShareSeries() {
+        ReadingSeriesInterner interner = new ReadingSeriesInterner();
+        ReadingSeries first = interner.intern(new int[]{745, 1320, 2782});
+        ReadingSeries second = interner.intern(new int[]{745, 1320, 2782});
+        ReadingSeries other = interner.intern(new int[]{2782, 1320, 745});
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    public void callerArrayNotKept() {
+        ReadingSeriesInterner interner = new ReadingSeriesInterner();
+        int[] readings = {50, 60};
+        ReadingSeries series = interner.intern(readings);
+        readings[0] = 99;
+        assertEquals(50, series.get(0));
+        assertNotSame(series, interner.intern(readings));
+    }
+
+    @Test
+    public void sensorsOnSharedSeriesTickIndependently() {
+        ReadingSeriesInterner interner = new ReadingSeriesInterner();
+        NoiseSensor first = new NoiseSensor(interner.intern(
+                new int[]{50, 60, 70}), 1);
+        NoiseSensor second = new NoiseSensor(interner.intern(
+                new int[]{50, 60, 70}), 1);
+        first.elapseOneMinute();
+        assertEquals(60, first.getCurrentReading());
+        assertEquals(50, second.getCurrentReading());
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() {
+        new ReadingSeriesInterner().intern(new int[]{1, -1});
+    }
+}
@@ -0,0 +1,121 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SensorColumnStoreTest {
+
+    @Test
+    public void attachedSensorsMatchPlainSensors() {
+        Random random = new Random(4004);
+        List<NoiseSensor> plain = new ArrayList<>();
+        List<NoiseSensor> attached = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int[] readings = new int[1 + random.nextInt(10)];
+            for (int j = 0; j < readings.length; j++) {
+                readings[j] = 40 + random.nextInt(50);
+            }
+            int frequency = 1 + random.nextInt(5);
+            plain.add(new NoiseSensor(readings, frequency));
+            attached.add(new NoiseSensor(readings.clone(), frequency));
+        }
+        SensorColumnStore store = new SensorColumnStore(NoiseSensor.class);
+        store.attachAll(attached);
+        assertEquals(300, store.size());
+
+        for (int minute = 0; minute < 100; minute++) {
+            for (NoiseSensor sensor : plain) {
+                sensor.elapseOneMinute();
+            }
+            store.elapseOneMinute();
+            for (int i = 0; i < plain.size(); i++) {
+                assertEquals(plain.get(i).getCurrentReading(),
+                        attached.get(i).getCurrentReading());
+                assertEquals(plain.get(i).getHazardLevel(),
+                        attached.get(i).getHazardLevel());
+            }
+        }
+        store.advanceMinutes(5000);
+        for (int i = 0; i < plain.size(); i++) {
+            plain.get(i).advanceMinutes(5000);
+            assertEquals(plain.get(i).getTimeElapsed(),
+                    attached.get(i).getTimeElapsed());
+            assertEquals(plain.get(i).getCurrentReading(),
+                    attached.get(i).getCurrentReading());
+            assertEquals(plain.get(i).encode(), attached.get(i).encode());
+        }
+    }
+
+    @Test
+    public void attachKeepsHashCodeAndState() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{55, 62, 69, 63}, 3);
+        sensor.advanceMinutes(4);
+        int hashCode = sensor.hashCode();
+        sensor.attachTo(new SensorColumnStore(NoiseSensor.class));
+        assertEquals(hashCode, sensor.hashCode());
+        assertEquals(4, sensor.getTimeElapsed());
+        assertEquals(62, sensor.getCurrentReading());
+        // advanced by the store, not by itself
+        sensor.elapseOneMinute();
+        assertEquals(4, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void countReadingsAtLeast() {
+        SensorColumnStore store =
+                new SensorColumnStore(TemperatureSensor.class);
+        new TemperatureSensor(new int[]{70, 20}).attachTo(store);
+        new TemperatureSensor(new int[]{20, 70}).attachTo(store);
+        new TemperatureSensor(new int[]{68}).attachTo(store);
+        assertEquals(2, store.countReadingsAtLeast(68));
+        store.elapseOneMinute();
+        assertEquals(2, store.countReadingsAtLeast(68));
+        assertEquals(1, store.countReadingsAtLeast(69));
+    }
+
+    @Test
+    public void hazardLevelSweeps() {
+        SensorColumnStore store = new SensorColumnStore(OccupancySensor.class);
+        List<OccupancySensor> sensors = List.of(
+                new OccupancySensor(new int[]{10, 2}, 1, 10),
+                new OccupancySensor(new int[]{5, 20}, 1, 20),
+                new OccupancySensor(new int[]{1}, 1, 4));
+        store.attachAll(sensors);
+        int[] levels = new int[3];
+        store.copyHazardLevels(levels);
+        assertArrayEquals(new int[]{100, 25, 25}, levels);
+        assertEquals(1, store.countHazardLevelsAtLeast(50));
+        assertEquals(100, store.getMaxHazardLevel());
+
+        store.advanceMinutes(1);
+        store.copyHazardLevels(levels);
+        for (int i = 0; i < sensors.size(); i++) {
+            assertEquals(sensors.get(i).getHazardLevel(), levels[i]);
+        }
+        assertEquals(1, store.countHazardLevelsAtLeast(50));
+        assertEquals(100, store.getMaxHazardLevel());
+        assertEquals(0, new SensorColumnStore(NoiseSensor.class)
+                .getMaxHazardLevel());
+    }
+
+    @Test
+    public void unregisteredSensorIsNotAdvanced() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{50, 60}, 1);
+        TimedItemManager.getInstance().unregisterTimedItem(sensor);
+        TimedItemManager.getInstance().elapseOneMinute();
+        assertEquals(0, sensor.getTimeElapsed());
+        assertEquals(50, sensor.getCurrentReading());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void attachWrongType() {
+        new NoiseSensor(new int[]{50}, 1).attachTo(
+                new SensorColumnStore(TemperatureSensor.class));
+    }
+}
@@ -0,0 +1,94 @@
+package bms.sensors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimedSensorTest {
+
+    @Test
+    public void advanceMinutesMatchesStepping() {
+        int[] readings = new int[]{745, 1320, 2782, 3216, 5043, 3528, 1970};
+        CarbonDioxideSensor stepped =
+                new CarbonDioxideSensor(readings, 3, 700, 300);
+        CarbonDioxideSensor jumped =
+                new CarbonDioxideSensor(readings, 3, 700, 300);
+        for (int minute = 1; minute <= 100; minute++) {
+            stepped.elapseOneMinute();
+            jumped.advanceMinutes(1);
+            assertEquals(stepped.getCurrentReading(),
+                    jumped.getCurrentReading());
+        }
+        for (int i = 0; i < 10080; i++) {
+            stepped.elapseOneMinute();
+        }
+        jumped.advanceMinutes(10080);
+        assertEquals(stepped.getTimeElapsed(), jumped.getTimeElapsed());
+        assertEquals(stepped.getCurrentReading(), jumped.getCurrentReading());
+    }
+
+    @Test
+    public void seekTo() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{55, 62, 69, 63}, 3);
+        sensor.seekTo(7);
+        assertEquals(7, sensor.getTimeElapsed());
+        assertEquals(69, sensor.getCurrentReading());
+        sensor.seekTo(0);
+        assertEquals(55, sensor.getCurrentReading());
+        sensor.seekTo(12);
+        assertEquals(55, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void minutesUntilReadingChanges() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{50, 50, 61, 50}, 2);
+        assertEquals(4, sensor.minutesUntilReadingChanges());
+        sensor.seekTo(3);
+        assertEquals(1, sensor.minutesUntilReadingChanges());
+        sensor.seekTo(4);
+        assertEquals(2, sensor.minutesUntilReadingChanges());
+        assertEquals(-1, new TemperatureSensor(new int[]{22, 22})
+                .minutesUntilReadingChanges());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReadingInOtherSeries() {
+        ReadingSeries series = new ReadingSeries() {
+            @Override
+            public int size() {
+                return 2;
+            }
+
+            @Override
+            public int get(int index) {
+                return index == 0 ? 50 : -1;
+            }
+        };
+        new NoiseSensor(series, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void advanceMinutesNegative() {
+        new TemperatureSensor(new int[]{24, 25}).advanceMinutes(-1);
+    }
+
+    @Test
+    public void hashCodeAgreesWithEquals() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{50, 60, 70}, 2);
+        NoiseSensor reordered = new NoiseSensor(new int[]{70, 50, 60}, 2);
+        assertEquals(sensor, reordered);
+        assertEquals(sensor.hashCode(), reordered.hashCode());
+        sensor.elapseOneMinute();
+        reordered.compressReadings();
+        assertEquals(sensor.hashCode(), reordered.hashCode());
+    }
+
+    @Test
+    public void hashCodeAgreesWithEqualsAcrossSensorTypes() {
+        NoiseSensor noise = new NoiseSensor(new int[]{50, 60}, 1);
+        TemperatureSensor temperature = new TemperatureSensor(new int[]{60, 50});
+        assertEquals(noise, temperature);
+        assertEquals(temperature, noise);
+        assertEquals(noise.hashCode(), temperature.hashCode());
+    }
+}
@@ -0,0 +1,105 @@
+package bms.util;
+
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TimedSensor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventTickSchedulerTest {
+
+    private static List<TimedSensor> createSensors(long seed) {
+        Random random = new Random(seed);
+        List<TimedSensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int[] readings = new int[1 + random.nextInt(8)];
+            for (int j = 0; j < readings.length; j++) {
+                // few distinct values, so many ticks change nothing
+                readings[j] = 10 + random.nextInt(3);
+            }
+            int frequency = 1 + random.nextInt(5);
+            if (i % 2 == 0) {
+                sensors.add(new NoiseSensor(readings, frequency));
+            } else {
+                sensors.add(new OccupancySensor(readings, frequency, 20));
+            }
+        }
+        return sensors;
+    }
+
+    @Test
+    public void matchesSerialLoop() {
+        List<TimedSensor> serial = createSensors(3003);
+        List<TimedSensor> scheduled = createSensors(3003);
+        List<TimedItem> scheduledItems = new ArrayList<>(scheduled);
+        EventTickScheduler scheduler = new EventTickScheduler(0);
+
+        for (int minute = 0; minute < 200; minute++) {
+            for (TimedSensor sensor : serial) {
+                sensor.elapseOneMinute();
+            }
+            scheduler.elapseOneMinute(scheduledItems);
+            for (int i = 0; i < serial.size(); i++) {
+                assertEquals(serial.get(i).getCurrentReading(),
+                        scheduled.get(i).getCurrentReading());
+            }
+        }
+
+        scheduler.advanceMinutes(scheduledItems, 1000);
+        for (TimedSensor sensor : serial) {
+            sensor.advanceMinutes(1000);
+        }
+        scheduler.flush();
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getCurrentReading(),
+                    scheduled.get(i).getCurrentReading());
+            assertEquals(serial.get(i).getTimeElapsed(),
+                    scheduled.get(i).getTimeElapsed());
+        }
+    }
+
+    @Test
+    public void constantSensorIsNeverWoken() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{40, 40, 40}, 2);
+        List<TimedItem> items = new ArrayList<>();
+        items.add(sensor);
+        EventTickScheduler scheduler = new EventTickScheduler(0);
+        scheduler.elapseOneMinute(items);
+        scheduler.elapseOneMinute(items);
+        scheduler.elapseOneMinute(items);
+        assertEquals(3, scheduler.getPendingMinutes(sensor));
+        scheduler.flush();
+        assertEquals(0, scheduler.getPendingMinutes(sensor));
+    }
+
+    @Test
+    public void sensorKnowsItsTimeElapsedBetweenWakeUps() {
+        NoiseSensor sensor = new NoiseSensor(new int[]{40, 40, 40, 50}, 1);
+        sensor.elapseOneMinute();
+        List<TimedItem> items = new ArrayList<>();
+        items.add(sensor);
+        // the scheduler's minutes need not match the sensor's
+        EventTickScheduler scheduler = new EventTickScheduler(100);
+        scheduler.elapseOneMinute(items);
+        assertEquals(2, sensor.getTimeElapsed());
+        assertEquals(1, sensor.getPendingMinutes());
+        scheduler.elapseOneMinute(items);
+        // woken, as the reading changed
+        assertEquals(3, sensor.getTimeElapsed());
+        assertEquals(0, sensor.getPendingMinutes());
+        assertEquals(50, sensor.getCurrentReading());
+        scheduler.advanceMinutes(items, 6);
+        assertEquals(9, sensor.getTimeElapsed());
+        scheduler.flush();
+        assertEquals(9, sensor.getTimeElapsed());
+        assertEquals(0, sensor.getPendingMinutes());
+        // advanced every minute once handed back
+        sensor.elapseOneMinute();
+        assertEquals(10, sensor.getTimeElapsed());
+    }
+}
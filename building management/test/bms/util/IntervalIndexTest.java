@@ -0,0 +1,90 @@
+package bms.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntervalIndexTest {
+
+    private static IntervalIndex<double[]> index(List<double[]> intervals) {
+        return new IntervalIndex<>(intervals, interval -> interval[0],
+                interval -> interval[1]);
+    }
+
+    @Test
+    public void findsContainingInterval() {
+        double[] first = {0, 10};
+        double[] second = {10, 25};
+        double[] third = {30, 31};
+        // built in any order
+        IntervalIndex<double[]> index = index(List.of(third, first, second));
+
+        assertEquals(3, index.size());
+        assertSame(first, index.find(5));
+        assertSame(second, index.find(10.5));
+        assertSame(third, index.find(30.5));
+    }
+
+    @Test
+    public void boundariesAndGapsAreOutside() {
+        IntervalIndex<double[]> index = index(List.of(
+                new double[]{0, 10}, new double[]{10, 25},
+                new double[]{30, 31}));
+
+        assertNull(index.find(-1));
+        assertNull(index.find(0));
+        assertNull(index.find(10));
+        assertNull(index.find(27));
+        assertNull(index.find(31));
+        assertNull(index.find(100));
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        IntervalIndex<double[]> index = index(List.of());
+        assertEquals(0, index.size());
+        assertNull(index.find(0));
+    }
+
+    @Test
+    public void agreesWithLinearSearch() {
+        Random random = new Random(42);
+        List<double[]> intervals = new ArrayList<>();
+        double position = 0;
+        for (int i = 0; i < 1000; i++) {
+            position += random.nextDouble() * 5;
+            double width = random.nextDouble() * 20;
+            intervals.add(new double[]{position, position + width});
+            position += width;
+        }
+        List<double[]> shuffled = new ArrayList<>(intervals);
+        Collections.shuffle(shuffled, random);
+        IntervalIndex<double[]> index = index(shuffled);
+
+        for (int i = 0; i < 10000; i++) {
+            double point = random.nextDouble() * (position + 10) - 5;
+            double[] expected = null;
+            for (double[] interval : intervals) {
+                if (point > interval[0] && point < interval[1]) {
+                    expected = interval;
+                }
+            }
+            assertSame(expected, index.find(point));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlappingIntervalsRejected() {
+        index(List.of(new double[]{0, 10}, new double[]{5, 15}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backwardsIntervalRejected() {
+        index(List.of(new double[]{10, 0}));
+    }
+}
@@ -0,0 +1,123 @@
+package bms.util;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.floor.MaintenanceSchedule;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedSensor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ShardedTickEngineTest {
+
+    private static final int NUM_SENSORS = 5000;
+
+    private static int[] randomReadings(Random random) {
+        int[] readings = new int[1 + random.nextInt(12)];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = 20 + random.nextInt(60);
+        }
+        return readings;
+    }
+
+    /**
+     * Builds a model of sensors followed by a maintenance schedule, so that
+     * the serial loop also advances every sensor before the schedule.
+     */
+    private static List<TimedItem> createModel(List<TimedSensor> sensors,
+                                               List<Room> rooms, long seed)
+            throws DuplicateSensorException {
+        Random random = new Random(seed);
+        List<TimedItem> items = new ArrayList<>();
+        for (int i = 0; i < NUM_SENSORS; i++) {
+            int frequency = 1 + random.nextInt(5);
+            TimedSensor sensor;
+            if (i % 2 == 0) {
+                sensor = new NoiseSensor(randomReadings(random), frequency);
+            } else {
+                sensor = new OccupancySensor(randomReadings(random), frequency,
+                        30);
+            }
+            sensors.add(sensor);
+            items.add(sensor);
+        }
+        for (int i = 0; i < 3; i++) {
+            Room room = new Room(101 + i, RoomType.OFFICE, 10 + i);
+            TemperatureSensor temperatureSensor =
+                    new TemperatureSensor(new int[]{25, 70, 70, 24, 22});
+            room.addSensor(temperatureSensor);
+            sensors.add(temperatureSensor);
+            items.add(temperatureSensor);
+            rooms.add(room);
+        }
+        items.add(new MaintenanceSchedule(new ArrayList<>(rooms)));
+        return items;
+    }
+
+    @Test
+    public void matchesSerialLoop() throws DuplicateSensorException {
+        List<TimedSensor> serialSensors = new ArrayList<>();
+        List<Room> serialRooms = new ArrayList<>();
+        List<TimedItem> serialItems = createModel(serialSensors, serialRooms,
+                2002);
+        List<TimedSensor> shardedSensors = new ArrayList<>();
+        List<Room> shardedRooms = new ArrayList<>();
+        List<TimedItem> shardedItems = createModel(shardedSensors,
+                shardedRooms, 2002);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ShardedTickEngine engine = new ShardedTickEngine(pool);
+            for (int minute = 0; minute < 120; minute++) {
+                for (TimedItem item : serialItems) {
+                    item.elapseOneMinute();
+                }
+                engine.elapseOneMinute(shardedItems);
+
+                for (int i = 0; i < serialSensors.size(); i++) {
+                    assertEquals(serialSensors.get(i).getCurrentReading(),
+                            shardedSensors.get(i).getCurrentReading());
+                    assertEquals(serialSensors.get(i).getTimeElapsed(),
+                            shardedSensors.get(i).getTimeElapsed());
+                }
+                for (int i = 0; i < serialRooms.size(); i++) {
+                    assertEquals(serialRooms.get(i).evaluateRoomState(),
+                            shardedRooms.get(i).evaluateRoomState());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void picksUpNewlyRegisteredItems() {
+        List<TimedItem> items = new ArrayList<>();
+        NoiseSensor first = new NoiseSensor(new int[]{50, 60}, 1);
+        items.add(first);
+        NoiseSensor second = new NoiseSensor(new int[]{50, 60}, 1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ShardedTickEngine engine = new ShardedTickEngine(pool);
+            engine.elapseOneMinute(items);
+
+            items.add(second);
+            engine.elapseOneMinute(items);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(2, first.getTimeElapsed());
+        assertEquals(1, second.getTimeElapsed());
+        assertEquals(60, second.getCurrentReading());
+    }
+}
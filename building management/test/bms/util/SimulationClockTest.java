@@ -0,0 +1,99 @@
+package bms.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SimulationClockTest {
+
+    private AtomicLong ticks;
+    private SimulationClock clock;
+
+    @Before
+    public void setUp() {
+        ticks = new AtomicLong();
+        clock = new SimulationClock(ticks::incrementAndGet);
+    }
+
+    @After
+    public void tearDown() {
+        clock.shutdown();
+    }
+
+    private void awaitTicks(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (ticks.get() < count) {
+            assertTrue("Only " + ticks.get() + " ticks run",
+                    System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void startsPaused() throws InterruptedException {
+        assertTrue(clock.isPaused());
+        Thread.sleep(100);
+        assertEquals(0, ticks.get());
+    }
+
+    @Test
+    public void runsAsFastAsPossible() throws InterruptedException {
+        clock.setSpeed(SimulationClock.AS_FAST_AS_POSSIBLE);
+        clock.setPaused(false);
+        awaitTicks(100_000);
+        assertTrue(clock.getTicks() >= 100_000);
+    }
+
+    @Test
+    public void pacesTicksAtSpeed() throws InterruptedException {
+        clock.setSpeed(20);
+        long start = System.nanoTime();
+        clock.setPaused(false);
+        awaitTicks(10);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // ten ticks at 20 per second take at least half a second
+        assertTrue("Took " + elapsedMillis + "ms", elapsedMillis >= 450);
+    }
+
+    @Test
+    public void speedUpTakesEffectStraightAway() throws InterruptedException {
+        clock.setSpeed(SimulationClock.REAL_TIME / 60);
+        clock.setPaused(false);
+        Thread.sleep(50);
+        // the first tick would otherwise be a minute away
+        clock.setSpeed(1000);
+        awaitTicks(50);
+    }
+
+    @Test
+    public void pauseStopsTicks() throws InterruptedException {
+        clock.setSpeed(SimulationClock.AS_FAST_AS_POSSIBLE);
+        clock.setPaused(false);
+        awaitTicks(1000);
+        clock.setPaused(true);
+        // a tick already running may finish
+        Thread.sleep(50);
+        long paused = ticks.get();
+        Thread.sleep(100);
+        assertEquals(paused, ticks.get());
+        assertEquals(paused, clock.getTicks());
+
+        clock.setPaused(false);
+        awaitTicks(paused + 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void speedMustBePositive() {
+        clock.setSpeed(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotResumeAfterShutdown() {
+        clock.shutdown();
+        clock.setPaused(false);
+    }
+}